@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.annotations;
+
+import com.github.fge.grappa.matchers.wrap.MemoizingMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.MemoizingParseRunner;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Memoize the outcome of a {@link Rule}
+ *
+ * <p>The rule produced by a method carrying this annotation is wrapped into a
+ * {@link MemoizingMatcher}, which records the outcome of the rule at each
+ * input position where it is attempted and replays it if the rule is attempted
+ * again at the same position. Unlike with a {@link MemoizingParseRunner}, only
+ * the annotated rules are memoized, whatever the parse runner in use.</p>
+ *
+ * <p>The memo table of a rule only holds entries for a limited number of input
+ * positions, given by {@link #window()}; see {@link
+ * com.github.fge.grappa.run.memo.MemoTable} for details, including the
+ * restrictions which apply to memoized rules.</p>
+ *
+ * @see MemoizingMatcher
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Memoized
+{
+    /**
+     * The default number of input positions to keep entries for
+     */
+    int DEFAULT_WINDOW = 1024;
+
+    /**
+     * The number of input positions to keep entries for
+     *
+     * @return the window size; must be strictly positive
+     */
+    int window() default DEFAULT_WINDOW;
+}
@@ -58,12 +58,15 @@ public final class CharSequenceInputBuffer
     }
 
     private final CharSequence charSequence;
+    // non null if the char sequence is a string, see regionMatches()
+    private final String string;
     private final int length;
     private final Future<LineCounter> lineCounter;
 
     public CharSequenceInputBuffer(@Nonnull final CharSequence charSequence)
     {
         this.charSequence = Objects.requireNonNull(charSequence);
+        string = charSequence instanceof String ? (String) charSequence : null;
         length = charSequence.length();
         lineCounter = EXECUTOR.submit(() -> new LineCounter(charSequence));
     }
@@ -96,6 +99,21 @@ public final class CharSequenceInputBuffer
         return charSequence.subSequence(start, end);
     }
 
+    /*
+     * String.regionMatches() is an intrinsic
+     */
+    @Override
+    public boolean regionMatches(final int index, final String string)
+    {
+        if (this.string == null)
+            return InputBuffer.super.regionMatches(index, string);
+
+        final int len = string.length();
+
+        return index >= 0 && index <= length - len
+            && this.string.regionMatches(index, string, 0, len);
+    }
+
     @Override
     public String extract(final int start, final int end)
     {
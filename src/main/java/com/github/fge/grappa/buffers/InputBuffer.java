@@ -43,6 +43,34 @@ public interface InputBuffer
      */
     int codePointAt(int index);
 
+    /**
+     * Tell whether this buffer contains a given string at a given index
+     *
+     * <p>Unlike {@link #extract(int, int)}, this method does not create any
+     * object; it should be used whenever the text of the buffer only needs to
+     * be compared.</p>
+     *
+     * <p>The default implementation compares characters one by one.</p>
+     *
+     * @param index the index
+     * @param string the string
+     * @return false if the string does not fit between the index and the end
+     * of the buffer, or if the characters differ; true otherwise
+     */
+    default boolean regionMatches(final int index, final String string)
+    {
+        final int length = string.length();
+
+        if (index < 0 || index > length() - length)
+            return false;
+
+        for (int i = 0; i < length; i++)
+            if (charAt(index + i) != string.charAt(i))
+                return false;
+
+        return true;
+    }
+
     /**
      * Extracts a given index range from this buffer as a string
      *
@@ -16,11 +16,15 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 /**
  * A {@link Matcher} matching any single (Java) {@code char}
  *
@@ -28,6 +32,7 @@ import com.github.fge.grappa.run.context.MatcherContext;
  */
 public final class AnyMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     public AnyMatcher()
     {
@@ -48,4 +53,10 @@ public final class AnyMatcher
         context.advanceIndex(1);
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.ANY;
+    }
 }
@@ -16,6 +16,8 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
@@ -23,6 +25,7 @@ import com.github.fge.grappa.run.context.MatcherContext;
 import com.github.fge.grappa.support.Characters;
 
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * A {@link Matcher} matching a single (Java) {@code char} out of a given {@link
@@ -32,6 +35,7 @@ import java.util.Objects;
  */
 public final class AnyOfMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     private final Characters characters;
 
@@ -66,4 +70,10 @@ public final class AnyOfMatcher
         context.advanceIndex(1);
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.of(characters);
+    }
 }
@@ -16,11 +16,15 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 import static com.github.fge.grappa.support.Chars.escape;
 
 /**
@@ -33,6 +37,7 @@ import static com.github.fge.grappa.support.Chars.escape;
  */
 public final class CharIgnoreCaseMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     private final char lowerBound;
     private final char upperBound;
@@ -66,4 +71,10 @@ public final class CharIgnoreCaseMatcher
         context.advanceIndex(1);
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.of(lowerBound).union(FirstSet.of(upperBound));
+    }
 }
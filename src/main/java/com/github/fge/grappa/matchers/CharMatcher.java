@@ -16,11 +16,15 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 import static com.github.fge.grappa.support.Chars.escape;
 
 /**
@@ -30,6 +34,7 @@ import static com.github.fge.grappa.support.Chars.escape;
  */
 public final class CharMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     private final char character;
 
@@ -56,6 +61,11 @@ public final class CharMatcher
         }
     }
 
+    public char getCharacter()
+    {
+        return character;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
@@ -68,4 +78,10 @@ public final class CharMatcher
         context.advanceIndex(1);
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.of(character);
+    }
 }
@@ -16,12 +16,16 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.google.common.base.Preconditions;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 import static com.github.fge.grappa.support.Chars.escape;
 
 /**
@@ -34,6 +38,7 @@ import static com.github.fge.grappa.support.Chars.escape;
 @SuppressWarnings("ImplicitNumericConversion")
 public final class CharRangeMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     private final char lowerBound;
     private final char upperBound;
@@ -52,6 +57,16 @@ public final class CharRangeMatcher
         return MatcherType.TERMINAL;
     }
 
+    public char getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    public char getUpperBound()
+    {
+        return upperBound;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
@@ -66,4 +81,10 @@ public final class CharRangeMatcher
         context.advanceIndex(1);
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.range(lowerBound, upperBound);
+    }
 }
@@ -16,11 +16,15 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 /**
  * A {@link Matcher} that always successfully matches nothing
  *
@@ -28,6 +32,7 @@ import com.github.fge.grappa.run.context.MatcherContext;
  */
 public final class EmptyMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     public EmptyMatcher()
     {
@@ -45,4 +50,10 @@ public final class EmptyMatcher
     {
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.EMPTY;
+    }
 }
@@ -16,10 +16,15 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 /**
  * A matcher which only succeeds at the end of the input text, and matches
  * nothing
@@ -28,6 +33,7 @@ import com.github.fge.grappa.run.context.MatcherContext;
  */
 public final class EndOfInputMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     public EndOfInputMatcher()
     {
@@ -45,4 +51,10 @@ public final class EndOfInputMatcher
     {
         return context.atEnd();
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.NONE;
+    }
 }
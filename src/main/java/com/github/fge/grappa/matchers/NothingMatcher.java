@@ -16,11 +16,15 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 /**
  * A {@link Matcher} that never matches anything
  *
@@ -28,6 +32,7 @@ import com.github.fge.grappa.run.context.MatcherContext;
  */
 public final class NothingMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     @Override
     public MatcherType getType()
@@ -45,4 +50,10 @@ public final class NothingMatcher
     {
         return false;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.NONE;
+    }
 }
@@ -5,6 +5,7 @@ import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,16 +16,40 @@ import java.util.regex.Pattern;
  *
  * <p>Note that the operation used to perform the match is {@link
  * Matcher#lookingAt()}, not {@code matches()} or {@code find()}.</p>
+ *
+ * <p>The match is performed on a {@link Matcher#region(int, int) region} of
+ * the input buffer starting at the current index; a single {@link Matcher} is
+ * created for each parsing run, and reused for all match attempts of this
+ * run (see {@link MatcherContext#getRunState getRunState()}). The region ends
+ * at the end of input, unless a maximum lookahead is specified.</p>
  */
 public final class RegexMatcher
     extends AbstractMatcher
 {
+    private static final int UNBOUNDED = Integer.MAX_VALUE;
+
     private final Pattern pattern;
+    private final int maxLength;
+    private final Function<CharSequence, Matcher> newMatcher;
 
     public RegexMatcher(final String regex)
+    {
+        this(regex, UNBOUNDED);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param regex the regex
+     * @param maxLength the maximum number of characters the regex can look at
+     * from the current index
+     */
+    public RegexMatcher(final String regex, final int maxLength)
     {
         super("regex(" + regex + ')');
         pattern = Pattern.compile(regex);
+        this.maxLength = maxLength;
+        newMatcher = pattern::matcher;
     }
 
     @Override
@@ -38,18 +63,18 @@ public final class RegexMatcher
     {
         final InputBuffer buffer = context.getInputBuffer();
         final int startIndex = context.getCurrentIndex();
-        final int length = buffer.length();
-
-        final CharSequence cs = buffer.subSequence(startIndex, length);
+        final int endIndex = (int) Math.min(buffer.length(),
+            (long) startIndex + maxLength);
 
         // That is a java.util.regex.Matcher!!
-        final Matcher matcher = pattern.matcher(cs);
+        final Matcher matcher = context.getRunState(this, newMatcher);
 
-        final boolean ret = matcher.lookingAt();
+        matcher.region(startIndex, endIndex);
 
-        if (ret)
-            context.advanceIndex(matcher.end());
+        if (!matcher.lookingAt())
+            return false;
 
-        return ret;
+        context.setCurrentIndex(matcher.end());
+        return true;
     }
 }
@@ -16,27 +16,53 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * A matcher which matches a given string literal in a case insensitive manner
  *
  * <p>This is the matcher used by {@link BaseParser#ignoreCase(String)
  * ignoreCase()} (the string version).</p>
+ *
+ * <p>Characters are compared as {@link String#equalsIgnoreCase(String)} does:
+ * two characters are equal if they are equal once converted to upper case,
+ * then to lower case. This conversion is done once and for all for the
+ * characters of the literal, and uses a table for ASCII characters of the
+ * input.</p>
  */
 public final class StringIgnoreCaseMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
+    private static final int ASCII_SIZE = 128;
+    private static final char[] ASCII_FOLDED = new char[ASCII_SIZE];
+
+    static {
+        for (char c = 0; c < ASCII_SIZE; c++)
+            ASCII_FOLDED[c] = slowFold(c);
+    }
+
     private final String input;
+    private final char[] chars;
+    private final char[] folded;
 
     public StringIgnoreCaseMatcher(final String input)
     {
         super("stringIgnoreCase(" + input + ')');
         this.input = Objects.requireNonNull(input);
+        chars = input.toCharArray();
+        folded = new char[chars.length];
+        for (int i = 0; i < chars.length; i++)
+            folded[i] = fold(chars[i]);
     }
     
     @Override
@@ -48,14 +74,48 @@ public final class StringIgnoreCaseMatcher
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
-        final int len = input.length();
+        final InputBuffer buffer = context.getInputBuffer();
         final int index = context.getCurrentIndex();
-        final String s = context.getInputBuffer().extract(index, index + len);
+        final int len = chars.length;
 
-        if (!s.equalsIgnoreCase(input))
+        if (index > buffer.length() - len)
             return false;
 
+        char c;
+
+        for (int i = 0; i < len; i++) {
+            c = buffer.charAt(index + i);
+            if (c != chars[i] && fold(c) != folded[i])
+                return false;
+        }
+
         context.advanceIndex(len);
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        if (input.isEmpty())
+            return FirstSet.EMPTY;
+
+        final char c = input.charAt(0);
+
+        // non ASCII characters may be equal to ASCII ones when ignoring case
+        if (c >= 128)
+            return FirstSet.ANY;
+
+        return FirstSet.of(Character.toLowerCase(c))
+            .union(FirstSet.of(Character.toUpperCase(c)));
+    }
+
+    private static char fold(final char c)
+    {
+        return c < ASCII_SIZE ? ASCII_FOLDED[c] : slowFold(c);
+    }
+
+    private static char slowFold(final char c)
+    {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
 }
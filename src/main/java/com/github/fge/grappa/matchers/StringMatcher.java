@@ -16,11 +16,16 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * A matcher which matches a given string literal
@@ -30,6 +35,7 @@ import java.util.Objects;
  */
 public final class StringMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     private final String input;
 
@@ -45,17 +51,26 @@ public final class StringMatcher
         return MatcherType.TERMINAL;
     }
 
+    public String getString()
+    {
+        return input;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
-        final int len = input.length();
-        final int index = context.getCurrentIndex();
-        final String s = context.getInputBuffer().extract(index, index + len);
+        final InputBuffer buffer = context.getInputBuffer();
 
-        if (!s.equals(input))
+        if (!buffer.regionMatches(context.getCurrentIndex(), input))
             return false;
 
-        context.advanceIndex(len);
+        context.advanceIndex(input.length());
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return input.isEmpty() ? FirstSet.EMPTY : FirstSet.of(input.charAt(0));
+    }
 }
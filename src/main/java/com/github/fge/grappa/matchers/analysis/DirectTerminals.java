@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.analysis;
+
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.WrappingMatcher;
+import com.github.fge.grappa.matchers.repeat.CharSpanMatcher;
+import com.github.fge.grappa.matchers.repeat.CodePointSpanMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Determines which children of a matcher can run without a subcontext
+ *
+ * <p>Terminals defined by this package only read the input and move the
+ * current index of their context; composite matchers can therefore run them
+ * directly against their own context, using {@link
+ * MatcherContext#runTerminal(Matcher)}. This is also the case of repetitions
+ * of a single character or code point, which are composites only because they
+ * are {@link RepeatMatcher}s.</p>
+ *
+ * <p>A terminal directly followed by an action is an exception: the action
+ * accesses the match of the terminal through the subcontext it ran in.
+ * Terminals wrapped in another matcher (for instance, a memoizing matcher)
+ * are not run directly either.</p>
+ */
+public final class DirectTerminals
+{
+    private static final String MATCHERS_PACKAGE
+        = MatcherType.class.getPackage().getName() + '.';
+
+    private DirectTerminals()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Tell whether a matcher can run directly against the context of its
+     * parent
+     *
+     * @param matcher the matcher
+     * @return true if the matcher is a terminal defined by this package, or
+     * a repetition of a single character or code point
+     */
+    public static boolean isDirect(@Nonnull final Matcher matcher)
+    {
+        Objects.requireNonNull(matcher);
+
+        Matcher unwrapped = matcher;
+        Matcher previous;
+
+        do {
+            previous = unwrapped;
+            unwrapped = ProxyMatcher.unwrap(unwrapped);
+        } while (unwrapped != previous);
+
+        final Class<?> type = unwrapped.getClass();
+
+        if (type == CharSpanMatcher.class
+            || type == CodePointSpanMatcher.class)
+            return true;
+
+        return unwrapped.getType() == MatcherType.TERMINAL
+            && !(unwrapped instanceof WrappingMatcher)
+            && type.getName().startsWith(MATCHERS_PACKAGE);
+    }
+
+    /**
+     * Tell which of the children of a matcher can run directly against its
+     * context
+     *
+     * <p>Children are considered in order, and a child is followed by the next
+     * one, if any.</p>
+     *
+     * @param children the children
+     * @return an array with one element per child, true if the child can run
+     * directly
+     */
+    public static boolean[] ofChildren(@Nonnull final List<Matcher> children)
+    {
+        Objects.requireNonNull(children);
+
+        final int size = children.size();
+        final boolean[] ret = new boolean[size];
+
+        for (int i = 0; i < size; i++)
+            ret[i] = isDirect(children.get(i)) && (i + 1 == size
+                || children.get(i + 1).getType() != MatcherType.ACTION);
+
+        return ret;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.analysis;
+
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Characters;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * An approximation of the characters a matcher can start a match with
+ *
+ * <p>A first set is made of two parts:</p>
+ *
+ * <ul>
+ *     <li>the set of characters at which the matcher may do anything else
+ *     than fail without any effect: match them, but also run an action,
+ *     succeed without consuming them (for instance with a predicate), etc;</li>
+ *     <li>whether the matcher is <em>nullable</em>, that is whether it may
+ *     succeed without consuming any input, whatever the current character.</li>
+ * </ul>
+ *
+ * <p>Note that a matcher only succeeding at the end of input (for instance
+ * {@code EOI}) is not nullable in this sense.</p>
+ *
+ * <p>Only ASCII characters (0 to 127) are accounted for; any other character
+ * is considered to be a possible first character of any matcher.</p>
+ *
+ * <p>This means that if a matcher's first set {@link #excludes(MatcherContext)
+ * excludes} the current character of a context, then running this matcher on
+ * this context is guaranteed to fail without any other effect.</p>
+ *
+ * @see FirstSets
+ */
+@Immutable
+public final class FirstSet
+{
+    private static final int ASCII_SIZE = 128;
+
+    /**
+     * The first set of a matcher never matching any ASCII character
+     */
+    public static final FirstSet NONE = new FirstSet(0L, 0L, false);
+
+    /**
+     * The first set of a matcher matching any character
+     */
+    public static final FirstSet ANY = new FirstSet(-1L, -1L, false);
+
+    /**
+     * The first set of a matcher matching without consuming any input
+     */
+    public static final FirstSet EMPTY = new FirstSet(0L, 0L, true);
+
+    /**
+     * The first set of a matcher about which nothing is known
+     */
+    public static final FirstSet UNKNOWN = new FirstSet(-1L, -1L, true);
+
+    private final long low;
+    private final long high;
+    private final boolean nullable;
+
+    /**
+     * Return the first set of a matcher matching one character
+     *
+     * @param c the character
+     * @return a first set
+     */
+    public static FirstSet of(final char c)
+    {
+        return range(c, c);
+    }
+
+    /**
+     * Return the first set of a matcher matching one character in a range
+     *
+     * <p>The range is empty if the lower bound is greater than the upper
+     * bound.</p>
+     *
+     * @param lowerBound the lower bound of the range (inclusive)
+     * @param upperBound the upper bound of the range (inclusive)
+     * @return a first set
+     */
+    public static FirstSet range(final int lowerBound, final int upperBound)
+    {
+        long low = 0L;
+        long high = 0L;
+
+        final int end = Math.min(upperBound, ASCII_SIZE - 1);
+
+        for (int c = Math.max(lowerBound, 0); c <= end; c++)
+            if (c < 64)
+                low |= 1L << c;
+            else
+                high |= 1L << c;
+
+        return new FirstSet(low, high, false);
+    }
+
+    /**
+     * Return the first set of a matcher matching one character in a set
+     *
+     * @param characters the characters
+     * @return a first set
+     */
+    public static FirstSet of(final Characters characters)
+    {
+        long low = 0L;
+        long high = 0L;
+
+        for (char c = 0; c < ASCII_SIZE; c++)
+            if (characters.contains(c))
+                if (c < 64)
+                    low |= 1L << c;
+                else
+                    high |= 1L << c;
+
+        return new FirstSet(low, high, false);
+    }
+
+    private FirstSet(final long low, final long high, final boolean nullable)
+    {
+        this.low = low;
+        this.high = high;
+        this.nullable = nullable;
+    }
+
+    /**
+     * Tell whether the matcher may succeed without consuming any input,
+     * whatever the current character
+     *
+     * @return true if nullable
+     */
+    public boolean isNullable()
+    {
+        return nullable;
+    }
+
+    /**
+     * Tell whether a match may start with the given character
+     *
+     * <p>This is always true for a nullable set, and for non ASCII
+     * characters.</p>
+     *
+     * @param c the character
+     * @return false if a match is guaranteed to fail at this character
+     */
+    public boolean mayStartWith(final char c)
+    {
+        if (nullable || c >= ASCII_SIZE)
+            return true;
+        return ((c < 64 ? low : high) & 1L << c) != 0L;
+    }
+
+    /**
+     * Tell whether a match is guaranteed to fail at the current position of a
+     * context
+     *
+     * <p>Nothing is assumed at the end of input.</p>
+     *
+     * @param context the context
+     * @return true if the match is guaranteed to fail
+     */
+    public boolean excludes(final MatcherContext<?> context)
+    {
+        return !nullable && !context.atEnd()
+            && !mayStartWith(context.getCurrentChar());
+    }
+
+    /**
+     * Return the union of this set and another set
+     *
+     * @param other the other set
+     * @return the union
+     */
+    public FirstSet union(final FirstSet other)
+    {
+        return create(low | other.low, high | other.high,
+            nullable || other.nullable);
+    }
+
+    /**
+     * Return the first set of a sequence made of this matcher followed by
+     * another
+     *
+     * @param next the first set of the next matcher
+     * @return a new first set
+     */
+    public FirstSet followedBy(final FirstSet next)
+    {
+        return nullable ? union(next).withNullable(next.nullable) : this;
+    }
+
+    /**
+     * Return a copy of this set with the given nullability
+     *
+     * @param nullable the nullability
+     * @return a new set
+     */
+    public FirstSet withNullable(final boolean nullable)
+    {
+        return create(low, high, nullable);
+    }
+
+    private FirstSet create(final long low, final long high,
+        final boolean nullable)
+    {
+        if (low == this.low && high == this.high && nullable == this.nullable)
+            return this;
+        return new FirstSet(low, high, nullable);
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        final FirstSet other = (FirstSet) obj;
+        return low == other.low && high == other.high
+            && nullable == other.nullable;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Long.hashCode(low ^ high) + Boolean.hashCode(nullable);
+    }
+}
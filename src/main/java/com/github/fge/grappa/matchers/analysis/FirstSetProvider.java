@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.analysis;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+
+import java.util.function.Function;
+
+/**
+ * A matcher able to compute its {@link FirstSet}
+ *
+ * <p>Matchers not implementing this interface are assumed to have an {@link
+ * FirstSet#UNKNOWN unknown} first set.</p>
+ *
+ * @see FirstSets
+ */
+@FunctionalInterface
+public interface FirstSetProvider
+{
+    /**
+     * Compute the first set of this matcher
+     *
+     * <p>Since rule graphs can be recursive, the first sets of the children
+     * given by the function may only be approximations (subsets) of their
+     * final values; implementations must therefore only combine them, which
+     * guarantees that the computation converges.</p>
+     *
+     * @param firstSets the first sets of the children of this matcher
+     * @return the first set of this matcher
+     */
+    FirstSet getFirstSet(Function<Matcher, FirstSet> firstSets);
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.analysis;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Computes the {@link FirstSet}s of matchers
+ *
+ * <p>The first set of a matcher depends on the first sets of all matchers
+ * reachable from it; they are computed all at once, by iterating over this
+ * rule graph until a fixed point is reached, and cached.</p>
+ *
+ * <p>Matchers which do not implement {@link FirstSetProvider} have an {@link
+ * FirstSet#UNKNOWN unknown} first set. So does a {@link ProxyMatcher} without
+ * a target, which means first sets should only be computed on fully built rule
+ * graphs.</p>
+ */
+public final class FirstSets
+{
+    /*
+     * Matchers are compared by identity, and entries do not prevent them from
+     * being garbage collected.
+     */
+    private static final Cache<Matcher, FirstSet> CACHE
+        = CacheBuilder.newBuilder().weakKeys().build();
+
+    private FirstSets()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Get the first set of a matcher
+     *
+     * @param matcher the matcher
+     * @return the first set
+     */
+    @Nonnull
+    public static FirstSet of(@Nonnull final Matcher matcher)
+    {
+        Objects.requireNonNull(matcher);
+
+        final Matcher unwrapped = WrappedMatchers.unwrap(matcher);
+
+        final FirstSet ret = CACHE.getIfPresent(unwrapped);
+        if (ret != null)
+            return ret;
+
+        final Map<Matcher, FirstSet> sets = compute(unwrapped);
+        CACHE.putAll(sets);
+        return sets.get(unwrapped);
+    }
+
+    private static Map<Matcher, FirstSet> compute(final Matcher root)
+    {
+        final Map<Matcher, FirstSet> sets = new IdentityHashMap<>();
+        final List<Matcher> providers = new ArrayList<>();
+        final Deque<Matcher> toVisit = new ArrayDeque<>();
+
+        toVisit.push(root);
+
+        Matcher matcher;
+        FirstSet set;
+
+        while (!toVisit.isEmpty()) {
+            matcher = WrappedMatchers.unwrap(toVisit.pop());
+            if (sets.containsKey(matcher))
+                continue;
+            set = CACHE.getIfPresent(matcher);
+            if (set != null) {
+                sets.put(matcher, set);
+                continue;
+            }
+            if (matcher instanceof FirstSetProvider) {
+                sets.put(matcher, FirstSet.NONE);
+                providers.add(matcher);
+                for (final Matcher child: matcher.getChildren())
+                    toVisit.push(child);
+            } else
+                sets.put(matcher, FirstSet.UNKNOWN);
+        }
+
+        final Function<Matcher, FirstSet> lookup
+            = child -> sets.get(WrappedMatchers.unwrap(child));
+
+        boolean changed;
+
+        do {
+            changed = false;
+            for (final Matcher provider: providers) {
+                set = ((FirstSetProvider) provider).getFirstSet(lookup);
+                if (!set.equals(sets.put(provider, set)))
+                    changed = true;
+            }
+        } while (changed);
+
+        return sets;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.analysis;
+
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.trie.MappedTrieMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.stack.ValueStack;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Determines whether a matcher graph can modify the value stack
+ *
+ * <p>A matcher is said to be stack neutral if neither it nor any matcher
+ * reachable from it can push, pop or otherwise modify values on the {@link
+ * ValueStack}. Matchers which only ever run stack neutral children do not need
+ * to take a snapshot of the stack in order to be able to restore it on
+ * failure.</p>
+ *
+ * <p>The analysis is conservative: a graph is only considered stack neutral
+ * if it contains no {@link MatcherType#ACTION action} at all (whether or not
+ * said action actually uses the stack), and only matchers defined by this
+ * package hierarchy; any other matcher implementation is assumed to modify the
+ * stack. The only matchers of this package hierarchy which modify the stack
+ * by themselves are {@link MappedTrieMatcher}s pushing their values.</p>
+ *
+ * <p>Note that the analysis should only be performed on a fully built graph,
+ * since a {@link ProxyMatcher} without a target is also assumed to modify the
+ * stack.</p>
+ */
+public final class StackNeutrality
+{
+    private static final String MATCHERS_PACKAGE
+        = MatcherType.class.getPackage().getName() + '.';
+
+    private StackNeutrality()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Tell whether a matcher, and all matchers reachable from it, are stack
+     * neutral
+     *
+     * @param matcher the matcher
+     * @return true if the matcher is stack neutral
+     */
+    public static boolean isNeutral(@Nonnull final Matcher matcher)
+    {
+        Objects.requireNonNull(matcher);
+        return allNeutral(Collections.singletonList(matcher));
+    }
+
+    /**
+     * Tell whether all the given matchers are stack neutral
+     *
+     * @param matchers the matchers
+     * @return true if all matchers are stack neutral
+     *
+     * @see #isNeutral(Matcher)
+     */
+    public static boolean allNeutral(
+        @Nonnull final Iterable<? extends Matcher> matchers)
+    {
+        final Set<Matcher> visited
+            = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<Matcher> toVisit = new ArrayDeque<>();
+
+        for (final Matcher matcher: matchers)
+            toVisit.push(Objects.requireNonNull(matcher));
+
+        Matcher current;
+
+        while (!toVisit.isEmpty()) {
+            current = WrappedMatchers.unwrap(toVisit.pop());
+            if (!visited.add(current))
+                continue;
+            if (!isNeutralNode(current))
+                return false;
+            for (final Matcher child: current.getChildren())
+                toVisit.push(child);
+        }
+
+        return true;
+    }
+
+    private static boolean isNeutralNode(final Matcher matcher)
+    {
+        if (matcher instanceof ProxyMatcher)
+            return false;
+        if (matcher.getType() == MatcherType.ACTION)
+            return false;
+        if (matcher instanceof MappedTrieMatcher)
+            return !((MappedTrieMatcher<?>) matcher).pushesValues();
+        return matcher.getClass().getName().startsWith(MATCHERS_PACKAGE);
+    }
+}
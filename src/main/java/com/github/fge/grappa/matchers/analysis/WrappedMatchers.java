@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.analysis;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.MemoizingMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.matchers.wrap.VarFramingMatcher;
+
+/*
+ * Wrapping matchers have no influence on the analyses in this package, which
+ * therefore consider the matchers they wrap instead.
+ */
+final class WrappedMatchers
+{
+    private WrappedMatchers()
+    {
+        throw new Error("nice try!");
+    }
+
+    static Matcher unwrap(final Matcher matcher)
+    {
+        Matcher ret = matcher;
+        Matcher previous;
+
+        do {
+            previous = ret;
+            ret = ProxyMatcher.unwrap(ret);
+            ret = VarFramingMatcher.unwrap(ret);
+            ret = MemoizingMatcher.unwrap(ret);
+        } while (ret != previous);
+
+        return ret;
+    }
+}
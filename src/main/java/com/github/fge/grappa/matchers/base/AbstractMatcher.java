@@ -97,6 +97,22 @@ public abstract class AbstractMatcher
         return context.getSubContext(this);
     }
 
+    /**
+     * Give another matcher the same label as this matcher
+     *
+     * <p>This is meant to be used by matchers creating copies of
+     * themselves.</p>
+     *
+     * @param matcher the other matcher
+     * @param <M> the type of the other matcher
+     * @return the other matcher
+     */
+    protected final <M extends AbstractMatcher> M copyLabelTo(final M matcher)
+    {
+        ((AbstractMatcher) matcher).label = label;
+        return matcher;
+    }
+
     // creates a shallow copy
     private AbstractMatcher createClone()
     {
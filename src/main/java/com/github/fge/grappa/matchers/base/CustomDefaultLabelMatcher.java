@@ -16,14 +16,33 @@
 
 package com.github.fge.grappa.matchers.base;
 
+import com.github.fge.grappa.matchers.analysis.DirectTerminals;
+import com.github.fge.grappa.matchers.analysis.StackNeutrality;
 import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
 
 // TODO: remove
 public abstract class CustomDefaultLabelMatcher<T extends CustomDefaultLabelMatcher<T>>
     extends AbstractMatcher
 {
+    private static final int UNKNOWN = 0;
+    private static final int NEUTRAL = 1;
+    private static final int NOT_NEUTRAL = 2;
+
     private final String defaultLabel;
 
+    /*
+     * Computed on first use, when the rule graph is complete; concurrent
+     * computations all yield the same result, so no synchronization is needed.
+     */
+    private int childrenNeutrality = UNKNOWN;
+
+    /*
+     * Computed on first use as well; a thread which does not see all the
+     * elements of the array only runs more children in a subcontext.
+     */
+    private boolean[] directChildren = null;
+
     protected CustomDefaultLabelMatcher(final Rule subRule,
         final String defaultLabel)
     {
@@ -49,4 +68,50 @@ public abstract class CustomDefaultLabelMatcher<T extends CustomDefaultLabelMatc
     {
         return super.getLabel() != null;
     }
+
+    /**
+     * Tell whether the children of this matcher are all stack neutral
+     *
+     * <p>When this is the case, this matcher does not need to take snapshots
+     * of the value stack, since its children never modify it.</p>
+     *
+     * @return true if all children are stack neutral
+     *
+     * @see StackNeutrality
+     */
+    protected final boolean childrenAreStackNeutral()
+    {
+        int neutrality = childrenNeutrality;
+
+        if (neutrality == UNKNOWN) {
+            neutrality = StackNeutrality.allNeutral(getChildren())
+                ? NEUTRAL : NOT_NEUTRAL;
+            childrenNeutrality = neutrality;
+        }
+
+        return neutrality == NEUTRAL;
+    }
+
+    /**
+     * Tell which children of this matcher can run directly against its
+     * context
+     *
+     * <p>Such children are run using {@link
+     * MatcherContext#runTerminal(Matcher)} instead of a subcontext.</p>
+     *
+     * @return an array with one element per child
+     *
+     * @see DirectTerminals
+     */
+    protected final boolean[] directChildren()
+    {
+        boolean[] ret = directChildren;
+
+        if (ret == null) {
+            ret = DirectTerminals.ofChildren(getChildren());
+            directChildren = ret;
+        }
+
+        return ret;
+    }
 }
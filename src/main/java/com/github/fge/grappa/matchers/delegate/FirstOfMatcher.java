@@ -17,13 +17,23 @@
 package com.github.fge.grappa.matchers.delegate;
 
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.DirectTerminals;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
+import com.github.fge.grappa.matchers.analysis.FirstSets;
 import com.github.fge.grappa.matchers.base.CustomDefaultLabelMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * A {@link Matcher} trying all of its submatchers in order and succeeding when
@@ -42,10 +52,21 @@ import java.util.Objects;
  *
  * <p>if {@code rule1()} succeeds, then {@code rule2()} will not be attempted
  * even if it could potentially match more input text.</p>
+ *
+ * <p>Submatchers whose {@link FirstSet first set} excludes the current
+ * character are not attempted either, since they are guaranteed to fail
+ * (unless the context does not allow it; see {@link
+ * MatcherContext#maySkipMatchers()}). Only ASCII characters are dispatched
+ * this way: at any other character, as well as at the end of input, all
+ * submatchers are attempted in order.</p>
  */
 public final class FirstOfMatcher
     extends CustomDefaultLabelMatcher<FirstOfMatcher>
+    implements FirstSetProvider, RebuildableMatcher
 {
+    // computed on first use, when the rule graph is complete
+    private Dispatch dispatch = null;
+
     public FirstOfMatcher(final Rule[] subRules)
     {
         super(Objects.requireNonNull(subRules, "subRules"), "firstOf");
@@ -60,9 +81,100 @@ public final class FirstOfMatcher
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
-        for (final Matcher matcher: getChildren())
-            if (matcher.getSubContext(context).runMatcher())
+        Dispatch table = dispatch;
+
+        if (table == null) {
+            table = new Dispatch(getChildren());
+            dispatch = table;
+        }
+
+        Matcher matcher;
+
+        for (final int index: table.candidates(context)) {
+            matcher = table.children[index];
+            if (table.direct[index] ? context.runTerminal(matcher)
+                : matcher.getSubContext(context).runMatcher())
                 return true;
+        }
         return false;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        FirstSet ret = FirstSet.NONE;
+
+        for (final Matcher child: getChildren())
+            ret = ret.union(firstSets.apply(child));
+
+        return ret;
+    }
+
+    /*
+     * For each ASCII character, the indices of the children which may match at
+     * this character, in order; other children are guaranteed to fail without
+     * effect, and need not be tried.
+     *
+     * Since children are alternatives, an action never accesses the match of
+     * another child; all terminals defined by grappa can therefore run
+     * directly against the context of this matcher.
+     */
+    private static final class Dispatch
+    {
+        private static final int ASCII_SIZE = 128;
+
+        private final Matcher[] children;
+        private final boolean[] direct;
+        private final int[] all;
+        private final int[][] byChar = new int[ASCII_SIZE][];
+
+        private Dispatch(final List<Matcher> list)
+        {
+            children = list.toArray(new Matcher[list.size()]);
+
+            final int nrChildren = children.length;
+            final FirstSet[] firstSets = new FirstSet[nrChildren];
+
+            direct = new boolean[nrChildren];
+            all = new int[nrChildren];
+
+            for (int i = 0; i < nrChildren; i++) {
+                firstSets[i] = FirstSets.of(children[i]);
+                direct[i] = DirectTerminals.isDirect(children[i]);
+                all[i] = i;
+            }
+
+            // characters with the same candidates share the same array
+            final Map<BitSet, int[]> arrays = new HashMap<>();
+
+            BitSet candidates;
+
+            for (char c = 0; c < ASCII_SIZE; c++) {
+                candidates = new BitSet(nrChildren);
+                for (int i = 0; i < nrChildren; i++)
+                    if (firstSets[i].mayStartWith(c))
+                        candidates.set(i);
+                byChar[c] = arrays.computeIfAbsent(candidates,
+                    bits -> bits.stream().toArray());
+            }
+        }
+
+        private int[] candidates(final MatcherContext<?> context)
+        {
+            if (!context.maySkipMatchers() || context.atEnd())
+                return all;
+
+            final char c = context.getCurrentChar();
+
+            return c < ASCII_SIZE ? byChar[c] : all;
+        }
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        final FirstOfMatcher ret = new FirstOfMatcher(
+            children.toArray(new Rule[children.size()]));
+        return copyLabelTo(ret);
+    }
 }
@@ -17,12 +17,18 @@
 package com.github.fge.grappa.matchers.delegate;
 
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
+import com.github.fge.grappa.matchers.analysis.FirstSets;
 import com.github.fge.grappa.matchers.base.CustomDefaultLabelMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * A {@link Matcher} that tries its submatcher once against the input and always
@@ -30,9 +36,13 @@ import java.util.Objects;
  */
 public final class OptionalMatcher
     extends CustomDefaultLabelMatcher<OptionalMatcher>
+    implements FirstSetProvider, RebuildableMatcher
 {
     private final Matcher subMatcher;
 
+    // computed on first use, when the rule graph is complete
+    private FirstSet subFirstSet = null;
+
     public OptionalMatcher(final Rule subRule)
     {
         super(Objects.requireNonNull(subRule, "subRule"), "optional");
@@ -48,7 +58,32 @@ public final class OptionalMatcher
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
-        subMatcher.getSubContext(context).runMatcher();
+        FirstSet firstSet = subFirstSet;
+
+        if (firstSet == null) {
+            firstSet = FirstSets.of(subMatcher);
+            subFirstSet = firstSet;
+        }
+
+        if (context.maySkipMatchers() && firstSet.excludes(context))
+            return true;
+
+        if (directChildren()[0])
+            context.runTerminal(subMatcher);
+        else
+            subMatcher.getSubContext(context).runMatcher();
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return firstSets.apply(subMatcher).withNullable(true);
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        return copyLabelTo(new OptionalMatcher(children.get(0)));
+    }
 }
@@ -17,14 +17,19 @@
 package com.github.fge.grappa.matchers.delegate;
 
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.CustomDefaultLabelMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.stack.ValueStack;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * A {@link Matcher} that executes all of its submatchers in sequence and only
@@ -37,6 +42,7 @@ import java.util.Objects;
  */
 public final class SequenceMatcher
     extends CustomDefaultLabelMatcher<SequenceMatcher>
+    implements FirstSetProvider, RebuildableMatcher
 {
     public SequenceMatcher(final Rule[] subRules)
     {
@@ -52,16 +58,55 @@ public final class SequenceMatcher
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
+        if (childrenAreStackNeutral())
+            return matchChildren(context);
+
         final ValueStack<V> stack = context.getValueStack();
         final Object snapshot = stack.takeSnapshot();
 
-        for (final Matcher matcher: getChildren()) {
-            if (matcher.getSubContext(context).runMatcher())
-                continue;
+        if (matchChildren(context))
+            return true;
+
+        stack.restoreSnapshot(snapshot);
+        return false;
+    }
+
+    private <V> boolean matchChildren(final MatcherContext<V> context)
+    {
+        final List<Matcher> children = getChildren();
+        final boolean[] direct = directChildren();
+        final int size = direct.length;
 
-            stack.restoreSnapshot(snapshot);
-            return false;
+        Matcher matcher;
+
+        for (int i = 0; i < size; i++) {
+            matcher = children.get(i);
+            if (!(direct[i] ? context.runTerminal(matcher)
+                : matcher.getSubContext(context).runMatcher()))
+                return false;
         }
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        FirstSet ret = FirstSet.EMPTY;
+
+        for (final Matcher child: getChildren()) {
+            ret = ret.followedBy(firstSets.apply(child));
+            if (!ret.isNullable())
+                break;
+        }
+
+        return ret;
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        final SequenceMatcher ret = new SequenceMatcher(
+            children.toArray(new Rule[children.size()]));
+        return copyLabelTo(ret);
+    }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.dfa;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+
+/**
+ * A table driven deterministic automaton matching a regular subgraph
+ *
+ * <p>Characters are partitioned into classes, all characters of a class
+ * having the same transitions from all states. Below 128, the class of a
+ * character is looked up in a table; above, by a binary search over the runs
+ * of consecutive characters in the same class.</p>
+ *
+ * <p>A transition also records whether the match ends at the index it
+ * reaches, should the automaton stop afterwards; the automaton stops either
+ * in a state where the match is decided, at the end of input, or when no
+ * transition exists for the current character.</p>
+ *
+ * @see DfaBuilder
+ */
+@Immutable
+final class Dfa
+{
+    /**
+     * The transition to (or the index of) no state at all
+     */
+    static final int DEAD = -1;
+
+    private static final int ASCII_SIZE = 128;
+
+    private final int nrClasses;
+    private final int[] asciiClasses;
+    private final char[] runStarts;
+    private final int[] runClasses;
+
+    // the target state shifted left by one, and the mark in the lowest bit
+    private final int[] transitions;
+    private final boolean[] decided;
+    private final boolean[] accepting;
+    private final boolean initialMark;
+
+    /**
+     * Constructor
+     *
+     * @param classes the class of each character
+     * @param nrClasses the number of classes
+     * @param transitions the transitions, indexed by state times the number
+     * of classes plus class, encoded as described above
+     * @param decided the states in which the match is decided
+     * @param accepting the states in which the match succeeds at the end of
+     * input
+     * @param initialMark whether the match ends at the start index if the
+     * automaton stops in its initial state
+     */
+    Dfa(final int[] classes, final int nrClasses, final int[] transitions,
+        final boolean[] decided, final boolean[] accepting,
+        final boolean initialMark)
+    {
+        this.nrClasses = nrClasses;
+        asciiClasses = Arrays.copyOf(classes, ASCII_SIZE);
+        this.transitions = transitions;
+        this.decided = decided;
+        this.accepting = accepting;
+        this.initialMark = initialMark;
+
+        int nrRuns = 1;
+        for (int c = ASCII_SIZE + 1; c < classes.length; c++)
+            if (classes[c] != classes[c - 1])
+                nrRuns++;
+
+        runStarts = new char[nrRuns];
+        runClasses = new int[nrRuns];
+        runStarts[0] = (char) ASCII_SIZE;
+        runClasses[0] = classes[ASCII_SIZE];
+
+        int run = 0;
+        for (int c = ASCII_SIZE + 1; c < classes.length; c++)
+            if (classes[c] != classes[c - 1]) {
+                run++;
+                runStarts[run] = (char) c;
+                runClasses[run] = classes[c];
+            }
+    }
+
+    /**
+     * Match this automaton against an input buffer
+     *
+     * @param buffer the buffer
+     * @param start the index to start matching from
+     * @return the index at which the match ends, or -1 if it fails
+     */
+    int match(final InputBuffer buffer, final int start)
+    {
+        final int length = buffer.length();
+        int end = initialMark ? start : -1;
+        int state = 0;
+        int index = start;
+        int transition;
+
+        while (!decided[state]) {
+            if (index >= length)
+                return accepting[state] ? end : -1;
+            transition = transitions[state * nrClasses
+                + classOf(buffer.charAt(index++))];
+            if (transition == DEAD)
+                return -1;
+            if ((transition & 1) != 0)
+                end = index;
+            state = transition >>> 1;
+        }
+
+        return end;
+    }
+
+    /**
+     * Tell whether a match may succeed without consuming any input
+     *
+     * @return true if this is the case
+     */
+    boolean isNullable()
+    {
+        return initialMark;
+    }
+
+    /**
+     * Tell whether a match may start with a given character
+     *
+     * @param c the character
+     * @return true if this is the case
+     */
+    boolean mayStartWith(final char c)
+    {
+        return decided[0] || transitions[classOf(c)] != DEAD;
+    }
+
+    private int classOf(final char c)
+    {
+        if (c < ASCII_SIZE)
+            return asciiClasses[c];
+
+        int low = 0;
+        int high = runStarts.length - 1;
+        int middle;
+
+        // find the last run starting at or before the character
+        while (low < high) {
+            middle = (low + high + 1) >>> 1;
+            if (runStarts[middle] <= c)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+
+        return runClasses[low];
+    }
+}
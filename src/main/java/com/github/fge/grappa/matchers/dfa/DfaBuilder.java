@@ -0,0 +1,520 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.dfa;
+
+import com.github.fge.grappa.support.Characters;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Builds a {@link Dfa} from a {@link Node}, preserving PEG semantics
+ *
+ * <p>Each state of the automaton is the ordered list of the paths a
+ * backtracking matcher could still follow at this point, highest priority
+ * first. A path is the stack of the nodes left to match, interleaved with
+ * cuts. Matching the first node of an alternative pushes a cut after it, and
+ * tags the paths of its second node; when a path reaches this cut, the first
+ * node has succeeded, and the tagged paths are discarded. A star is matched
+ * as an alternative between one more cycle and the end of the repetition;
+ * since a cycle always consumes input, the cut is placed right after the
+ * cycle.</p>
+ *
+ * <p>A path reaching a cut while still tagged by a pending alternative nested
+ * in the first node has only succeeded tentatively: a path of higher priority
+ * in the nested alternative may still discard it, and then fail. The paths
+ * tagged by the cut must then be tried again, which an automaton cannot do,
+ * and the build fails, unless nothing between the two cuts can fail. Tags
+ * are numbered in order of creation, so that these nested tags are those
+ * greater than the cut.</p>
+ *
+ * <p>A path with no nodes left has finished; if no cut can discard it any
+ * more, it wins over all the paths after it. When two finished paths have to
+ * be kept in the same state, the match could end at either of them depending
+ * on the input to come: such nodes cannot be matched by an automaton which
+ * only records the last end position, and the build fails. It also fails if
+ * the automaton has more than {@link #MAX_STATES} states.</p>
+ */
+final class DfaBuilder
+{
+    /**
+     * The maximum number of states of an automaton
+     */
+    static final int MAX_STATES = 512;
+
+    private static final int NR_CHARS = Character.MAX_VALUE + 1;
+    private static final int[] NO_TAGS = new int[0];
+
+    private final Node root;
+
+    private final Map<List<Path>, Integer> stateIds = new HashMap<>();
+    private final List<List<Path>> states = new ArrayList<>();
+
+    private DfaBuilder(final Node root)
+    {
+        this.root = root;
+    }
+
+    /**
+     * Build an automaton for a node
+     *
+     * @param root the node
+     * @return the automaton, or null if the node cannot be compiled
+     */
+    @Nullable
+    static Dfa build(final Node root)
+    {
+        return new DfaBuilder(root).build();
+    }
+
+    @Nullable
+    private Dfa build()
+    {
+        final List<Characters> sets = new ArrayList<>(collectCharacters());
+        final int[] classes = new int[NR_CHARS];
+        final List<Character> representatives = new ArrayList<>();
+        final Map<BitSet, Integer> classIds = new HashMap<>();
+
+        for (int c = 0; c < NR_CHARS; c++) {
+            final BitSet signature = new BitSet(sets.size());
+            for (int i = 0; i < sets.size(); i++)
+                if (sets.get(i).contains((char) c))
+                    signature.set(i);
+            Integer id = classIds.get(signature);
+            if (id == null) {
+                id = representatives.size();
+                classIds.put(signature, id);
+                representatives.add((char) c);
+            }
+            classes[c] = id;
+        }
+
+        final Closure initial = new Closure(0);
+        initial.expand(new Object[] { root }, NO_TAGS, true);
+
+        if (initial.tentative)
+            return null;
+
+        final List<Path> initialState = normalize(initial.paths);
+        if (initialState == null)
+            return null;
+
+        final boolean initialMark = hasFreshPath(initialState);
+        addState(initialState);
+
+        final int nrClasses = representatives.size();
+        final List<int[]> rows = new ArrayList<>();
+        List<Path> state;
+
+        for (int id = 0; id < states.size(); id++) {
+            state = states.get(id);
+            final int[] row = new int[nrClasses];
+            Arrays.fill(row, Dfa.DEAD);
+            rows.add(row);
+            if (isDecided(state))
+                continue;
+            for (int cl = 0; cl < nrClasses; cl++) {
+                final List<Path> target
+                    = advance(state, representatives.get(cl));
+                if (target == null)
+                    return null;
+                if (target.isEmpty())
+                    continue;
+                final int targetId = addState(target);
+                if (targetId == -1)
+                    return null;
+                row[cl] = targetId << 1 | (hasFreshPath(target) ? 1 : 0);
+            }
+        }
+
+        final int nrStates = states.size();
+        final int[] transitions = new int[nrStates * nrClasses];
+        final boolean[] decided = new boolean[nrStates];
+        final boolean[] accepting = new boolean[nrStates];
+
+        for (int id = 0; id < nrStates; id++) {
+            System.arraycopy(rows.get(id), 0, transitions, id * nrClasses,
+                nrClasses);
+            state = states.get(id);
+            decided[id] = isDecided(state);
+            for (final Path path: state)
+                accepting[id] |= path.isFinished();
+        }
+
+        return new Dfa(classes, nrClasses, transitions, decided, accepting,
+            initialMark);
+    }
+
+    private Set<Characters> collectCharacters()
+    {
+        final Set<Characters> ret = new LinkedHashSet<>();
+        final Set<Node> visited
+            = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<Node> toVisit = new ArrayList<>();
+        Node node;
+
+        toVisit.add(root);
+
+        while (!toVisit.isEmpty()) {
+            node = toVisit.remove(toVisit.size() - 1);
+            if (!visited.add(node))
+                continue;
+            if (node instanceof Node.Chars) {
+                ret.add(((Node.Chars) node).characters);
+            } else if (node instanceof Node.Seq) {
+                toVisit.add(((Node.Seq) node).first);
+                toVisit.add(((Node.Seq) node).second);
+            } else if (node instanceof Node.Alt) {
+                toVisit.add(((Node.Alt) node).first);
+                toVisit.add(((Node.Alt) node).second);
+            } else if (node instanceof Node.Star) {
+                toVisit.add(((Node.Star) node).body);
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * Returns the index of the state, or -1 if there are too many states
+     */
+    private int addState(final List<Path> state)
+    {
+        final Integer id = stateIds.get(state);
+        if (id != null)
+            return id;
+
+        final int ret = states.size();
+        if (ret == MAX_STATES)
+            return -1;
+
+        states.add(state);
+        stateIds.put(state, ret);
+        return ret;
+    }
+
+    /*
+     * Finished paths are carried over as is; only the other paths consume the
+     * character.
+     */
+    @Nullable
+    private static List<Path> advance(final List<Path> state, final char c)
+    {
+        final Closure closure = new Closure(nextTag(state));
+
+        for (final Path path: state)
+            if (path.isFinished())
+                closure.expand(path.items, path.tags, false);
+            else if (((Node.Chars) path.head()).characters.contains(c))
+                closure.expand(pop(path.items), path.tags, true);
+
+        return closure.tentative ? null : normalize(closure.paths);
+    }
+
+    /*
+     * Drop the tags no cut can fire any more, then all the paths following
+     * a finished path without tags, until nothing changes; then drop
+     * duplicates and renumber tags, keeping their order, so that equivalent
+     * states are equal.
+     */
+    @Nullable
+    private static List<Path> normalize(final List<Path> paths)
+    {
+        List<Path> ret = paths;
+        List<Path> next;
+        Set<Integer> cuts;
+        Path retained;
+
+        while (true) {
+            cuts = new HashSet<>();
+            for (final Path path: ret)
+                for (final Object item: path.items)
+                    if (item instanceof Integer)
+                        cuts.add((Integer) item);
+            next = new ArrayList<>(ret.size());
+            for (final Path path: ret) {
+                retained = path.retainTags(cuts);
+                next.add(retained);
+                if (retained.isFinished() && retained.tags.length == 0)
+                    break;
+            }
+            if (next.size() == ret.size()) {
+                ret = next;
+                break;
+            }
+            ret = next;
+        }
+
+        ret = new ArrayList<>(new LinkedHashSet<>(ret));
+
+        int nrFinished = 0;
+        for (final Path path: ret)
+            if (path.isFinished())
+                nrFinished++;
+
+        if (nrFinished > 1)
+            return null;
+
+        final Set<Integer> tags = new TreeSet<>();
+
+        for (final Path path: ret) {
+            for (final Object item: path.items)
+                if (item instanceof Integer)
+                    tags.add((Integer) item);
+            for (final int tag: path.tags)
+                tags.add(tag);
+        }
+
+        final Map<Integer, Integer> renumbered = new HashMap<>();
+        final List<Path> normalized = new ArrayList<>(ret.size());
+
+        for (final Integer tag: tags)
+            renumbered.put(tag, renumbered.size());
+
+        for (final Path path: ret)
+            normalized.add(path.renumber(renumbered));
+
+        return normalized;
+    }
+
+    private static boolean isDecided(final List<Path> state)
+    {
+        return !state.isEmpty() && state.get(0).isFinished();
+    }
+
+    private static boolean hasFreshPath(final List<Path> state)
+    {
+        for (final Path path: state)
+            if (path.isFinished())
+                return path.fresh;
+        return false;
+    }
+
+    private static int nextTag(final List<Path> state)
+    {
+        int ret = 0;
+
+        for (final Path path: state) {
+            for (final Object item: path.items)
+                if (item instanceof Integer)
+                    ret = Math.max(ret, (Integer) item + 1);
+            for (final int tag: path.tags)
+                ret = Math.max(ret, tag + 1);
+        }
+
+        return ret;
+    }
+
+    private static Object[] pop(final Object[] items)
+    {
+        return Arrays.copyOf(items, items.length - 1);
+    }
+
+    private static Object[] push(final Object[] items, final Object... added)
+    {
+        final Object[] ret = Arrays.copyOf(items, items.length + added.length);
+        System.arraycopy(added, 0, ret, items.length, added.length);
+        return ret;
+    }
+
+    private static int[] withTag(final int[] tags, final int tag)
+    {
+        final int[] ret = Arrays.copyOf(tags, tags.length + 1);
+        ret[tags.length] = tag;
+        return ret;
+    }
+
+    /*
+     * The paths reached from a list of seeds, in priority order
+     */
+    private static final class Closure
+    {
+        private final List<Path> paths = new ArrayList<>();
+        private final Set<Integer> fired = new HashSet<>();
+        private int nextTag;
+        // whether a cut was reached by a tentatively successful path
+        private boolean tentative = false;
+
+        private Closure(final int nextTag)
+        {
+            this.nextTag = nextTag;
+        }
+
+        /*
+         * Paths of the first node of an alternative (or of a cycle) are all
+         * expanded before those of the second node (or the end of the
+         * repetition); a cut is therefore always fired before any path it
+         * discards is expanded.
+         */
+        private void expand(final Object[] items, final int[] tags,
+            final boolean fresh)
+        {
+            for (final int tag: tags)
+                if (fired.contains(tag))
+                    return;
+
+            Object[] stack = items;
+            Object head;
+            int tag;
+
+            while (stack.length > 0) {
+                head = stack[stack.length - 1];
+                if (head instanceof Integer) {
+                    for (final int pathTag: tags)
+                        if (pathTag > (Integer) head
+                            && mayPreempt(pathTag, (Integer) head))
+                            tentative = true;
+                    fired.add((Integer) head);
+                    stack = pop(stack);
+                } else if (head == Node.EPSILON) {
+                    stack = pop(stack);
+                } else if (head == Node.FAIL) {
+                    return;
+                } else if (head instanceof Node.Chars) {
+                    paths.add(new Path(stack, tags, false));
+                    return;
+                } else if (head instanceof Node.Seq) {
+                    final Node.Seq seq = (Node.Seq) head;
+                    stack = push(pop(stack), seq.second, seq.first);
+                } else if (head instanceof Node.Alt) {
+                    final Node.Alt alt = (Node.Alt) head;
+                    tag = nextTag++;
+                    expand(push(pop(stack), tag, alt.first), tags, true);
+                    expand(push(pop(stack), alt.second), withTag(tags, tag),
+                        true);
+                    return;
+                } else {
+                    final Node.Star star = (Node.Star) head;
+                    tag = nextTag++;
+                    expand(push(pop(stack), star, tag, star.body), tags, true);
+                    expand(pop(stack), withTag(tags, tag), true);
+                    return;
+                }
+            }
+
+            paths.add(new Path(stack, tags, fresh));
+        }
+
+        /*
+         * Whether a path holding a nested cut may fire it, then fail before
+         * reaching the outer cut. Paths holding a cut have a higher priority
+         * than the paths it discards, and are therefore expanded before them.
+         * A nullable node never fails.
+         */
+        private boolean mayPreempt(final int nested, final int outer)
+        {
+            for (final Path path: paths) {
+                final List<Object> items = Arrays.asList(path.items);
+                final int from = items.indexOf(outer);
+                final int to = items.indexOf(nested);
+                if (to == -1)
+                    continue;
+                if (from == -1)
+                    return true;
+                for (final Object item: items.subList(from + 1, to))
+                    if (item instanceof Node && !((Node) item).nullable)
+                        return true;
+            }
+            return false;
+        }
+    }
+
+    /*
+     * The items of a path are nodes and cuts (integers), the next one to
+     * match last. Whether a finished path has finished at the current index
+     * is not part of its identity.
+     */
+    private static final class Path
+    {
+        private final Object[] items;
+        private final int[] tags;
+        private final boolean fresh;
+
+        private Path(final Object[] items, final int[] tags,
+            final boolean fresh)
+        {
+            this.items = items;
+            this.tags = tags;
+            this.fresh = fresh;
+        }
+
+        private boolean isFinished()
+        {
+            return items.length == 0;
+        }
+
+        private Object head()
+        {
+            return items[items.length - 1];
+        }
+
+        private Path retainTags(final Set<Integer> cuts)
+        {
+            final int[] retained = Arrays.stream(tags)
+                .filter(cuts::contains).toArray();
+            return retained.length == tags.length ? this
+                : new Path(items, retained, fresh);
+        }
+
+        private Path renumber(final Map<Integer, Integer> renumbered)
+        {
+            final Object[] newItems = new Object[items.length];
+
+            for (int i = 0; i < items.length; i++)
+                newItems[i] = items[i] instanceof Integer
+                    ? renumbered.get(items[i]) : items[i];
+
+            final int[] newTags = new int[tags.length];
+
+            for (int i = 0; i < tags.length; i++)
+                newTags[i] = renumbered.get(tags[i]);
+
+            Arrays.sort(newTags);
+            return new Path(newItems, newTags, fresh);
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Path))
+                return false;
+            final Path other = (Path) obj;
+            return Arrays.equals(items, other.items)
+                && Arrays.equals(tags, other.tags);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * Arrays.hashCode(items) + Arrays.hashCode(tags);
+        }
+    }
+}
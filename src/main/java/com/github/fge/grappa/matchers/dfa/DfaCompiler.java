@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.dfa;
+
+import com.github.fge.grappa.matchers.AnyMatcher;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.EmptyMatcher;
+import com.github.fge.grappa.matchers.NothingMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatchers;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.support.Characters;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles regular subgraphs of a rule graph into {@link DfaMatcher}s
+ *
+ * <p>A subgraph is regular if it is not recursive, and only made of
+ * characters, character ranges and classes, {@code ANY}, strings, {@code
+ * EMPTY} and {@code NOTHING}, combined by sequences, first ofs, optionals and
+ * repetitions. In particular, it may not contain actions, predicates or
+ * wrappers (variable framing, memoization). Repetitions of a rule which may
+ * match an empty input are not regular (they fail at runtime anyway); nor
+ * are bounded repetitions of more than {@link #MAX_EXPANDED_CYCLES} cycles,
+ * since all cycles need to be expanded.</p>
+ *
+ * <p>A regular subgraph may still not be compilable, if the automaton would
+ * be too large, or if it needs to remember more than one possible end of the
+ * match; see {@link DfaBuilder}.</p>
+ *
+ * <p>The rule graph must be fully built. Translations of subgraphs are
+ * cached, so that shared subgraphs are only translated once per compiler.
+ * </p>
+ */
+public final class DfaCompiler
+{
+    /**
+     * The maximum number of cycles of a bounded repetition
+     */
+    public static final int MAX_EXPANDED_CYCLES = 16;
+
+    // a null value means the subgraph is not regular
+    private final Map<Matcher, Node> nodes = new IdentityHashMap<>();
+    private final Set<Matcher> inProgress
+        = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Tell whether the subgraph of a matcher is regular
+     *
+     * @param matcher the matcher
+     * @return true if it is
+     */
+    public boolean isRegular(final Matcher matcher)
+    {
+        return nodeOf(matcher) != null;
+    }
+
+    /**
+     * Compile the subgraph of a matcher into a {@link DfaMatcher}
+     *
+     * <p>The returned matcher has the same label as the argument.</p>
+     *
+     * @param matcher the matcher
+     * @return the compiled matcher, or null if the subgraph is not regular, or
+     * cannot be compiled
+     */
+    @Nullable
+    public Matcher compile(final Matcher matcher)
+    {
+        final Node node = nodeOf(matcher);
+
+        if (node == null)
+            return null;
+
+        final Dfa dfa = DfaBuilder.build(node);
+        return dfa == null ? null : new DfaMatcher(matcher.getLabel(), dfa);
+    }
+
+    /*
+     * A matcher reached again while it is being translated is recursive; so
+     * are all the matchers being translated in between, which means none of
+     * them is cached as regular.
+     */
+    @Nullable
+    private Node nodeOf(final Matcher matcher)
+    {
+        final Matcher unwrapped = unwrapProxies(matcher);
+
+        if (nodes.containsKey(unwrapped))
+            return nodes.get(unwrapped);
+
+        if (!inProgress.add(unwrapped))
+            return null;
+
+        final Node node = translate(unwrapped);
+        inProgress.remove(unwrapped);
+        nodes.put(unwrapped, node);
+        return node;
+    }
+
+    /*
+     * Subclasses are not accepted: they may match differently.
+     */
+    @Nullable
+    private Node translate(final Matcher matcher)
+    {
+        final Class<?> type = matcher.getClass();
+
+        if (type == CharMatcher.class)
+            return new Node.Chars(
+                Characters.of(((CharMatcher) matcher).getCharacter()));
+
+        if (type == CharRangeMatcher.class) {
+            final CharRangeMatcher range = (CharRangeMatcher) matcher;
+            return new Node.Chars(Characters.range(range.getLowerBound(),
+                range.getUpperBound()));
+        }
+
+        if (type == AnyOfMatcher.class)
+            return new Node.Chars(((AnyOfMatcher) matcher).getCharacters());
+
+        if (type == AnyMatcher.class)
+            return new Node.Chars(Characters.ALL);
+
+        if (type == StringMatcher.class)
+            return translateString(((StringMatcher) matcher).getString());
+
+        if (type == EmptyMatcher.class)
+            return Node.EPSILON;
+
+        if (type == NothingMatcher.class)
+            return Node.FAIL;
+
+        if (type == SequenceMatcher.class || type == FirstOfMatcher.class)
+            return translateChildren(matcher.getChildren(),
+                type == SequenceMatcher.class);
+
+        if (type == OptionalMatcher.class) {
+            final Node node = nodeOf(matcher.getChildren().get(0));
+            return node == null ? null : new Node.Alt(node, Node.EPSILON);
+        }
+
+        if (matcher instanceof RepeatMatcher)
+            return translateRepeat((RepeatMatcher) matcher);
+
+        return null;
+    }
+
+    private static Node translateString(final String string)
+    {
+        Node ret = Node.EPSILON;
+        Node node;
+
+        for (int i = string.length() - 1; i >= 0; i--) {
+            node = new Node.Chars(Characters.of(string.charAt(i)));
+            ret = ret == Node.EPSILON ? node : new Node.Seq(node, ret);
+        }
+
+        return ret;
+    }
+
+    @Nullable
+    private Node translateChildren(final List<Matcher> children,
+        final boolean sequence)
+    {
+        final int size = children.size();
+
+        if (size == 0)
+            return sequence ? Node.EPSILON : Node.FAIL;
+
+        Node ret = nodeOf(children.get(size - 1));
+        Node node;
+
+        for (int i = size - 2; ret != null && i >= 0; i--) {
+            node = nodeOf(children.get(i));
+            if (node == null)
+                return null;
+            ret = sequence ? new Node.Seq(node, ret) : new Node.Alt(node, ret);
+        }
+
+        return ret;
+    }
+
+    /*
+     * The optional cycles of a bounded repetition are nested: x{0,2} is
+     * matched as (x (x)?)?.
+     */
+    @Nullable
+    private Node translateRepeat(final RepeatMatcher matcher)
+    {
+        final Node body = nodeOf(matcher.getChildren().get(0));
+
+        if (body == null || body.nullable)
+            return null;
+
+        final int minCycles = matcher.getMinCycles();
+        final int maxCycles = matcher.getMaxCycles();
+        final boolean unbounded = maxCycles == RepeatMatchers.UNBOUNDED;
+
+        if ((unbounded ? minCycles : maxCycles) > MAX_EXPANDED_CYCLES)
+            return null;
+
+        Node ret;
+
+        if (unbounded) {
+            ret = new Node.Star(body);
+        } else {
+            ret = Node.EPSILON;
+            for (int i = minCycles; i < maxCycles; i++)
+                ret = new Node.Alt(ret == Node.EPSILON ? body
+                    : new Node.Seq(body, ret), Node.EPSILON);
+        }
+
+        for (int i = 0; i < minCycles; i++)
+            ret = ret == Node.EPSILON ? body : new Node.Seq(body, ret);
+
+        return ret;
+    }
+
+    private static Matcher unwrapProxies(final Matcher matcher)
+    {
+        Matcher ret = matcher;
+        Matcher previous;
+
+        do {
+            previous = ret;
+            ret = ProxyMatcher.unwrap(ret);
+        } while (ret != previous);
+
+        return ret;
+    }
+}
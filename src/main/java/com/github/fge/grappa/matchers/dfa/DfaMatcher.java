@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.dfa;
+
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
+import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.function.Function;
+
+/**
+ * A matcher running a deterministic automaton compiled from a regular
+ * subgraph
+ *
+ * <p>This matcher matches exactly what the subgraph it was compiled from
+ * matches, but reads each character at most once, without running any
+ * submatcher or backtracking.</p>
+ *
+ * @see DfaCompiler
+ */
+@Immutable
+public final class DfaMatcher
+    extends AbstractMatcher
+    implements FirstSetProvider
+{
+    private static final int ASCII_SIZE = 128;
+
+    private final Dfa dfa;
+
+    DfaMatcher(final String label, final Dfa dfa)
+    {
+        super(label);
+        this.dfa = dfa;
+    }
+
+    @Override
+    public MatcherType getType()
+    {
+        return MatcherType.TERMINAL;
+    }
+
+    @Override
+    public <V> boolean match(final MatcherContext<V> context)
+    {
+        final int end
+            = dfa.match(context.getInputBuffer(), context.getCurrentIndex());
+
+        if (end == -1)
+            return false;
+
+        context.setCurrentIndex(end);
+        return true;
+    }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        FirstSet ret = FirstSet.NONE;
+
+        for (char c = 0; c < ASCII_SIZE; c++)
+            if (dfa.mayStartWith(c))
+                ret = ret.union(FirstSet.of(c));
+
+        return ret.withNullable(dfa.isNullable());
+    }
+}
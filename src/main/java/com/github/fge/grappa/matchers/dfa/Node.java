@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.dfa;
+
+import com.github.fge.grappa.support.Characters;
+
+/**
+ * A node of the expression tree a regular subgraph is translated to
+ *
+ * <p>Nodes are compared by identity: a subgraph shared by several parents is
+ * translated only once, and the resulting node is shared as well.</p>
+ *
+ * <p>An alternative is ordered, and a star is greedy and never gives back
+ * what it matched: this is the semantics of PEG choices and repetitions, not
+ * those of regular expressions.</p>
+ */
+abstract class Node
+{
+    /**
+     * The node matching the empty string
+     */
+    static final Node EPSILON = new Node(true)
+    {
+    };
+
+    /**
+     * The node never matching
+     */
+    static final Node FAIL = new Node(false)
+    {
+    };
+
+    /*
+     * Whether this node may succeed without consuming any input
+     */
+    final boolean nullable;
+
+    private Node(final boolean nullable)
+    {
+        this.nullable = nullable;
+    }
+
+    static final class Chars
+        extends Node
+    {
+        final Characters characters;
+
+        Chars(final Characters characters)
+        {
+            super(false);
+            this.characters = characters;
+        }
+    }
+
+    static final class Seq
+        extends Node
+    {
+        final Node first;
+        final Node second;
+
+        Seq(final Node first, final Node second)
+        {
+            super(first.nullable && second.nullable);
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    static final class Alt
+        extends Node
+    {
+        final Node first;
+        final Node second;
+
+        Alt(final Node first, final Node second)
+        {
+            super(first.nullable || second.nullable);
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    static final class Star
+        extends Node
+    {
+        final Node body;
+
+        Star(final Node body)
+        {
+            super(true);
+            this.body = body;
+        }
+    }
+}
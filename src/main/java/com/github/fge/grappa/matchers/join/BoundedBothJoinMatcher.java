@@ -16,13 +16,18 @@
 
 package com.github.fge.grappa.matchers.join;
 
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.rules.Rule;
 
+import java.util.List;
+
 /*
  * A joining matcher with a minimum and maximum number of matches to perform
  */
 public final class BoundedBothJoinMatcher
     extends JoinMatcher
+    implements RebuildableMatcher
 {
     private final int minCycles;
     private final int maxCycles;
@@ -35,6 +40,18 @@ public final class BoundedBothJoinMatcher
         this.maxCycles = maxCycles;
     }
 
+    @Override
+    public int getMinCycles()
+    {
+        return minCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return maxCycles;
+    }
+
     @Override
     protected boolean runAgain(final int cycles)
     {
@@ -46,4 +63,12 @@ public final class BoundedBothJoinMatcher
     {
         return cycles >= minCycles;
     }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        final BoundedBothJoinMatcher ret = new BoundedBothJoinMatcher(
+            children.get(0), children.get(1), minCycles, maxCycles);
+        return copyLabelTo(ret);
+    }
 }
@@ -16,13 +16,19 @@
 
 package com.github.fge.grappa.matchers.join;
 
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatchers;
 import com.github.fge.grappa.rules.Rule;
 
+import java.util.List;
+
 /*
  * A joining matcher with a minimum number of matches to perform
  */
 public final class BoundedDownJoinMatcher
     extends JoinMatcher
+    implements RebuildableMatcher
 {
     private final int minCycles;
 
@@ -33,6 +39,18 @@ public final class BoundedDownJoinMatcher
         this.minCycles = minCycles;
     }
 
+    @Override
+    public int getMinCycles()
+    {
+        return minCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return RepeatMatchers.UNBOUNDED;
+    }
+
     @Override
     protected boolean runAgain(final int cycles)
     {
@@ -44,4 +62,12 @@ public final class BoundedDownJoinMatcher
     {
         return cycles >= minCycles;
     }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        final BoundedDownJoinMatcher ret = new BoundedDownJoinMatcher(
+            children.get(0), children.get(1), minCycles);
+        return copyLabelTo(ret);
+    }
 }
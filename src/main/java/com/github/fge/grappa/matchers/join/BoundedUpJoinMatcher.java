@@ -16,13 +16,18 @@
 
 package com.github.fge.grappa.matchers.join;
 
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.rules.Rule;
 
+import java.util.List;
+
 /*
  * A joining matcher with a maximum number of matches to perform
  */
 public final class BoundedUpJoinMatcher
     extends JoinMatcher
+    implements RebuildableMatcher
 {
     private final int maxCycles;
 
@@ -33,6 +38,18 @@ public final class BoundedUpJoinMatcher
         this.maxCycles = maxCycles;
     }
 
+    @Override
+    public int getMinCycles()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return maxCycles;
+    }
+
     @Override
     protected boolean runAgain(final int cycles)
     {
@@ -44,4 +61,12 @@ public final class BoundedUpJoinMatcher
     {
         return true;
     }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        final BoundedUpJoinMatcher ret = new BoundedUpJoinMatcher(
+            children.get(0), children.get(1), maxCycles);
+        return copyLabelTo(ret);
+    }
 }
@@ -16,14 +16,19 @@
 
 package com.github.fge.grappa.matchers.join;
 
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.rules.Rule;
 
+import java.util.List;
+
 /*
  * A matcher which must match exactly n times. Note that n is >= 2 (otherwise
  * the builder would have returned an empty matcher or the joined rule)
  */
 public final class ExactMatchesJoinMatcher
     extends JoinMatcher
+    implements RebuildableMatcher
 {
     private final int nrCycles;
 
@@ -34,6 +39,18 @@ public final class ExactMatchesJoinMatcher
         this.nrCycles = nrCycles;
     }
 
+    @Override
+    public int getMinCycles()
+    {
+        return nrCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return nrCycles;
+    }
+
     @Override
     protected boolean runAgain(final int cycles)
     {
@@ -45,4 +62,12 @@ public final class ExactMatchesJoinMatcher
     {
         return cycles == nrCycles;
     }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        final ExactMatchesJoinMatcher ret = new ExactMatchesJoinMatcher(
+            children.get(0), children.get(1), nrCycles);
+        return copyLabelTo(ret);
+    }
 }
@@ -18,11 +18,16 @@ package com.github.fge.grappa.matchers.join;
 
 import com.github.fge.grappa.exceptions.GrappaException;
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.CustomDefaultLabelMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatchers;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 /**
  * A joining matcher
  *
@@ -64,6 +69,7 @@ import com.github.fge.grappa.run.context.MatcherContext;
  */
 public abstract class JoinMatcher
     extends CustomDefaultLabelMatcher<JoinMatcher>
+    implements FirstSetProvider
 {
     private static final int JOINED_CHILD_INDEX = 0;
     private static final int JOINING_CHILD_INDEX = 1;
@@ -100,26 +106,51 @@ public abstract class JoinMatcher
          * our joining rule would match empty... Which is illegal.
          */
         int cycles = 0;
-        if (!joined.getSubContext(context).runMatcher())
+        if (!runChild(context, JOINED_CHILD_INDEX))
             return enoughCycles(cycles);
 
         cycles++;
 
-        Object snapshot = context.getValueStack().takeSnapshot();
+        final boolean neutral = childrenAreStackNeutral();
+        Object snapshot = neutral ? null
+            : context.getValueStack().takeSnapshot();
         int beforeCycle = context.getCurrentIndex();
 
         while (runAgain(cycles) && matchCycle(context, beforeCycle)) {
             beforeCycle = context.getCurrentIndex();
-            snapshot = context.getValueStack().takeSnapshot();
+            if (!neutral)
+                snapshot = context.getValueStack().takeSnapshot();
             cycles++;
         }
 
-        context.getValueStack().restoreSnapshot(snapshot);
+        if (!neutral)
+            context.getValueStack().restoreSnapshot(snapshot);
         context.setCurrentIndex(beforeCycle);
 
         return enoughCycles(cycles);
     }
 
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        final FirstSet ret = firstSets.apply(joined);
+        return ret.withNullable(ret.isNullable() || enoughCycles(0));
+    }
+
+    /**
+     * Get the minimum number of cycles for this matcher to succeed
+     *
+     * @return the minimum number of cycles
+     */
+    public abstract int getMinCycles();
+
+    /**
+     * Get the maximum number of cycles this matcher runs
+     *
+     * @return the maximum number of cycles, or {@link RepeatMatchers#UNBOUNDED}
+     */
+    public abstract int getMaxCycles();
+
     protected abstract boolean runAgain(final int cycles);
 
     protected abstract boolean enoughCycles(final int cycles);
@@ -127,11 +158,20 @@ public abstract class JoinMatcher
     protected final <V> boolean matchCycle(final MatcherContext<V> context,
         final int beforeCycle)
     {
-        if (!joining.getSubContext(context).runMatcher())
+        if (!runChild(context, JOINING_CHILD_INDEX))
             return false;
         if (context.getCurrentIndex() == beforeCycle)
             throw new GrappaException("joining rule (" + joining + ") of a "
                 + "JoinMatcher cannot match an empty character sequence!");
-        return joined.getSubContext(context).runMatcher();
+        return runChild(context, JOINED_CHILD_INDEX);
+    }
+
+    private <V> boolean runChild(final MatcherContext<V> context,
+        final int index)
+    {
+        final Matcher child = index == JOINED_CHILD_INDEX ? joined : joining;
+
+        return directChildren()[index] ? context.runTerminal(child)
+            : child.getSubContext(context).runMatcher();
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.optimize;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+
+import java.util.List;
+
+/**
+ * A matcher which can be copied with different children
+ *
+ * <p>This is used by the {@link RuleOptimizer} to rebuild rule graphs.</p>
+ */
+@FunctionalInterface
+public interface RebuildableMatcher
+{
+    /**
+     * Return a copy of this matcher with different children
+     *
+     * <p>The copy must behave exactly as this matcher would with the given
+     * children, and have the same label.</p>
+     *
+     * @param children the children; the list has as many elements as this
+     * matcher has children
+     * @return a copy of this matcher
+     */
+    Matcher withChildren(List<Matcher> children);
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.optimize;
+
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.EmptyMatcher;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.analysis.StackNeutrality;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.dfa.DfaCompiler;
+import com.github.fge.grappa.matchers.dfa.DfaMatcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.repeat.CharSpanMatcher;
+import com.github.fge.grappa.matchers.repeat.CodePointSpanMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatcher;
+import com.github.fge.grappa.matchers.trie.Trie;
+import com.github.fge.grappa.matchers.trie.TrieBuilder;
+import com.github.fge.grappa.matchers.trie.TrieMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Characters;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Rewrites a rule graph into an equivalent, faster one
+ *
+ * <p>The following rewrites are performed:</p>
+ *
+ * <ul>
+ *     <li>{@link ProxyMatcher}s are replaced with the matcher they delegate
+ *     to;</li>
+ *     <li>sequences (resp. first ofs) directly nested in a sequence (resp. a
+ *     first of) are replaced with their children;</li>
+ *     <li>{@link EmptyMatcher}s are removed from sequences;</li>
+ *     <li>adjacent characters and strings in a sequence are merged into a
+ *     single {@link StringMatcher};</li>
+ *     <li>adjacent characters and strings in a first of are merged into a
+ *     single {@link TrieMatcher}, provided that this does not change the
+ *     alternative which matches (that is, no string is a prefix of a string
+ *     following it);</li>
+ *     <li>adjacent character classes in a first of (characters, character
+ *     ranges and {@link AnyOfMatcher}s) are merged into a single {@link
+ *     AnyOfMatcher};</li>
+ *     <li>sequences and first ofs left with a single child are replaced with
+ *     this child, provided that a sequence's child restores the value stack
+ *     on failure as well;</li>
+ *     <li>regular subgraphs (see {@link DfaCompiler}) which are still
+ *     repetitions, or composites with composite children, after the above
+ *     rewrites are compiled into a {@link DfaMatcher}.</li>
+ * </ul>
+ *
+ * <p>Actions see the context of their parent matcher, and the match of the
+ * matcher preceding them (see {@link MatcherContext#getMatch()}). Matchers
+ * with actions as direct children are therefore never flattened into their
+ * parent, and a matcher directly followed by an action is never altered.</p>
+ *
+ * <p>Matchers are copied, never modified; the graph given as an argument can
+ * still be used after the call. Labels of the matchers which are merged or
+ * flattened away are lost, which means the rewritten graph is not suitable
+ * for reporting parse events to listeners. Matchers which do not implement
+ * {@link RebuildableMatcher} or {@link WrappingMatcher} are used as is, along
+ * with the whole graph reachable from them.</p>
+ */
+public final class RuleOptimizer
+{
+    private static final String MATCHERS_PACKAGE
+        = MatcherType.class.getPackage().getName() + '.';
+
+    private final DfaCompiler compiler = new DfaCompiler();
+    private final Map<Matcher, Matcher> done = new IdentityHashMap<>();
+    private final Map<Matcher, ProxyMatcher> inProgress
+        = new IdentityHashMap<>();
+
+    /**
+     * Optimize a rule graph
+     *
+     * @param root the root of the graph; it must be fully built
+     * @return the root of the optimized graph
+     */
+    public static Matcher optimize(@Nonnull final Matcher root)
+    {
+        Objects.requireNonNull(root);
+        return new RuleOptimizer().rewrite(root);
+    }
+
+    private RuleOptimizer()
+    {
+    }
+
+    /*
+     * A matcher reached again while its children are still being rewritten is
+     * part of a cycle; a placeholder proxy is returned instead, and armed with
+     * the rewritten matcher once it is known.
+     */
+    private Matcher rewrite(final Matcher matcher)
+    {
+        final Matcher unwrapped = unwrapProxies(matcher);
+
+        final Matcher ret = done.get(unwrapped);
+        if (ret != null)
+            return ret;
+
+        if (inProgress.containsKey(unwrapped)) {
+            ProxyMatcher placeholder = inProgress.get(unwrapped);
+            if (placeholder == null) {
+                placeholder = new ProxyMatcher();
+                inProgress.put(unwrapped, placeholder);
+            }
+            return placeholder;
+        }
+
+        inProgress.put(unwrapped, null);
+        final Matcher rewritten = compileIfWorthIt(unwrapped,
+            doRewrite(unwrapped));
+        final ProxyMatcher placeholder = inProgress.remove(unwrapped);
+        if (placeholder != null)
+            placeholder.arm(rewritten);
+        done.put(unwrapped, rewritten);
+        return rewritten;
+    }
+
+    /*
+     * Strings, tries and character classes are as fast as an automaton; so is
+     * a single composite of terminals, which runs only one submatcher per
+     * character. Regular subgraphs are not recursive, so their rewritten graph
+     * contains no placeholders; the automaton is compiled from the original
+     * graph.
+     */
+    private Matcher compileIfWorthIt(final Matcher original,
+        final Matcher rewritten)
+    {
+        if (!compiler.isRegular(original) || !isWorthCompiling(rewritten))
+            return rewritten;
+
+        final Matcher compiled = compiler.compile(original);
+        return compiled == null ? rewritten : compiled;
+    }
+
+    private static boolean isWorthCompiling(final Matcher matcher)
+    {
+        if (!isComposite(matcher))
+            return false;
+
+        if (matcher instanceof RepeatMatcher)
+            return true;
+
+        for (final Matcher child: matcher.getChildren())
+            if (isComposite(child))
+                return true;
+
+        return false;
+    }
+
+    private static boolean isComposite(final Matcher matcher)
+    {
+        return matcher.getType() == MatcherType.COMPOSITE
+            && !(matcher instanceof CharSpanMatcher
+            || matcher instanceof CodePointSpanMatcher);
+    }
+
+    private Matcher doRewrite(final Matcher matcher)
+    {
+        if (matcher instanceof WrappingMatcher) {
+            final WrappingMatcher wrapper = (WrappingMatcher) matcher;
+            return wrapper.withInner(rewrite(wrapper.getInner()));
+        }
+
+        if (!(matcher instanceof RebuildableMatcher))
+            return matcher;
+
+        if (matcher instanceof SequenceMatcher
+            || matcher instanceof FirstOfMatcher) {
+            final List<Matcher> flattened = new ArrayList<>();
+            flatten(matcher, flattened,
+                Collections.newSetFromMap(new IdentityHashMap<>()));
+            return matcher instanceof SequenceMatcher
+                ? rewriteSequence(matcher, flattened)
+                : rewriteFirstOf(matcher, flattened);
+        }
+
+        final List<Matcher> children = matcher.getChildren();
+        final List<Matcher> rewritten = new ArrayList<>(children.size());
+
+        for (final Matcher child: children)
+            rewritten.add(rewrite(child));
+
+        return rebuild(matcher, rewritten);
+    }
+
+    /*
+     * Collect the rewritten children of a sequence or first of, replacing
+     * children of the same kind with their own children. This is done on the
+     * original graph, so that merges can then be performed across nesting
+     * levels. Empty matchers are dropped from sequences.
+     */
+    private void flatten(final Matcher matcher, final List<Matcher> flattened,
+        final Set<Matcher> expanding)
+    {
+        final Class<?> type = matcher.getClass();
+        final List<Matcher> children = matcher.getChildren();
+        final int size = children.size();
+        Matcher child;
+
+        expanding.add(matcher);
+
+        for (int i = 0; i < size; i++) {
+            child = unwrapProxies(children.get(i));
+            if (followedByAction(children, i)) {
+                flattened.add(rewrite(child));
+                continue;
+            }
+            if (child.getClass() == type && !hasActionChildren(child)
+                && !expanding.contains(child)) {
+                flatten(child, flattened, expanding);
+                continue;
+            }
+            child = rewrite(child);
+            if (!(type == SequenceMatcher.class
+                && child instanceof EmptyMatcher))
+                flattened.add(child);
+        }
+
+        expanding.remove(matcher);
+    }
+
+    private static Matcher rewriteSequence(final Matcher matcher,
+        final List<Matcher> children)
+    {
+        final List<Matcher> merged = new ArrayList<>(children.size());
+        final int size = children.size();
+        final StringBuilder sb = new StringBuilder();
+        int start;
+        int end;
+
+        for (start = 0; start < size; start = end) {
+            end = start;
+            sb.setLength(0);
+            while (end < size && isLiteral(children, end))
+                sb.append(literalOf(children.get(end++)));
+            if (end - start >= 2) {
+                merged.add(new StringMatcher(sb.toString()));
+                continue;
+            }
+            merged.add(children.get(start));
+            end = start + 1;
+        }
+
+        if (merged.isEmpty())
+            return new EmptyMatcher();
+
+        return collapse(matcher, merged, restoresOnFailure(merged));
+    }
+
+    private static Matcher rewriteFirstOf(final Matcher matcher,
+        final List<Matcher> children)
+    {
+        return collapse(matcher, mergeCharClasses(mergeLiterals(children)),
+            true);
+    }
+
+    /*
+     * A trie returns the longest match, while a first of returns the first
+     * one; they are equivalent as long as no string is a prefix of a string
+     * which comes after it. Tries are only used if at least one string is
+     * longer than one character; character classes are better otherwise.
+     */
+    private static List<Matcher> mergeLiterals(final List<Matcher> children)
+    {
+        final List<Matcher> ret = new ArrayList<>(children.size());
+        final int size = children.size();
+        final List<String> strings = new ArrayList<>();
+        boolean hasLongString;
+        String string;
+        int start;
+        int end;
+
+        for (start = 0; start < size; start = end) {
+            strings.clear();
+            hasLongString = false;
+            for (end = start; end < size; end++) {
+                if (!isLiteral(children, end))
+                    break;
+                string = literalOf(children.get(end));
+                if (hasPrefixOf(strings, string))
+                    break;
+                strings.add(string);
+                hasLongString |= string.length() > 1;
+            }
+            if (strings.size() >= 2 && hasLongString) {
+                final TrieBuilder builder = Trie.newBuilder();
+                strings.forEach(builder::addWord);
+                ret.add(new TrieMatcher(builder.build()));
+                continue;
+            }
+            ret.add(children.get(start));
+            end = start + 1;
+        }
+
+        return ret;
+    }
+
+    private static List<Matcher> mergeCharClasses(final List<Matcher> children)
+    {
+        final List<Matcher> ret = new ArrayList<>(children.size());
+        final int size = children.size();
+        final List<Characters> classes = new ArrayList<>();
+        int start;
+        int end;
+
+        for (start = 0; start < size; start = end) {
+            classes.clear();
+            for (end = start; end < size; end++) {
+                if (followedByAction(children, end))
+                    break;
+                final Characters characters = charClassOf(children.get(end));
+                if (characters == null)
+                    break;
+                classes.add(characters);
+            }
+            if (classes.size() >= 2) {
+                ret.add(new AnyOfMatcher(classes.stream()
+                    .reduce(Characters.NONE, Characters::union)));
+                continue;
+            }
+            ret.add(children.get(start));
+            end = start + 1;
+        }
+
+        return ret;
+    }
+
+    /*
+     * Replace a sequence or first of having only one child with this child,
+     * unless the child is an action (its parent context would change) or a
+     * matcher not defined by this package. A sequence also restores the value
+     * stack on failure, which its child has to do as well.
+     */
+    private static Matcher collapse(final Matcher matcher,
+        final List<Matcher> children, final boolean restoring)
+    {
+        if (children.size() == 1 && restoring) {
+            final Matcher child = children.get(0);
+            if (!isAction(child) && child.getClass().getName()
+                .startsWith(MATCHERS_PACKAGE))
+                return child;
+        }
+
+        return rebuild(matcher, children);
+    }
+
+    /*
+     * Optionals never fail; repetitions and first ofs may fail after their
+     * children have modified the stack.
+     */
+    private static boolean restoresOnFailure(final List<Matcher> children)
+    {
+        if (children.size() != 1)
+            return false;
+
+        final Matcher child = children.get(0);
+
+        return child instanceof SequenceMatcher
+            || child instanceof OptionalMatcher
+            || StackNeutrality.isNeutral(child);
+    }
+
+    private static Matcher rebuild(final Matcher matcher,
+        final List<Matcher> children)
+    {
+        final List<Matcher> original = matcher.getChildren();
+        final int size = children.size();
+
+        if (size == original.size()) {
+            int i = 0;
+            while (i < size && children.get(i) == original.get(i))
+                i++;
+            if (i == size)
+                return matcher;
+        }
+
+        return ((RebuildableMatcher) matcher).withChildren(children);
+    }
+
+    private static Matcher unwrapProxies(final Matcher matcher)
+    {
+        Matcher ret = matcher;
+        Matcher previous;
+
+        do {
+            previous = ret;
+            ret = ProxyMatcher.unwrap(ret);
+        } while (ret != previous);
+
+        return ret;
+    }
+
+    /*
+     * Placeholders (unarmed proxies) only ever stand for composite matchers
+     * which are being rewritten, never for actions.
+     */
+    private static boolean isAction(final Matcher matcher)
+    {
+        Matcher m = unwrapProxies(matcher);
+
+        while (m instanceof WrappingMatcher)
+            m = unwrapProxies(((WrappingMatcher) m).getInner());
+
+        return !(m instanceof ProxyMatcher)
+            && m.getType() == MatcherType.ACTION;
+    }
+
+    private static boolean hasActionChildren(final Matcher matcher)
+    {
+        for (final Matcher child: matcher.getChildren())
+            if (isAction(child))
+                return true;
+        return false;
+    }
+
+    private static boolean followedByAction(final List<Matcher> children,
+        final int index)
+    {
+        final int next = index + 1;
+        return next < children.size() && isAction(children.get(next));
+    }
+
+    private static boolean isLiteral(final List<Matcher> children,
+        final int index)
+    {
+        final Matcher matcher = children.get(index);
+
+        if (!(matcher instanceof CharMatcher || matcher instanceof StringMatcher))
+            return false;
+
+        return !followedByAction(children, index);
+    }
+
+    private static String literalOf(final Matcher matcher)
+    {
+        return matcher instanceof CharMatcher
+            ? String.valueOf(((CharMatcher) matcher).getCharacter())
+            : ((StringMatcher) matcher).getString();
+    }
+
+    private static boolean hasPrefixOf(final List<String> strings,
+        final String string)
+    {
+        for (final String s: strings)
+            if (string.length() > s.length() && string.startsWith(s))
+                return true;
+        return false;
+    }
+
+    private static Characters charClassOf(final Matcher matcher)
+    {
+        if (matcher instanceof CharMatcher)
+            return Characters.of(((CharMatcher) matcher).getCharacter());
+
+        if (matcher instanceof AnyOfMatcher)
+            return ((AnyOfMatcher) matcher).getCharacters();
+
+        if (!(matcher instanceof CharRangeMatcher))
+            return null;
+
+        final CharRangeMatcher range = (CharRangeMatcher) matcher;
+        return Characters.range(range.getLowerBound(), range.getUpperBound());
+    }
+}
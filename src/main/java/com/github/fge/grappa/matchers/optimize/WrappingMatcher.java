@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.optimize;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+
+/**
+ * A matcher which only wraps another matcher
+ *
+ * <p>Such a matcher does not change what its inner matcher matches, but adds
+ * some behaviour around it (for instance, memoization). The {@link
+ * RuleOptimizer} rewrites the inner matcher and wraps the result again.</p>
+ */
+public interface WrappingMatcher
+    extends Matcher
+{
+    /**
+     * Get the wrapped matcher
+     *
+     * @return the wrapped matcher
+     */
+    Matcher getInner();
+
+    /**
+     * Return a wrapper identical to this one, but for the wrapped matcher
+     *
+     * @param inner the matcher to wrap
+     * @return a new wrapper, or this wrapper if the inner matcher is the same
+     */
+    Matcher withInner(Matcher inner);
+}
@@ -17,13 +17,19 @@
 package com.github.fge.grappa.matchers.predicates;
 
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
+import com.github.fge.grappa.matchers.analysis.FirstSets;
 import com.github.fge.grappa.matchers.base.CustomDefaultLabelMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * A "negative lookahead" matcher
@@ -41,9 +47,13 @@ import java.util.Objects;
  */
 public final class TestNotMatcher
     extends CustomDefaultLabelMatcher<TestNotMatcher>
+    implements FirstSetProvider, RebuildableMatcher
 {
     private final Matcher subMatcher;
 
+    // computed on first use, when the rule graph is complete
+    private FirstSet subFirstSet = null;
+
     public TestNotMatcher(final Rule subRule)
     {
         super(Objects.requireNonNull(subRule, "subRule"), "testNot");
@@ -59,9 +69,21 @@ public final class TestNotMatcher
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
+        FirstSet firstSet = subFirstSet;
+
+        if (firstSet == null) {
+            firstSet = FirstSets.of(subMatcher);
+            subFirstSet = firstSet;
+        }
+
+        // the submatcher is guaranteed to fail
+        if (context.maySkipMatchers() && firstSet.excludes(context))
+            return true;
+
         final int lastIndex = context.getCurrentIndex();
-        final Object valueStackSnapshot
-            = context.getValueStack().takeSnapshot();
+        final boolean neutral = childrenAreStackNeutral();
+        final Object valueStackSnapshot = neutral ? null
+            : context.getValueStack().takeSnapshot();
 
         if (subMatcher.getSubContext(context).runMatcher())
             return false;
@@ -70,7 +92,20 @@ public final class TestNotMatcher
         context.setCurrentIndex(lastIndex);
 
         // erase all value stack changes the the submatcher could have made
-        context.getValueStack().restoreSnapshot(valueStackSnapshot);
+        if (!neutral)
+            context.getValueStack().restoreSnapshot(valueStackSnapshot);
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return firstSets.apply(subMatcher).withNullable(true);
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        return copyLabelTo(new TestNotMatcher(children.get(0)));
+    }
 }
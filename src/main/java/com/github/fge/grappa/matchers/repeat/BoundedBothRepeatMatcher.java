@@ -1,13 +1,18 @@
 package com.github.fge.grappa.matchers.repeat;
 
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.rules.Rule;
 
+import java.util.List;
+
 /**
  * A repeat matcher bounded on both ends (must match a minimum of times and no
  * more than a maximum of times)
  */
 public final class BoundedBothRepeatMatcher
     extends RepeatMatcher
+    implements RebuildableMatcher
 {
     private final int minCycles;
     private final int maxCycles;
@@ -31,4 +36,23 @@ public final class BoundedBothRepeatMatcher
     {
         return cycles < maxCycles;
     }
+
+    @Override
+    public int getMinCycles()
+    {
+        return minCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return maxCycles;
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        return copyLabelTo(RepeatMatchers.create(children.get(0), minCycles,
+            maxCycles));
+    }
 }
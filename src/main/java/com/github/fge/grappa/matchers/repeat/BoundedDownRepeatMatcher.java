@@ -1,13 +1,18 @@
 package com.github.fge.grappa.matchers.repeat;
 
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.rules.Rule;
 
+import java.util.List;
+
 /**
  * A repeat matcher with only the lower bound defined (must match a minimum
  * number of time, no upper limit)
  */
 public final class BoundedDownRepeatMatcher
     extends RepeatMatcher
+    implements RebuildableMatcher
 {
     private final int minCycles;
 
@@ -28,4 +33,23 @@ public final class BoundedDownRepeatMatcher
     {
         return true;
     }
+
+    @Override
+    public int getMinCycles()
+    {
+        return minCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return RepeatMatchers.UNBOUNDED;
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        return copyLabelTo(RepeatMatchers.create(children.get(0), minCycles,
+            RepeatMatchers.UNBOUNDED));
+    }
 }
@@ -1,7 +1,11 @@
 package com.github.fge.grappa.matchers.repeat;
 
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.rules.Rule;
 
+import java.util.List;
+
 /**
  * A repeat matcher matching a given maximum number of times
  *
@@ -10,6 +14,7 @@ import com.github.fge.grappa.rules.Rule;
  */
 public final class BoundedUpRepeatMatcher
     extends RepeatMatcher
+    implements RebuildableMatcher
 {
     private final int maxCycles;
 
@@ -30,4 +35,23 @@ public final class BoundedUpRepeatMatcher
     {
         return cycles < maxCycles;
     }
+
+    @Override
+    public int getMinCycles()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return maxCycles;
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        return copyLabelTo(RepeatMatchers.create(children.get(0), 0,
+            maxCycles));
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.repeat;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Characters;
+
+import java.util.List;
+
+/**
+ * A repeat matcher for a terminal matching exactly one character
+ *
+ * <p>Instead of running its submatcher once per cycle, this matcher scans the
+ * input buffer in a single loop for as long as characters belong to the set
+ * of characters its submatcher matches (and the maximum number of cycles is
+ * not reached).</p>
+ *
+ * @see RepeatMatchers
+ */
+public final class CharSpanMatcher
+    extends RepeatMatcher
+    implements RebuildableMatcher
+{
+    private final Characters characters;
+    private final int minCycles;
+    private final int maxCycles;
+
+    CharSpanMatcher(final Rule subRule, final Characters characters,
+        final int minCycles, final int maxCycles)
+    {
+        super(subRule);
+        this.characters = characters;
+        this.minCycles = minCycles;
+        this.maxCycles = maxCycles;
+    }
+
+    /**
+     * Get the characters this matcher spans over
+     *
+     * @return the characters
+     */
+    public Characters getCharacters()
+    {
+        return characters;
+    }
+
+    @Override
+    public <V> boolean match(final MatcherContext<V> context)
+    {
+        final InputBuffer buffer = context.getInputBuffer();
+        final int start = context.getCurrentIndex();
+        final int end = (int) Math.min(buffer.length(),
+            (long) start + maxCycles);
+
+        int index = start;
+
+        while (index < end && characters.contains(buffer.charAt(index)))
+            index++;
+
+        context.setCurrentIndex(index);
+        return index - start >= minCycles;
+    }
+
+    @Override
+    protected boolean enoughCycles(final int cycles)
+    {
+        return cycles >= minCycles;
+    }
+
+    @Override
+    protected boolean runAgain(final int cycles)
+    {
+        return cycles < maxCycles;
+    }
+
+    @Override
+    public int getMinCycles()
+    {
+        return minCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return maxCycles;
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        return copyLabelTo(RepeatMatchers.create(children.get(0), minCycles,
+            maxCycles));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.repeat;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import java.util.List;
+
+/**
+ * A repeat matcher for a terminal matching exactly one code point in a range
+ *
+ * <p>Instead of running its submatcher once per cycle, this matcher scans the
+ * input buffer in a single loop for as long as code points belong to the
+ * range its submatcher matches (and the maximum number of cycles is not
+ * reached).</p>
+ *
+ * @see RepeatMatchers
+ */
+public final class CodePointSpanMatcher
+    extends RepeatMatcher
+    implements RebuildableMatcher
+{
+    private final int low;
+    private final int high;
+    private final int minCycles;
+    private final int maxCycles;
+
+    CodePointSpanMatcher(final Rule subRule, final int low, final int high,
+        final int minCycles, final int maxCycles)
+    {
+        super(subRule);
+        this.low = low;
+        this.high = high;
+        this.minCycles = minCycles;
+        this.maxCycles = maxCycles;
+    }
+
+    @Override
+    public <V> boolean match(final MatcherContext<V> context)
+    {
+        final InputBuffer buffer = context.getInputBuffer();
+        int index = context.getCurrentIndex();
+        int cycles = 0;
+        int codePoint;
+
+        while (cycles < maxCycles) {
+            // -1 at the end of input
+            codePoint = buffer.codePointAt(index);
+            if (codePoint < low || codePoint > high)
+                break;
+            index += Character.charCount(codePoint);
+            cycles++;
+        }
+
+        context.setCurrentIndex(index);
+        return cycles >= minCycles;
+    }
+
+    @Override
+    protected boolean enoughCycles(final int cycles)
+    {
+        return cycles >= minCycles;
+    }
+
+    @Override
+    protected boolean runAgain(final int cycles)
+    {
+        return cycles < maxCycles;
+    }
+
+    @Override
+    public int getMinCycles()
+    {
+        return minCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return maxCycles;
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        return copyLabelTo(RepeatMatchers.create(children.get(0), minCycles,
+            maxCycles));
+    }
+}
@@ -1,13 +1,18 @@
 package com.github.fge.grappa.matchers.repeat;
 
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RebuildableMatcher;
 import com.github.fge.grappa.rules.Rule;
 
+import java.util.List;
+
 /**
  * A repeat matcher which must match exactly a given number of times; no less,
  * no more
  */
 public final class ExactMatchesRepeatMatcher
     extends RepeatMatcher
+    implements RebuildableMatcher
 {
     private final int nrCycles;
 
@@ -28,4 +33,23 @@ public final class ExactMatchesRepeatMatcher
     {
         return cycles < nrCycles;
     }
+
+    @Override
+    public int getMinCycles()
+    {
+        return nrCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return nrCycles;
+    }
+
+    @Override
+    public Matcher withChildren(final List<Matcher> children)
+    {
+        return copyLabelTo(RepeatMatchers.create(children.get(0), nrCycles,
+            nrCycles));
+    }
 }
@@ -2,12 +2,18 @@ package com.github.fge.grappa.matchers.repeat;
 
 import com.github.fge.grappa.exceptions.GrappaException;
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.DirectTerminals;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
+import com.github.fge.grappa.matchers.analysis.FirstSets;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 /**
  * A matcher which repeats matching a given number of times
  *
@@ -31,9 +37,14 @@ import com.github.fge.grappa.run.context.MatcherContext;
  */
 public abstract class RepeatMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     private final Matcher matcher;
 
+    // computed on first use, when the rule graph is complete
+    private FirstSet subFirstSet = null;
+    private boolean direct = false;
+
     protected RepeatMatcher(final Rule subRule)
     {
         super(subRule, "repeat");
@@ -49,13 +60,27 @@ public abstract class RepeatMatcher
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
+        FirstSet firstSet = subFirstSet;
+
+        if (firstSet == null) {
+            firstSet = FirstSets.of(matcher);
+            direct = DirectTerminals.isDirect(matcher);
+            subFirstSet = firstSet;
+        }
+
+        // if another thread computed the first set, this may still be false
+        final boolean runDirectly = direct;
+        final boolean skip = context.maySkipMatchers();
         int cycles = 0;
 
         int beforeMatch = context.getCurrentIndex();
         int afterMatch;
 
         while (runAgain(cycles)) {
-            if (!context.getSubContext(matcher).runMatcher())
+            if (skip && firstSet.excludes(context))
+                break;
+            if (!(runDirectly ? context.runTerminal(matcher)
+                : context.getSubContext(matcher).runMatcher()))
                 break;
             afterMatch = context.getCurrentIndex();
             if (beforeMatch == afterMatch)
@@ -68,6 +93,27 @@ public abstract class RepeatMatcher
         return enoughCycles(cycles);
     }
 
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        final FirstSet ret = firstSets.apply(matcher);
+        return ret.withNullable(ret.isNullable() || enoughCycles(0));
+    }
+
+    /**
+     * Get the minimum number of cycles for this matcher to succeed
+     *
+     * @return the minimum number of cycles
+     */
+    public abstract int getMinCycles();
+
+    /**
+     * Get the maximum number of cycles this matcher runs
+     *
+     * @return the maximum number of cycles, or {@link RepeatMatchers#UNBOUNDED}
+     */
+    public abstract int getMaxCycles();
+
     protected abstract boolean enoughCycles(final int cycles);
 
     protected abstract boolean runAgain(final int cycles);
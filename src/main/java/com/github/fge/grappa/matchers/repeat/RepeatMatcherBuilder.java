@@ -7,6 +7,10 @@ import com.github.fge.grappa.rules.Rule;
 /**
  * Builder for a repeat matcher
  *
+ * <p>Matchers are created using {@link RepeatMatchers}; this means that a
+ * repetition of a terminal matching exactly one character is matched by a
+ * specialized, scanning matcher, whatever its bounds.</p>
+ *
  * @param <V> parameter type of the elements on the parser stack
  *
  * @see BaseParser#repeat(Object)
@@ -23,24 +27,24 @@ public final class RepeatMatcherBuilder<V>
     @Override
     protected Rule boundedDown(final int minCycles)
     {
-        return new BoundedDownRepeatMatcher(rule, minCycles);
+        return RepeatMatchers.create(rule, minCycles, RepeatMatchers.UNBOUNDED);
     }
 
     @Override
     protected Rule boundedUp(final int maxCycles)
     {
-        return new BoundedUpRepeatMatcher(rule, maxCycles);
+        return RepeatMatchers.create(rule, 0, maxCycles);
     }
 
     @Override
     protected Rule exactly(final int nrCycles)
     {
-        return new ExactMatchesRepeatMatcher(rule, nrCycles);
+        return RepeatMatchers.create(rule, nrCycles, nrCycles);
     }
 
     @Override
     protected Rule boundedBoth(final int minCycles, final int maxCycles)
     {
-        return new BoundedBothRepeatMatcher(rule, minCycles, maxCycles);
+        return RepeatMatchers.create(rule, minCycles, maxCycles);
     }
 }
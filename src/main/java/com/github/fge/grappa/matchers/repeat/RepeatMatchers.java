@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.repeat;
+
+import com.github.fge.grappa.matchers.AnyMatcher;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.unicode.CodePointMatcher;
+import com.github.fge.grappa.matchers.unicode.CodePointRangeMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.Characters;
+
+/**
+ * Factory for repeat matchers
+ *
+ * <p>The matcher returned depends on the bounds of the repetition and, when
+ * the repeated rule is a terminal matching exactly one character (or code
+ * point), on this rule: such repetitions are matched by a {@link
+ * CharSpanMatcher} or a {@link CodePointSpanMatcher}, which scan the input in
+ * a single loop instead of running the rule once per character.</p>
+ */
+public final class RepeatMatchers
+{
+    /**
+     * Maximum number of cycles of a repetition without an upper bound
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private RepeatMatchers()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Create a repeat matcher
+     *
+     * @param subRule the rule to repeat
+     * @param minCycles the minimum number of cycles (inclusive)
+     * @param maxCycles the maximum number of cycles (inclusive), or {@link
+     * #UNBOUNDED}
+     * @return a matcher
+     */
+    public static RepeatMatcher create(final Rule subRule, final int minCycles,
+        final int maxCycles)
+    {
+        final Characters characters = charactersOf(subRule);
+
+        if (characters != null)
+            return new CharSpanMatcher(subRule, characters, minCycles,
+                maxCycles);
+
+        if (subRule instanceof CodePointRangeMatcher) {
+            final CodePointRangeMatcher matcher
+                = (CodePointRangeMatcher) subRule;
+            return new CodePointSpanMatcher(subRule, matcher.getLowerBound(),
+                matcher.getUpperBound(), minCycles, maxCycles);
+        }
+
+        if (subRule instanceof CodePointMatcher) {
+            final int codePoint = ((CodePointMatcher) subRule).getCodePoint();
+            return new CodePointSpanMatcher(subRule, codePoint, codePoint,
+                minCycles, maxCycles);
+        }
+
+        if (maxCycles == UNBOUNDED)
+            return new BoundedDownRepeatMatcher(subRule, minCycles);
+        if (minCycles == 0)
+            return new BoundedUpRepeatMatcher(subRule, maxCycles);
+        return minCycles == maxCycles
+            ? new ExactMatchesRepeatMatcher(subRule, minCycles)
+            : new BoundedBothRepeatMatcher(subRule, minCycles, maxCycles);
+    }
+
+    /*
+     * The set of characters matched by a terminal matching exactly one char,
+     * or null if the rule is not such a terminal
+     */
+    private static Characters charactersOf(final Rule rule)
+    {
+        if (rule instanceof CharMatcher)
+            return Characters.of(((CharMatcher) rule).getCharacter());
+        if (rule instanceof CharRangeMatcher) {
+            final CharRangeMatcher matcher = (CharRangeMatcher) rule;
+            return Characters.range(matcher.getLowerBound(),
+                matcher.getUpperBound());
+        }
+        if (rule instanceof AnyOfMatcher)
+            return ((AnyOfMatcher) rule).getCharacters();
+        if (rule instanceof AnyMatcher)
+            return Characters.ALL;
+        return null;
+    }
+}
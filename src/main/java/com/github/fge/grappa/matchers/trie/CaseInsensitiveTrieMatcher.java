@@ -17,33 +17,41 @@
 package com.github.fge.grappa.matchers.trie;
 
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
 import javax.annotation.concurrent.Immutable;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * A case insensitive trie matcher
  *
  * <p>This is the matcher used by {@link BaseParser#trieIgnoreCase(Collection)
- * trieIgnoreCase()}.</p>
+ * trieIgnoreCase()}. It uses the case folded version of the trie it is given
+ * (see {@link Trie#caseFolded()}).</p>
  *
  * @see Trie
  */
 @Immutable
 public final class CaseInsensitiveTrieMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
+    private static final int ASCII_SIZE = 128;
+
     private final Trie trie;
 
     public CaseInsensitiveTrieMatcher(final Trie trie)
     {
         super("trieIgnoreCase(" + Objects.requireNonNull(trie).getNrWords()
             + " strings)");
-        this.trie = trie;
+        this.trie = trie.caseFolded();
     }
 
     @Override
@@ -61,31 +69,32 @@ public final class CaseInsensitiveTrieMatcher
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
-        /*
-         * Since the trie knows about the length of its possible longest match,
-         * extract that many characters from the buffer. Remind that .extract()
-         * will adjust illegal indices automatically.
-         *
-         * Convert the word to lowercase, since all characters are stored as
-         * lowercase in the trie.
-         */
-        final int maxLength = trie.getMaxLength();
-        final int index = context.getCurrentIndex();
-        final String input = context.getInputBuffer()
-            .extract(index, index + maxLength);
+        final int ret
+            = trie.match(context.getInputBuffer(), context.getCurrentIndex());
 
-        /*
-         * We now just have to trie and search... (pun intended)
-         */
-        final int ret = trie.search(input, true);
         if (ret == -1)
             return false;
 
-        /*
-         * and since the result, when positive, is the length of the match,
-         * advance the index in the buffer by that many positions.
-         */
         context.advanceIndex(ret);
         return true;
     }
+
+    /*
+     * The trie is case folded, and ASCII characters only fold to ASCII
+     * characters; an ASCII character of the input can therefore only match a
+     * first code point of the trie if it is its lower or upper case version.
+     * Other characters are never excluded by first sets.
+     */
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        FirstSet ret = FirstSet.NONE;
+
+        for (final int c: trie.getFirstCodePoints())
+            if (c < ASCII_SIZE)
+                ret = ret.union(FirstSet.of(Character.toLowerCase((char) c)))
+                    .union(FirstSet.of(Character.toUpperCase((char) c)));
+
+        return ret;
+    }
 }
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fge.grappa.matchers.trie;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A builder for a {@link Trie} minimizing the resulting automaton
+ *
+ * <p>Unlike a {@link TrieBuilder}, this builder does not create a state per
+ * distinct prefix: states with the same outgoing edges are merged, which
+ * means that words share their common suffixes as well as their common
+ * prefixes. The result is the minimal deterministic acyclic automaton (also
+ * known as a DAFSA, or DAWG) recognizing the words; it is matched exactly
+ * like any other trie, that is, the longest word wins.</p>
+ *
+ * <p>Words are only recorded when added; the automaton is built, using the
+ * incremental algorithm for sorted words of Daciuk et al., when {@link
+ * #build()} is called. Only the states of the minimal automaton, plus those
+ * on the path of the word being inserted, ever exist during the build.</p>
+ *
+ * <p>With large word lists, you may want to build the trie only once and
+ * load it afterwards; see {@link Trie#writeTo(java.io.OutputStream)} and
+ * {@link Trie#readFrom(java.io.InputStream)}.</p>
+ *
+ * @since 1.0.0-beta.6
+ */
+public final class DafsaBuilder
+{
+    private final boolean caseFolded;
+    private final List<String> words = new ArrayList<>();
+    private int maxLength = 0;
+
+    DafsaBuilder(final boolean caseFolded)
+    {
+        this.caseFolded = caseFolded;
+    }
+
+    /**
+     * Add one word to the trie
+     *
+     * @param word the word to add
+     * @return this
+     * @throws IllegalArgumentException word is empty
+     */
+    public DafsaBuilder addWord(@Nonnull final String word)
+    {
+        Objects.requireNonNull(word);
+
+        final int length = word.length();
+
+        if (length == 0)
+            throw new IllegalArgumentException("a trie cannot have empty "
+                + "strings (use EMPTY instead)");
+
+        words.add(caseFolded ? fold(word) : word);
+        maxLength = Math.max(maxLength, length);
+        return this;
+    }
+
+    public Trie build()
+    {
+        final String[] sorted = words.toArray(new String[words.size()]);
+        Arrays.sort(sorted, DafsaBuilder::compareCodePoints);
+
+        final Map<State, State> register = new HashMap<>();
+        final State root = new State();
+
+        // the states on the path of the previous word; path[0] is the root
+        State[] path = new State[16];
+        int depth = 0;
+        int nrWords = 0;
+        String previous = "";
+
+        path[0] = root;
+
+        for (final String word: sorted) {
+            if (word.equals(previous))
+                continue;
+
+            // walk the prefix this word has in common with the previous one
+            int prefixDepth = 0;
+            int index = 0;
+            int codePoint;
+
+            while (index < word.length() && prefixDepth < depth) {
+                codePoint = word.codePointAt(index);
+                if (path[prefixDepth].lastLabel() != codePoint)
+                    break;
+                index += Character.charCount(codePoint);
+                prefixDepth++;
+            }
+
+            // the rest of the previous word will not change anymore
+            minimize(register, path, prefixDepth, depth);
+
+            depth = prefixDepth;
+
+            while (index < word.length()) {
+                codePoint = word.codePointAt(index);
+                index += Character.charCount(codePoint);
+                if (depth + 1 == path.length)
+                    path = Arrays.copyOf(path, path.length * 2);
+                path[depth + 1] = path[depth].addEdge(codePoint);
+                depth++;
+            }
+
+            path[depth].accepting = true;
+            nrWords++;
+            previous = word;
+        }
+
+        minimize(register, path, 0, depth);
+
+        return compile(root, nrWords);
+    }
+
+    /*
+     * Replace the states of the path from the deepest one up to (excluding)
+     * the state at depth "from" with their equivalent registered state, if
+     * any; register them otherwise
+     */
+    private static void minimize(final Map<State, State> register,
+        final State[] path, final int from, final int to)
+    {
+        State state;
+        State registered;
+
+        for (int depth = to; depth > from; depth--) {
+            state = path[depth];
+            registered = register.putIfAbsent(state, state);
+            if (registered != null)
+                path[depth - 1].replaceLastTarget(registered);
+        }
+    }
+
+    private Trie compile(final State root, final int nrWords)
+    {
+        final State[] states = numberStates(root);
+        final int nrStates = states.length;
+
+        int nrEdges = 0;
+        for (final State state: states)
+            nrEdges += state.nrEdges;
+
+        final int[] edgeStart = new int[nrStates + 1];
+        final int[] labels = new int[nrEdges];
+        final int[] targets = new int[nrEdges];
+        final boolean[] accepting = new boolean[nrStates];
+
+        int edge = 0;
+
+        for (int id = 0; id < nrStates; id++) {
+            final State state = states[id];
+            edgeStart[id] = edge;
+            accepting[id] = state.accepting;
+            for (int i = 0; i < state.nrEdges; i++) {
+                labels[edge] = state.labels[i];
+                targets[edge] = state.targets[i].id;
+                edge++;
+            }
+        }
+
+        edgeStart[nrStates] = nrEdges;
+
+        return new Trie(edgeStart, labels, targets, accepting, caseFolded,
+            nrWords, maxLength);
+    }
+
+    /*
+     * Number the states in topological order (reverse postorder of a depth
+     * first walk), so that the root is state 0 and that all edges lead to a
+     * state with a higher number
+     */
+    private static State[] numberStates(final State root)
+    {
+        final Map<State, Boolean> seen = new IdentityHashMap<>();
+        final List<State> postOrder = new ArrayList<>();
+
+        // the states being visited, and the index of their next edge
+        State[] stack = new State[16];
+        int[] nextEdge = new int[16];
+        int top = 0;
+
+        stack[0] = root;
+        seen.put(root, Boolean.TRUE);
+
+        State state;
+        State target;
+
+        while (top >= 0) {
+            state = stack[top];
+            if (nextEdge[top] == state.nrEdges) {
+                postOrder.add(state);
+                top--;
+                continue;
+            }
+            target = state.targets[nextEdge[top]++];
+            if (seen.put(target, Boolean.TRUE) != null)
+                continue;
+            if (++top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+                nextEdge = Arrays.copyOf(nextEdge, top * 2);
+            }
+            stack[top] = target;
+            nextEdge[top] = 0;
+        }
+
+        final int nrStates = postOrder.size();
+        final State[] ret = new State[nrStates];
+
+        for (int i = 0; i < nrStates; i++) {
+            state = postOrder.get(nrStates - i - 1);
+            state.id = i;
+            ret[i] = state;
+        }
+
+        return ret;
+    }
+
+    private static String fold(final String word)
+    {
+        final StringBuilder sb = new StringBuilder(word.length());
+
+        word.codePoints().map(Trie::fold).forEach(sb::appendCodePoint);
+        return sb.toString();
+    }
+
+    /*
+     * Edges of a state must be created in ascending code point order; the
+     * natural order of strings is the order of UTF-16 code units, which is
+     * not the same for code points above U+FFFF
+     */
+    private static int compareCodePoints(final String first,
+        final String second)
+    {
+        final int length = Math.min(first.length(), second.length());
+        int index = 0;
+        int c1, c2;
+
+        while (index < length) {
+            c1 = first.codePointAt(index);
+            c2 = second.codePointAt(index);
+            if (c1 != c2)
+                return Integer.compare(c1, c2);
+            index += Character.charCount(c1);
+        }
+
+        return first.length() - second.length();
+    }
+
+    /*
+     * A state under construction
+     *
+     * Two states are equal if they are both accepting, or both not, and have
+     * the same edges leading to the same states. Since states are only ever
+     * compared once their targets are registered, those are compared by
+     * identity.
+     */
+    private static final class State
+    {
+        private static final int[] NO_LABELS = new int[0];
+        private static final State[] NO_TARGETS = new State[0];
+
+        private int[] labels = NO_LABELS;
+        private State[] targets = NO_TARGETS;
+        private int nrEdges = 0;
+        private boolean accepting = false;
+        private int id;
+
+        private int lastLabel()
+        {
+            return nrEdges == 0 ? -1 : labels[nrEdges - 1];
+        }
+
+        private State addEdge(final int label)
+        {
+            if (nrEdges == labels.length) {
+                final int size = Math.max(2, nrEdges * 2);
+                labels = Arrays.copyOf(labels, size);
+                targets = Arrays.copyOf(targets, size);
+            }
+
+            final State state = new State();
+            labels[nrEdges] = label;
+            targets[nrEdges] = state;
+            nrEdges++;
+            return state;
+        }
+
+        private void replaceLastTarget(final State state)
+        {
+            targets[nrEdges - 1] = state;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int ret = accepting ? 1 : 0;
+
+            for (int i = 0; i < nrEdges; i++)
+                ret = 31 * (31 * ret + labels[i])
+                    + System.identityHashCode(targets[i]);
+
+            return ret;
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof State))
+                return false;
+
+            final State other = (State) obj;
+
+            if (accepting != other.accepting || nrEdges != other.nrEdges)
+                return false;
+
+            for (int i = 0; i < nrEdges; i++)
+                if (labels[i] != other.labels[i]
+                    || targets[i] != other.targets[i])
+                    return false;
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.trie;
+
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
+import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Var;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A trie matcher producing the value associated with the matched word
+ *
+ * <p>This is the matcher used by {@link BaseParser#trie(Map)} and {@link
+ * BaseParser#trie(Map, Var)}. It matches exactly like a {@link TrieMatcher};
+ * on success, the value associated with the longest matched word is either
+ * pushed onto the value stack, or set into a {@link Var}.</p>
+ *
+ * <p>Values are attached to the accepting states of the trie, which is not
+ * minimized for this reason; no string is ever created, and no map lookup is
+ * ever performed, when matching.</p>
+ *
+ * @param <T> type of the values
+ *
+ * @since 1.0.0-beta.6
+ */
+@Immutable
+public final class MappedTrieMatcher<T>
+    extends AbstractMatcher
+    implements FirstSetProvider
+{
+    private static final int ASCII_SIZE = 128;
+
+    private final Trie trie;
+    // values indexed by accepting state
+    private final Object[] values;
+    @Nullable
+    private final Var<T> var;
+
+    /**
+     * Constructor
+     *
+     * @param map the words and their associated values
+     * @param var the var to set values into, or null to push them onto the
+     * value stack
+     * @throws IllegalArgumentException a word is empty
+     */
+    public MappedTrieMatcher(final Map<String, ? extends T> map,
+        @Nullable final Var<T> var)
+    {
+        super("trie(" + map.size() + " strings)");
+
+        final TrieBuilder builder = Trie.newBuilder();
+        map.keySet().forEach(builder::addWord);
+
+        trie = builder.build();
+        values = new Object[trie.getNrStates()];
+        for (final Map.Entry<String, ? extends T> entry: map.entrySet())
+            values[trie.acceptingState(entry.getKey())]
+                = Objects.requireNonNull(entry.getValue());
+        this.var = var;
+    }
+
+    /**
+     * Tell whether this matcher pushes values onto the value stack
+     *
+     * @return true if values are pushed, false if they are set into a var
+     */
+    public boolean pushesValues()
+    {
+        return var == null;
+    }
+
+    @Override
+    public MatcherType getType()
+    {
+        return MatcherType.TERMINAL;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> boolean match(final MatcherContext<V> context)
+    {
+        final long ret = trie.longestMatch(context.getInputBuffer(),
+            context.getCurrentIndex());
+
+        if (ret == -1L)
+            return false;
+
+        context.advanceIndex((int) ret);
+
+        final Object value = values[(int) (ret >>> 32)];
+
+        if (var == null)
+            context.getValueStack().push((V) value);
+        else
+            var.set((T) value);
+
+        return true;
+    }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        FirstSet ret = FirstSet.NONE;
+
+        // other characters are never excluded by first sets
+        for (final int c: trie.getFirstCodePoints())
+            if (c < ASCII_SIZE)
+                ret = ret.union(FirstSet.of((char) c));
+
+        return ret;
+    }
+}
@@ -13,10 +13,18 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.github.fge.grappa.matchers.trie;
 
+import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * "User-facing" class of a {@link TrieMatcher}
@@ -25,22 +33,46 @@ import javax.annotation.concurrent.Immutable;
  * href="http://en.wikipedia.org/wiki/Trie" target="_blank">trie</a> designed
  * to search for string constants.</p>
  *
- * <p>It is a rather "naïve" implementation in that it is only a trie and not
- * a much more sophisticated <a href="http://en.wikipedia.org/wiki/Radix_tree"
- * target="_blank">radix tree</a>, but it is efficient enough that searching
- * for a string among a series of strings is very fast.</p>
+ * <p>The trie is compiled into a state transition table held in a few flat
+ * arrays: for each state, the code points leading out of it, in ascending
+ * order, and the states they lead to. A search walks this table iteratively,
+ * reading the input directly and without creating any object.</p>
+ *
+ * <p>Words, and inputs, are read as sequences of Unicode code points;
+ * characters outside the BMP are therefore fully supported.</p>
  *
- * <p>The core of the trie search algorithm is implemented by {@link TrieNode}.
- * </p>
+ * <p>A trie may also be case folded (see {@link #caseFolded()}), in which case
+ * both its words and its inputs are compared once converted to upper case,
+ * then to lower case, one code point at a time; this is the same comparison as
+ * {@link String#equalsIgnoreCase(String)} does, but applied to code
+ * points.</p>
+ *
+ * <p>Tries can be built either with a {@link TrieBuilder}, which suits small
+ * word lists, or with a {@link DafsaBuilder}, which minimizes the automaton
+ * and suits large ones. Once built, a trie can also be saved to, and loaded
+ * from, a compact binary form (see {@link #writeTo(OutputStream)} and {@link
+ * #readFrom(InputStream)}).</p>
  *
  * @since 1.0.0-beta.6
  */
 @Immutable
 public final class Trie
 {
+    private static final int MAGIC = 0x47545249; // "GTRI"
+    private static final int VERSION = 1;
+    private static final int CASE_FOLDED = 1;
+
+    private static final int IO_BUFFER_SIZE = 8192;
+
+    // edges of state n are at indices edgeStart[n] to edgeStart[n + 1] - 1
+    private final int[] edgeStart;
+    private final int[] labels;
+    private final int[] targets;
+    private final boolean[] accepting;
+
+    private final boolean caseFolded;
     private final int nrWords;
     private final int maxLength;
-    private final TrieNode node;
 
     /**
      * Create a new builder for this class
@@ -52,6 +84,84 @@ public final class Trie
         return new TrieBuilder();
     }
 
+    /**
+     * Create a new builder for a minimal trie
+     *
+     * @return a builder
+     *
+     * @see DafsaBuilder
+     */
+    public static DafsaBuilder newDafsaBuilder()
+    {
+        return new DafsaBuilder(false);
+    }
+
+    /**
+     * Load a trie written by {@link #writeTo(OutputStream)}
+     *
+     * <p>The stream is read up to the end of the trie data, and is not closed.
+     * </p>
+     *
+     * @param in the stream to read from
+     * @return the trie
+     * @throws IOException read error, or the data is not a valid trie
+     */
+    public static Trie readFrom(@Nonnull final InputStream in)
+        throws IOException
+    {
+        Objects.requireNonNull(in);
+
+        final DataInputStream data = new DataInputStream(in);
+
+        if (data.readInt() != MAGIC)
+            throw new IOException("not a trie");
+
+        final int version = data.readInt();
+        if (version != VERSION)
+            throw new IOException("unsupported trie format version "
+                + version);
+
+        final int flags = data.readInt();
+        final int nrWords = data.readInt();
+        final int maxLength = data.readInt();
+        final int nrStates = data.readInt();
+        final int nrEdges = data.readInt();
+
+        if (nrWords < 0 || maxLength < 0 || nrStates < 1
+            || nrStates == Integer.MAX_VALUE || nrEdges < 0)
+            throw new IOException("corrupted trie: invalid header");
+
+        final int[] edgeStart = readInts(data, nrStates + 1);
+        final int[] labels = readInts(data, nrEdges);
+        final int[] targets = readInts(data, nrEdges);
+
+        // edge starts have been read, so this is bounded by the data size
+        final byte[] bits = new byte[(nrStates - 1) / 8 + 1];
+        data.readFully(bits);
+
+        final boolean[] accepting = new boolean[nrStates];
+        for (int state = 0; state < nrStates; state++)
+            accepting[state] = (bits[state >> 3] & 1 << (state & 7)) != 0;
+
+        checkTransitions(edgeStart, labels, targets);
+
+        return new Trie(edgeStart, labels, targets, accepting,
+            (flags & CASE_FOLDED) != 0, nrWords, maxLength);
+    }
+
+    Trie(final int[] edgeStart, final int[] labels, final int[] targets,
+        final boolean[] accepting, final boolean caseFolded, final int nrWords,
+        final int maxLength)
+    {
+        this.edgeStart = edgeStart;
+        this.labels = labels;
+        this.targets = targets;
+        this.accepting = accepting;
+        this.caseFolded = caseFolded;
+        this.nrWords = nrWords;
+        this.maxLength = maxLength;
+    }
+
     /**
      * Get the number of words injected into this trie
      *
@@ -72,21 +182,267 @@ public final class Trie
         return maxLength;
     }
 
+    /**
+     * Tell whether this trie is case folded
+     *
+     * @return true if this trie is case folded
+     */
+    public boolean isCaseFolded()
+    {
+        return caseFolded;
+    }
+
+    /**
+     * Return a case folded version of this trie
+     *
+     * @return a case folded trie with the same words; this trie if it is
+     * already case folded
+     */
+    public Trie caseFolded()
+    {
+        if (caseFolded)
+            return this;
+
+        final DafsaBuilder builder = new DafsaBuilder(true);
+        addWords(builder, 0, new StringBuilder());
+        return builder.build();
+    }
+
+    /**
+     * Search for the longest word of this trie at a given index of an input
+     *
+     * @param input the input
+     * @param index the index
+     * @return the length of the match (in chars), or -1 if not found
+     */
+    public int match(final CharSequence input, final int index)
+    {
+        return (int) longestMatch(input, index);
+    }
+
+    /**
+     * Write this trie in binary form
+     *
+     * <p>The stream is flushed but not closed.</p>
+     *
+     * @param out the stream to write to
+     * @throws IOException write error
+     *
+     * @see #readFrom(InputStream)
+     */
+    public void writeTo(@Nonnull final OutputStream out)
+        throws IOException
+    {
+        Objects.requireNonNull(out);
+
+        final int nrStates = accepting.length;
+        final DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(caseFolded ? CASE_FOLDED : 0);
+        data.writeInt(nrWords);
+        data.writeInt(maxLength);
+        data.writeInt(nrStates);
+        data.writeInt(labels.length);
+
+        writeInts(data, edgeStart);
+        writeInts(data, labels);
+        writeInts(data, targets);
+
+        // edge starts have been read, so this is bounded by the data size
+        final byte[] bits = new byte[(nrStates - 1) / 8 + 1];
+        for (int state = 0; state < nrStates; state++)
+            if (accepting[state])
+                bits[state >> 3] |= 1 << (state & 7);
+
+        data.write(bits);
+        data.flush();
+    }
+
     /**
      * Search for a string into this trie
      *
      * @param needle the string to search
+     * @param ignoreCase whether case should be ignored
      * @return the length of the match (ie, the string) or -1 if not found
+     *
+     * @deprecated use {@link #match(CharSequence, int)} instead (on the case
+     * folded version of this trie to ignore case)
      */
+    @Deprecated
     public int search(final String needle, final boolean ignoreCase)
     {
-        return node.search(needle, ignoreCase);
+        return (ignoreCase ? caseFolded() : this).match(needle, 0);
+    }
+
+    /*
+     * Search for the longest word at a given index of an input; return -1 if
+     * not found, otherwise the accepting state in the upper 32 bits and the
+     * length of the match in the lower 32 bits
+     */
+    long longestMatch(final CharSequence input, final int index)
+    {
+        final int length = input.length();
+        long ret = -1L;
+        int state = 0;
+        int position = index;
+        int codePoint;
+
+        while (position < length) {
+            codePoint = Character.codePointAt(input, position);
+            position += Character.charCount(codePoint);
+            if (caseFolded)
+                codePoint = fold(codePoint);
+            state = nextState(state, codePoint);
+            if (state == -1)
+                break;
+            if (accepting[state])
+                ret = (long) state << 32 | position - index;
+        }
+
+        return ret;
+    }
+
+    /*
+     * The accepting state reached with exactly the given word, or -1 if the
+     * word is not in this trie
+     */
+    int acceptingState(final String word)
+    {
+        final long ret = longestMatch(word, 0);
+
+        return (int) ret == word.length() ? (int) (ret >>> 32) : -1;
     }
 
-    Trie(final TrieBuilder builder)
+    int getNrStates()
     {
-        nrWords = builder.nrWords;
-        maxLength = builder.maxLength;
-        node = builder.nodeBuilder.build();
+        return accepting.length;
+    }
+
+    /*
+     * The code points words of this trie can start with, in ascending order
+     */
+    int[] getFirstCodePoints()
+    {
+        return Arrays.copyOfRange(labels, edgeStart[0], edgeStart[1]);
+    }
+
+    static int fold(final int codePoint)
+    {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+
+    private int nextState(final int state, final int codePoint)
+    {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        int middle;
+        int label;
+
+        while (low <= high) {
+            middle = (low + high) >>> 1;
+            label = labels[middle];
+            if (label < codePoint)
+                low = middle + 1;
+            else if (label > codePoint)
+                high = middle - 1;
+            else
+                return targets[middle];
+        }
+
+        return -1;
+    }
+
+    private static void writeInts(final DataOutputStream data,
+        final int[] array)
+        throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+        int index = 0;
+
+        while (index < array.length) {
+            final int count = Math.min(array.length - index,
+                IO_BUFFER_SIZE / Integer.BYTES);
+            buffer.clear();
+            buffer.asIntBuffer().put(array, index, count);
+            data.write(buffer.array(), 0, count * Integer.BYTES);
+            index += count;
+        }
+    }
+
+    /*
+     * The size comes from the data itself, which may be corrupted: the array
+     * is grown as data arrives rather than allocated upfront, so that a bogus
+     * size fails with an EOFException instead of exhausting memory.
+     */
+    private static int[] readInts(final DataInputStream data, final int size)
+        throws IOException
+    {
+        final int chunkSize = IO_BUFFER_SIZE / Integer.BYTES;
+        int[] ret = new int[Math.min(size, chunkSize)];
+        final byte[] bytes = new byte[IO_BUFFER_SIZE];
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int index = 0;
+
+        while (index < size) {
+            final int count = Math.min(size - index, chunkSize);
+            data.readFully(bytes, 0, count * Integer.BYTES);
+            if (index + count > ret.length)
+                ret = Arrays.copyOf(ret,
+                    (int) Math.min(size, 2L * ret.length));
+            buffer.clear();
+            buffer.asIntBuffer().get(ret, index, count);
+            index += count;
+        }
+
+        return ret;
+    }
+
+    /*
+     * Check that the transitions of a loaded trie are such that matching, or
+     * enumerating the words, always terminates and never fails: edge ranges
+     * are well formed, labels are code points in ascending order within a
+     * state (since they are binary searched), and edges always lead to a
+     * state with a higher number (which guarantees there is no cycle).
+     */
+    private static void checkTransitions(final int[] edgeStart,
+        final int[] labels, final int[] targets)
+        throws IOException
+    {
+        final int nrStates = edgeStart.length - 1;
+
+        if (edgeStart[0] != 0 || edgeStart[nrStates] != labels.length)
+            throw new IOException("corrupted trie: invalid edge ranges");
+
+        for (int state = 0; state < nrStates; state++) {
+            final int start = edgeStart[state];
+            final int end = edgeStart[state + 1];
+            if (end < start || end > labels.length)
+                throw new IOException("corrupted trie: invalid edge ranges");
+            for (int edge = start; edge < end; edge++) {
+                if (!Character.isValidCodePoint(labels[edge])
+                    || edge > start && labels[edge] <= labels[edge - 1])
+                    throw new IOException("corrupted trie: invalid labels");
+                if (targets[edge] <= state || targets[edge] >= nrStates)
+                    throw new IOException("corrupted trie: invalid targets");
+            }
+        }
+    }
+
+    private void addWords(final DafsaBuilder builder, final int state,
+        final StringBuilder prefix)
+    {
+        if (accepting[state])
+            builder.addWord(prefix.toString());
+
+        final int length = prefix.length();
+
+        for (int edge = edgeStart[state]; edge < edgeStart[state + 1];
+            edge++) {
+            prefix.appendCodePoint(labels[edge]);
+            addWords(builder, targets[edge], prefix);
+            prefix.setLength(length);
+        }
     }
 }
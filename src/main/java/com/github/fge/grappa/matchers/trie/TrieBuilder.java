@@ -13,23 +13,34 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.github.fge.grappa.matchers.trie;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeMap;
 
 /**
  * A builder for a {@link Trie}
  *
+ * <p>Words are first added to a tree of nodes, one node per distinct prefix;
+ * when {@link #build()} is called, this tree is compiled into the flat arrays
+ * of the trie.</p>
+ *
+ * <p>Since the tree needs one node per prefix, this builder is better suited
+ * to small word lists, such as keywords; see {@link DafsaBuilder} for large
+ * ones.</p>
+ *
  * @since 1.0.0-beta.6
  */
 public final class TrieBuilder
 {
-    int nrWords = 0;
-    int maxLength = 0;
-    final TrieNodeBuilder nodeBuilder
-        = new TrieNodeBuilder();
+    private final Node root = new Node(-1);
+    private int maxLength = 0;
 
     TrieBuilder()
     {
@@ -51,14 +62,89 @@ public final class TrieBuilder
         if (length == 0)
             throw new IllegalArgumentException("a trie cannot have empty "
                 + "strings (use EMPTY instead)");
-        nrWords++;
+
+        Node node = root;
+        int index = 0;
+        int codePoint;
+
+        while (index < length) {
+            codePoint = word.codePointAt(index);
+            index += Character.charCount(codePoint);
+            node = node.next.computeIfAbsent(codePoint, Node::new);
+        }
+
+        node.fullWord = true;
         maxLength = Math.max(maxLength, length);
-        nodeBuilder.addWord(word);
         return this;
     }
 
     public Trie build()
     {
-        return new Trie(this);
+        final Node[] states = numberStates();
+        final int nrStates = states.length;
+
+        // in a tree, all states but the root have exactly one incoming edge
+        final int[] edgeStart = new int[nrStates + 1];
+        final int[] labels = new int[nrStates - 1];
+        final int[] targets = new int[nrStates - 1];
+        final boolean[] accepting = new boolean[nrStates];
+
+        int nrWords = 0;
+        int edge = 0;
+
+        for (int state = 0; state < nrStates; state++) {
+            final Node node = states[state];
+            edgeStart[state] = edge;
+            if (node.fullWord) {
+                accepting[state] = true;
+                nrWords++;
+            }
+            for (final Node child: node.next.values()) {
+                labels[edge] = child.label;
+                targets[edge] = child.id;
+                edge++;
+            }
+        }
+
+        edgeStart[nrStates] = edge;
+
+        return new Trie(edgeStart, labels, targets, accepting, false, nrWords,
+            maxLength);
+    }
+
+    /*
+     * Number the nodes breadth first, so that the root is state 0 and that
+     * all edges lead to a state with a higher number
+     */
+    private Node[] numberStates()
+    {
+        final List<Node> states = new ArrayList<>();
+        final Queue<Node> queue = new ArrayDeque<>();
+
+        queue.add(root);
+
+        Node node;
+
+        while (!queue.isEmpty()) {
+            node = queue.remove();
+            node.id = states.size();
+            states.add(node);
+            queue.addAll(node.next.values());
+        }
+
+        return states.toArray(new Node[states.size()]);
+    }
+
+    private static final class Node
+    {
+        private final int label;
+        private final Map<Integer, Node> next = new TreeMap<>();
+        private boolean fullWord = false;
+        private int id;
+
+        private Node(final int label)
+        {
+            this.label = label;
+        }
     }
 }
@@ -17,13 +17,17 @@
 package com.github.fge.grappa.matchers.trie;
 
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
 import javax.annotation.concurrent.Immutable;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * The trie matcher
@@ -36,7 +40,10 @@ import java.util.Objects;
 @Immutable
 public final class TrieMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
+    private static final int ASCII_SIZE = 128;
+
     private final Trie trie;
 
     public TrieMatcher(final Trie trie)
@@ -61,28 +68,26 @@ public final class TrieMatcher
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
-        /*
-         * Since the trie knows about the length of its possible longest match,
-         * extract that many characters from the buffer. Remind that .extract()
-         * will adjust illegal indices automatically.
-         */
-        final int maxLength = trie.getMaxLength();
-        final int index = context.getCurrentIndex();
-        final String input = context.getInputBuffer()
-            .extract(index, index + maxLength);
+        final int ret
+            = trie.match(context.getInputBuffer(), context.getCurrentIndex());
 
-        /*
-         * We now just have to trie and search... (pun intended)
-         */
-        final int ret = trie.search(input, false);
         if (ret == -1)
             return false;
 
-        /*
-         * and since the result, when positive, is the length of the match,
-         * advance the index in the buffer by that many positions.
-         */
         context.advanceIndex(ret);
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        FirstSet ret = FirstSet.NONE;
+
+        // other characters are never excluded by first sets
+        for (final int c: trie.getFirstCodePoints())
+            if (c < ASCII_SIZE)
+                ret = ret.union(FirstSet.of((char) c));
+
+        return ret;
+    }
 }
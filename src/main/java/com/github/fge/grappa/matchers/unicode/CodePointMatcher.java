@@ -18,10 +18,15 @@ package com.github.fge.grappa.matchers.unicode;
 
 import com.github.fge.grappa.buffers.InputBuffer;
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 /**
  * A single Unicode code point matcher
  *
@@ -32,6 +37,7 @@ import com.github.fge.grappa.run.context.MatcherContext;
  */
 public final class CodePointMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     private final int codePoint;
     private final int codePointLength;
@@ -49,6 +55,11 @@ public final class CodePointMatcher
         return MatcherType.TERMINAL;
     }
 
+    public int getCodePoint()
+    {
+        return codePoint;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
@@ -60,4 +71,10 @@ public final class CodePointMatcher
         context.advanceIndex(codePointLength);
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.range(codePoint, codePoint);
+    }
 }
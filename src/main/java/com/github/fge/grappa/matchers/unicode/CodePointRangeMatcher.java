@@ -18,10 +18,15 @@ package com.github.fge.grappa.matchers.unicode;
 
 import com.github.fge.grappa.buffers.InputBuffer;
 import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
+import com.github.fge.grappa.matchers.analysis.FirstSetProvider;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.run.context.MatcherContext;
 
+import java.util.function.Function;
+
 /**
  * Matcher for a range of Unicode code points
  *
@@ -32,6 +37,7 @@ import com.github.fge.grappa.run.context.MatcherContext;
  */
 public final class CodePointRangeMatcher
     extends AbstractMatcher
+    implements FirstSetProvider
 {
     private final int low;
     private final int high;
@@ -49,6 +55,16 @@ public final class CodePointRangeMatcher
         return MatcherType.TERMINAL;
     }
 
+    public int getLowerBound()
+    {
+        return low;
+    }
+
+    public int getUpperBound()
+    {
+        return high;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
@@ -62,4 +78,10 @@ public final class CodePointRangeMatcher
         context.advanceIndex(Character.charCount(codePoint));
         return true;
     }
+
+    @Override
+    public FirstSet getFirstSet(final Function<Matcher, FirstSet> firstSets)
+    {
+        return FirstSet.range(low, high);
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.wrap;
+
+import com.github.fge.grappa.annotations.Memoized;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.WrappingMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.run.memo.MemoTable;
+import com.google.common.base.Preconditions;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Special wrapping matcher memoizing the outcome of a single rule
+ *
+ * <p>This matcher keeps its own {@link MemoTable} for each parsing run, as
+ * part of the state of the run (see {@link MatcherContext#getRunState
+ * getRunState()}); entries therefore never outlive a run.</p>
+ *
+ * @see Memoized
+ */
+public final class MemoizingMatcher
+    implements WrappingMatcher
+{
+    private final Matcher inner;
+    private final int windowSize;
+
+    public MemoizingMatcher(final Rule inner, final int windowSize)
+    {
+        this.inner = Objects.requireNonNull((Matcher) inner, "inner");
+        Preconditions.checkArgument(windowSize > 0,
+            "window size must be strictly positive");
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public MatcherType getType()
+    {
+        return inner.getType();
+    }
+
+    @Override
+    public <V> boolean match(final MatcherContext<V> context)
+    {
+        final MemoTable table = context.getRunState(this,
+            buffer -> new MemoTable(windowSize, buffer.length()));
+
+        return table.match(context, inner::match);
+    }
+
+    // WrappingMatcher
+
+    @Override
+    public Matcher getInner()
+    {
+        return inner;
+    }
+
+    @Override
+    public Matcher withInner(final Matcher inner)
+    {
+        return inner == this.inner ? this
+            : new MemoizingMatcher(inner, windowSize);
+    }
+
+    // GraphNode
+
+    @Override
+    public List<Matcher> getChildren()
+    {
+        return inner.getChildren();
+    }
+
+    // Rule
+
+    @Override
+    public Rule label(final String label)
+    {
+        return new MemoizingMatcher(inner.label(label), windowSize);
+    }
+
+    // Matcher
+
+    @Override
+    public String getLabel()
+    {
+        return inner.getLabel();
+    }
+
+    @Override
+    public boolean hasCustomLabel()
+    {
+        return inner.hasCustomLabel();
+    }
+
+    @Override
+    public <V> MatcherContext<V> getSubContext(final MatcherContext<V> context)
+    {
+        final MatcherContext<V> subContext = inner.getSubContext(context);
+        // we need to inject ourselves here otherwise we get cut out
+        subContext.setMatcher(this);
+        return subContext;
+    }
+
+    @Override
+    public String toString()
+    {
+        return inner.toString();
+    }
+
+    /**
+     * Retrieves the innermost Matcher that is not a MemoizingMatcher.
+     *
+     * @param matcher the matcher to unwrap
+     * @return the given instance if it is not a MemoizingMatcher, otherwise the
+     * innermost Matcher
+     */
+    public static Matcher unwrap(final Matcher matcher)
+    {
+        if (!(matcher instanceof MemoizingMatcher))
+            return matcher;
+        return unwrap(((MemoizingMatcher) matcher).inner);
+    }
+}
@@ -18,9 +18,11 @@ package com.github.fge.grappa.matchers.wrap;
 
 import com.github.fge.grappa.matchers.MatcherType;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.WrappingMatcher;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.MatcherContext;
 import com.github.fge.grappa.support.Var;
+import com.google.common.collect.ImmutableList;
 
 import java.util.List;
 import java.util.Objects;
@@ -33,7 +35,7 @@ import java.util.Objects;
  */
 // TODO: use delegation pattern
 public final class VarFramingMatcher
-    implements Matcher
+    implements WrappingMatcher
 {
     private final Matcher inner;
     private final Var<?>[] variables;
@@ -64,6 +66,31 @@ public final class VarFramingMatcher
         return matched;
     }
 
+    /**
+     * Get the variables this matcher enters and exits frames of
+     *
+     * @return an immutable list of variables
+     */
+    public List<Var<?>> getVariables()
+    {
+        return ImmutableList.copyOf(variables);
+    }
+
+    // WrappingMatcher
+
+    @Override
+    public Matcher getInner()
+    {
+        return inner;
+    }
+
+    @Override
+    public Matcher withInner(final Matcher inner)
+    {
+        return inner == this.inner ? this
+            : new VarFramingMatcher(inner, variables);
+    }
+
     // GraphNode
 
     @Override
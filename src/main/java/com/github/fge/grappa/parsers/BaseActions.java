@@ -21,6 +21,9 @@ import com.github.fge.grappa.exceptions.InvalidGrammarException;
 import com.github.fge.grappa.rules.Action;
 import com.github.fge.grappa.run.context.Context;
 import com.github.fge.grappa.run.context.ContextAware;
+import com.github.fge.grappa.stack.DoubleValueStack;
+import com.github.fge.grappa.stack.IntValueStack;
+import com.github.fge.grappa.stack.LongValueStack;
 import com.github.fge.grappa.stack.ValueStack;
 import com.github.fge.grappa.support.IndexRange;
 import com.github.fge.grappa.support.Position;
@@ -428,6 +431,315 @@ public abstract class BaseActions<V>
         return true;
     }
 
+    /**
+     * Pushes an int onto the value stack
+     *
+     * <p>If the value stack is an {@link IntValueStack}, the value is not
+     * boxed; otherwise, this is equivalent to pushing the boxed value.</p>
+     *
+     * @param value the value to push
+     * @return true
+     */
+    @SuppressWarnings("unchecked")
+    public boolean pushInt(final int value)
+    {
+        check();
+
+        final ValueStack<V> stack = context.getValueStack();
+
+        if (stack instanceof IntValueStack)
+            ((IntValueStack) stack).pushInt(value);
+        else
+            stack.push((V) Integer.valueOf(value));
+        return true;
+    }
+
+    /**
+     * Removes the int at the top of the value stack and returns it
+     *
+     * @return the current top value
+     *
+     * @throws IllegalArgumentException the stack is empty
+     * @throws ClassCastException the value is not an {@link Integer}
+     *
+     * @see #pushInt(int)
+     */
+    public int popInt()
+    {
+        return popInt(0);
+    }
+
+    /**
+     * Removes the int the given number of elements below the top of the
+     * value stack and returns it
+     *
+     * @param down the number of elements to skip before removing the value (0
+     * being equivalent to {@code popInt()})
+     * @return the value
+     *
+     * @throws IllegalArgumentException the stack does not contain enough
+     * elements to perform this operation
+     * @throws ClassCastException the value is not an {@link Integer}
+     *
+     * @see #pushInt(int)
+     */
+    public int popInt(final int down)
+    {
+        check();
+
+        final ValueStack<V> stack = context.getValueStack();
+
+        return stack instanceof IntValueStack
+            ? ((IntValueStack) stack).popInt(down)
+            : (Integer) stack.pop(down);
+    }
+
+    /**
+     * Returns the int at the top of the value stack without removing it
+     *
+     * @return the current top value
+     *
+     * @throws IllegalArgumentException the stack is empty
+     * @throws ClassCastException the value is not an {@link Integer}
+     *
+     * @see #pushInt(int)
+     */
+    public int peekInt()
+    {
+        return peekInt(0);
+    }
+
+    /**
+     * Returns the int the given number of elements below the top of the
+     * value stack without removing it
+     *
+     * @param down the number of elements to skip (0 being equivalent to {@code
+     * peekInt()})
+     * @return the value
+     *
+     * @throws IllegalArgumentException the stack does not contain enough
+     * elements to perform this operation
+     * @throws ClassCastException the value is not an {@link Integer}
+     *
+     * @see #pushInt(int)
+     */
+    public int peekInt(final int down)
+    {
+        check();
+
+        final ValueStack<V> stack = context.getValueStack();
+
+        return stack instanceof IntValueStack
+            ? ((IntValueStack) stack).peekInt(down)
+            : (Integer) stack.peek(down);
+    }
+
+    /**
+     * Pushes a long onto the value stack
+     *
+     * <p>If the value stack is a {@link LongValueStack}, the value is not
+     * boxed; otherwise, this is equivalent to pushing the boxed value.</p>
+     *
+     * @param value the value to push
+     * @return true
+     */
+    @SuppressWarnings("unchecked")
+    public boolean pushLong(final long value)
+    {
+        check();
+
+        final ValueStack<V> stack = context.getValueStack();
+
+        if (stack instanceof LongValueStack)
+            ((LongValueStack) stack).pushLong(value);
+        else
+            stack.push((V) Long.valueOf(value));
+        return true;
+    }
+
+    /**
+     * Removes the long at the top of the value stack and returns it
+     *
+     * @return the current top value
+     *
+     * @throws IllegalArgumentException the stack is empty
+     * @throws ClassCastException the value is not a {@link Long}
+     *
+     * @see #pushLong(long)
+     */
+    public long popLong()
+    {
+        return popLong(0);
+    }
+
+    /**
+     * Removes the long the given number of elements below the top of the
+     * value stack and returns it
+     *
+     * @param down the number of elements to skip before removing the value (0
+     * being equivalent to {@code popLong()})
+     * @return the value
+     *
+     * @throws IllegalArgumentException the stack does not contain enough
+     * elements to perform this operation
+     * @throws ClassCastException the value is not a {@link Long}
+     *
+     * @see #pushLong(long)
+     */
+    public long popLong(final int down)
+    {
+        check();
+
+        final ValueStack<V> stack = context.getValueStack();
+
+        return stack instanceof LongValueStack
+            ? ((LongValueStack) stack).popLong(down)
+            : (Long) stack.pop(down);
+    }
+
+    /**
+     * Returns the long at the top of the value stack without removing it
+     *
+     * @return the current top value
+     *
+     * @throws IllegalArgumentException the stack is empty
+     * @throws ClassCastException the value is not a {@link Long}
+     *
+     * @see #pushLong(long)
+     */
+    public long peekLong()
+    {
+        return peekLong(0);
+    }
+
+    /**
+     * Returns the long the given number of elements below the top of the
+     * value stack without removing it
+     *
+     * @param down the number of elements to skip (0 being equivalent to {@code
+     * peekLong()})
+     * @return the value
+     *
+     * @throws IllegalArgumentException the stack does not contain enough
+     * elements to perform this operation
+     * @throws ClassCastException the value is not a {@link Long}
+     *
+     * @see #pushLong(long)
+     */
+    public long peekLong(final int down)
+    {
+        check();
+
+        final ValueStack<V> stack = context.getValueStack();
+
+        return stack instanceof LongValueStack
+            ? ((LongValueStack) stack).peekLong(down)
+            : (Long) stack.peek(down);
+    }
+
+    /**
+     * Pushes a double onto the value stack
+     *
+     * <p>If the value stack is a {@link DoubleValueStack}, the value is not
+     * boxed; otherwise, this is equivalent to pushing the boxed value.</p>
+     *
+     * @param value the value to push
+     * @return true
+     */
+    @SuppressWarnings("unchecked")
+    public boolean pushDouble(final double value)
+    {
+        check();
+
+        final ValueStack<V> stack = context.getValueStack();
+
+        if (stack instanceof DoubleValueStack)
+            ((DoubleValueStack) stack).pushDouble(value);
+        else
+            stack.push((V) Double.valueOf(value));
+        return true;
+    }
+
+    /**
+     * Removes the double at the top of the value stack and returns it
+     *
+     * @return the current top value
+     *
+     * @throws IllegalArgumentException the stack is empty
+     * @throws ClassCastException the value is not a {@link Double}
+     *
+     * @see #pushDouble(double)
+     */
+    public double popDouble()
+    {
+        return popDouble(0);
+    }
+
+    /**
+     * Removes the double the given number of elements below the top of the
+     * value stack and returns it
+     *
+     * @param down the number of elements to skip before removing the value (0
+     * being equivalent to {@code popDouble()})
+     * @return the value
+     *
+     * @throws IllegalArgumentException the stack does not contain enough
+     * elements to perform this operation
+     * @throws ClassCastException the value is not a {@link Double}
+     *
+     * @see #pushDouble(double)
+     */
+    public double popDouble(final int down)
+    {
+        check();
+
+        final ValueStack<V> stack = context.getValueStack();
+
+        return stack instanceof DoubleValueStack
+            ? ((DoubleValueStack) stack).popDouble(down)
+            : (Double) stack.pop(down);
+    }
+
+    /**
+     * Returns the double at the top of the value stack without removing it
+     *
+     * @return the current top value
+     *
+     * @throws IllegalArgumentException the stack is empty
+     * @throws ClassCastException the value is not a {@link Double}
+     *
+     * @see #pushDouble(double)
+     */
+    public double peekDouble()
+    {
+        return peekDouble(0);
+    }
+
+    /**
+     * Returns the double the given number of elements below the top of the
+     * value stack without removing it
+     *
+     * @param down the number of elements to skip (0 being equivalent to {@code
+     * peekDouble()})
+     * @return the value
+     *
+     * @throws IllegalArgumentException the stack does not contain enough
+     * elements to perform this operation
+     * @throws ClassCastException the value is not a {@link Double}
+     *
+     * @see #pushDouble(double)
+     */
+    public double peekDouble(final int down)
+    {
+        check();
+
+        final ValueStack<V> stack = context.getValueStack();
+
+        return stack instanceof DoubleValueStack
+            ? ((DoubleValueStack) stack).peekDouble(down)
+            : (Double) stack.peek(down);
+    }
+
     /**
      * Check whether the end of input has been reached by the current context
      *
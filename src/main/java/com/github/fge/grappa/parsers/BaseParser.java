@@ -42,23 +42,26 @@ import com.github.fge.grappa.matchers.predicates.TestMatcher;
 import com.github.fge.grappa.matchers.predicates.TestNotMatcher;
 import com.github.fge.grappa.matchers.repeat.RepeatMatcherBuilder;
 import com.github.fge.grappa.matchers.trie.CaseInsensitiveTrieMatcher;
+import com.github.fge.grappa.matchers.trie.MappedTrieMatcher;
 import com.github.fge.grappa.matchers.trie.Trie;
 import com.github.fge.grappa.matchers.trie.TrieBuilder;
 import com.github.fge.grappa.matchers.trie.TrieMatcher;
-import com.github.fge.grappa.matchers.trie.TrieNode;
 import com.github.fge.grappa.matchers.unicode.CodePointMatcher;
 import com.github.fge.grappa.matchers.unicode.CodePointRangeMatcher;
 import com.github.fge.grappa.rules.Action;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.support.Characters;
+import com.github.fge.grappa.support.Var;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -382,6 +385,35 @@ public abstract class BaseParser<V>
         return new RegexMatcher(regex);
     }
 
+    /**
+     * Match the input text using a Java regular expression, looking ahead at
+     * most a given number of characters
+     *
+     * <p>This is the same as {@link #regex(String)}, except that the regex
+     * only ever sees the given number of characters from the current index
+     * (or less, near the end of the input); in particular, {@code $} and
+     * {@code \z} match at the end of this window.</p>
+     *
+     * <p>Use this method to bound the cost of match attempts which would
+     * otherwise scan far ahead in the input before failing.</p>
+     *
+     * @param regex the regex
+     * @param maxLength the maximum number of characters to look at
+     * @return a rule
+     * @throws InvalidGrammarException maximum length is not strictly positive
+     *
+     * @see #regex(String)
+     */
+    @Cached
+    @DontLabel
+    public Rule regex(final String regex, final int maxLength)
+    {
+        if (maxLength <= 0)
+            throw new InvalidGrammarException("regex lookahead must be"
+                + " strictly positive");
+        return new RegexMatcher(regex, maxLength);
+    }
+
     /**
      * Match the longest possible string among a series of strings (case
      * sensitive)
@@ -517,14 +549,13 @@ public abstract class BaseParser<V>
      * @return a rule
      *
      * @see TrieMatcher
-     * @see TrieNode
+     * @see Trie
      */
     /*
      * TODO:
      *
      * - caching may not be that good of an idea...
      * - we may end up with only one string and that is a waste
-     * - non BMP!
      */
 
     @Cached
@@ -551,7 +582,7 @@ public abstract class BaseParser<V>
      * @return a rule
      *
      * @see TrieMatcher
-     * @see TrieNode
+     * @see Trie
      */
     public Rule trie(final String first, final String second,
         final String... others)
@@ -562,6 +593,78 @@ public abstract class BaseParser<V>
         return trie(words);
     }
 
+    /**
+     * Match one string among many using an already built <a
+     * href="http://en.wikipedia.org/wiki/Trie" target="_blank">trie</a>
+     *
+     * <p>Use this method with large word lists: the trie can then be built
+     * using a {@link Trie#newDafsaBuilder() minimizing builder}, or loaded from
+     * its binary form (see {@link
+     * Trie#readFrom(java.io.InputStream)}).</p>
+     *
+     * <p>Matching rules are the same as for {@link #trie(Collection)}; if the
+     * trie is {@link Trie#caseFolded() case folded}, case is ignored as with
+     * {@link #trieIgnoreCase(Collection)}.</p>
+     *
+     * @param trie the trie
+     * @return a rule
+     *
+     * @see TrieMatcher
+     * @see CaseInsensitiveTrieMatcher
+     */
+    @Cached
+    public Rule trie(final Trie trie)
+    {
+        return trie.isCaseFolded() ? new CaseInsensitiveTrieMatcher(trie)
+            : new TrieMatcher(trie);
+    }
+
+    /**
+     * Match one string among many using a <a
+     * href="http://en.wikipedia.org/wiki/Trie" target="_blank">trie</a>, and
+     * push the value associated with the matched string
+     *
+     * <p>Matching rules are the same as for {@link #trie(Collection)}. On
+     * success, the value associated with the matched string is pushed onto
+     * the value stack; this is cheaper than looking up the result of {@link
+     * #match()} in the map from an action, since no string is created.</p>
+     *
+     * <p>Values must not be null.</p>
+     *
+     * @param map the strings to match and their associated values
+     * @return a rule
+     *
+     * @see MappedTrieMatcher
+     */
+    @Cached
+    public Rule trie(final Map<String, ? extends V> map)
+    {
+        return new MappedTrieMatcher<V>(ImmutableMap.copyOf(map), null);
+    }
+
+    /**
+     * Match one string among many using a <a
+     * href="http://en.wikipedia.org/wiki/Trie" target="_blank">trie</a>, and
+     * set the value associated with the matched string into a var
+     *
+     * <p>This is the same as {@link #trie(Map)}, except that the value is set
+     * into the given {@link Var} instead of being pushed onto the value
+     * stack.</p>
+     *
+     * @param map the strings to match and their associated values
+     * @param var the var
+     * @param <T> type of the values
+     * @return a rule
+     *
+     * @see MappedTrieMatcher
+     */
+    @Cached
+    public <T> Rule trie(final Map<String, ? extends T> map, final Var<T> var)
+    {
+        Objects.requireNonNull(var);
+        return new MappedTrieMatcher<>(ImmutableMap.copyOf(map), var);
+    }
+
     /**
      * Match one string among many using a <a
      * href="http://en.wikipedia.org/wiki/Trie" target="_blank">trie</a>, case
@@ -577,6 +680,10 @@ public abstract class BaseParser<V>
      *
      * <p>Note also that the minimum length of strings in a trie is 1.</p>
      *
+     * <p>Strings and input are compared one code point at a time, once both
+     * are converted to upper case, then to lower case (see {@link
+     * Trie#caseFolded()}).</p>
+     *
      * @param strings the list of strings for this trie
      * @return a rule
      *
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.matchers.optimize.RuleOptimizer;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.transform.compile.GrammarCompiler;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link ParseRunner} running a compiled rule graph
+ *
+ * <p>The optimized rule graph (see {@link RuleOptimizer}) is compiled into a
+ * class of its own when the runner is created, so that the matchers of the
+ * grammar are not interpreted one by one through matcher contexts; see {@link
+ * GrammarCompiler} for details. The outcome of a run, including the values on
+ * the value stack, is the same as with a plain runner.</p>
+ *
+ * <p>As with an {@link OptimizingParseRunner}, runs with listeners use the
+ * original graph.</p>
+ *
+ * @param <V> type parameter of the parser's stack values
+ */
+public class CompiledParseRunner<V>
+    extends ParseRunner<V>
+{
+    /**
+     * Constructor
+     *
+     * @param rule the rule
+     */
+    public CompiledParseRunner(@Nonnull final Rule rule)
+    {
+        super(rule,
+            root -> GrammarCompiler.compile(RuleOptimizer.optimize(root)));
+    }
+}
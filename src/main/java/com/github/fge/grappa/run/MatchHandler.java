@@ -34,4 +34,19 @@ public interface MatchHandler
      * @return true if matched
      */
     <V> boolean match(MatcherContext<V> context);
+
+    /**
+     * Tell whether this handler must be called for terminal matchers
+     *
+     * <p>If this method returns false, composite matchers may run terminals
+     * directly against their own context, without calling {@link
+     * #match(MatcherContext)} (see {@link MatcherContext#runTerminal(Matcher)
+     * }). The default implementation returns true.</p>
+     *
+     * @return true if all terminals must be run by this handler
+     */
+    default boolean handlesTerminals()
+    {
+        return true;
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.run.memo.MemoTable;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
+
+import javax.annotation.Nonnull;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@link ParseRunner} memoizing the outcome of matchers ("packrat" parsing)
+ *
+ * <p>This runner records the outcome of each eligible matcher at each input
+ * position where it is attempted: whether it succeeded and, if so, where its
+ * match ended and the values it pushed on the value stack. When the same
+ * matcher is attempted again at the same position, for instance because a
+ * {@link FirstOfMatcher} backtracked, the outcome is replayed instead of
+ * running the matcher again. With a window covering the whole input, this
+ * guarantees that parsing time is linear in the input size.</p>
+ *
+ * <p>Which matchers are eligible is determined by their {@link MatcherType};
+ * by default, only {@link MatcherType#COMPOSITE composite} matchers are,
+ * since terminals are generally cheaper to run than to memoize. Actions can
+ * never be memoized.</p>
+ *
+ * <p>The amount of memory used can be bounded by specifying a window size;
+ * see {@link MemoTable} for details, including the restrictions which apply
+ * to the memoized rules.</p>
+ *
+ * <p>Note that listeners will not receive events for a memoized matcher, or
+ * any of its children, when its outcome is replayed.</p>
+ *
+ * @param <V> type parameter of the parser's stack values
+ *
+ * @see MemoTable
+ */
+public class MemoizingParseRunner<V>
+    extends ParseRunner<V>
+{
+    /**
+     * The default window size: all input positions
+     */
+    public static final int UNBOUNDED_WINDOW = Integer.MAX_VALUE;
+
+    private final Set<MatcherType> eligibleTypes;
+    private final int windowSize;
+
+    /**
+     * Constructor
+     *
+     * <p>Only composite matchers are memoized, and the memo table covers the
+     * whole input.</p>
+     *
+     * @param rule the rule
+     */
+    public MemoizingParseRunner(@Nonnull final Rule rule)
+    {
+        this(rule, EnumSet.of(MatcherType.COMPOSITE));
+    }
+
+    /**
+     * Constructor
+     *
+     * <p>The memo table covers the whole input.</p>
+     *
+     * @param rule the rule
+     * @param eligibleTypes the types of matchers to memoize
+     * @throws IllegalArgumentException eligible types include {@link
+     * MatcherType#ACTION}
+     */
+    public MemoizingParseRunner(@Nonnull final Rule rule,
+        @Nonnull final Set<MatcherType> eligibleTypes)
+    {
+        this(rule, eligibleTypes, UNBOUNDED_WINDOW);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param rule the rule
+     * @param eligibleTypes the types of matchers to memoize
+     * @param windowSize the number of input positions to keep entries for
+     * @throws IllegalArgumentException eligible types include {@link
+     * MatcherType#ACTION}; or window size is not strictly positive
+     */
+    public MemoizingParseRunner(@Nonnull final Rule rule,
+        @Nonnull final Set<MatcherType> eligibleTypes, final int windowSize)
+    {
+        super(rule);
+        Objects.requireNonNull(eligibleTypes, "eligibleTypes");
+        Preconditions.checkArgument(
+            !eligibleTypes.contains(MatcherType.ACTION),
+            "actions cannot be memoized");
+        Preconditions.checkArgument(windowSize > 0,
+            "window size must be strictly positive");
+        this.eligibleTypes = Sets.immutableEnumSet(eligibleTypes);
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    protected ParseSession<V> createSession(final InputBuffer inputBuffer,
+        final ValueStack<V> valueStack)
+    {
+        final MemoTable memoTable
+            = new MemoTable(windowSize, inputBuffer.length());
+
+        return new ParseSession<V>(inputBuffer, valueStack, getListeners())
+        {
+            @Override
+            protected <T> boolean doMatch(final MatcherContext<T> context)
+            {
+                //noinspection ConstantConditions
+                if (!eligibleTypes.contains(context.getMatcher().getType()))
+                    return super.doMatch(context);
+                return memoTable.match(context, super::doMatch);
+            }
+
+            @Override
+            public boolean handlesTerminals()
+            {
+                return super.handlesTerminals()
+                    || eligibleTypes.contains(MatcherType.TERMINAL);
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.matchers.optimize.RuleOptimizer;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link ParseRunner} running an optimized rule graph
+ *
+ * <p>An optimized copy of the rule graph is computed when the runner is
+ * created (see {@link RuleOptimizer}), and used by runs without listeners.
+ * This takes time, in proportion to the size of the grammar; this runner is
+ * therefore meant to be created once, and used for many runs.</p>
+ *
+ * <p>The outcome of a run, including the values on the value stack, is the
+ * same as with a plain runner; the contexts seen by actions may however be at
+ * a different level (see {@link MatcherContext#getLevel()}). Runs with
+ * listeners use the original graph, so that listeners see all rules with
+ * their labels.</p>
+ *
+ * @param <V> type parameter of the parser's stack values
+ */
+public class OptimizingParseRunner<V>
+    extends ParseRunner<V>
+{
+    /**
+     * Constructor
+     *
+     * @param rule the rule
+     */
+    public OptimizingParseRunner(@Nonnull final Rule rule)
+    {
+        super(rule, RuleOptimizer::optimize);
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.run.events.MatchFailureEvent;
+import com.github.fge.grappa.run.events.MatchSuccessEvent;
+import com.github.fge.grappa.run.events.PostParseEvent;
+import com.github.fge.grappa.run.events.PreMatchEvent;
+import com.github.fge.grappa.run.events.PreParseEvent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Dispatcher of parsing events to a set of {@link ParseEventListener}s
+ *
+ * <p>One dispatcher is created for each parsing run, and instances are
+ * therefore not thread-safe. Listeners are called directly, in registration
+ * order. For match events,
+ * the primitive argument callback is called first, then the event object
+ * callback. Since a {@link MatcherContext} is reused for all matches at a given
+ * level, event objects are cached by level and reused as long as the context
+ * at this level is the same; in practice, this means event objects are only
+ * created when a level is first reached in a run.</p>
+ *
+ * <p>An exception thrown by a listener does not prevent other listeners from
+ * receiving the event. All such exceptions are collected, the first one having
+ * the others added as suppressed exceptions; once all listeners have been
+ * called, a {@link GrappaException} is thrown with the first exception as its
+ * cause.</p>
+ *
+ * @param <V> type parameter of the parser's stack values
+ */
+final class ParseEventDispatcher<V>
+{
+    private static final int INITIAL_LEVELS = 32;
+
+    private final ParseEventListener<V>[] listeners;
+
+    private PreMatchEvent<?>[] preMatchEvents
+        = new PreMatchEvent<?>[INITIAL_LEVELS];
+    private MatchSuccessEvent<?>[] successEvents
+        = new MatchSuccessEvent<?>[INITIAL_LEVELS];
+    private MatchFailureEvent<?>[] failureEvents
+        = new MatchFailureEvent<?>[INITIAL_LEVELS];
+
+    private Throwable throwable = null;
+
+    /**
+     * Constructor
+     *
+     * @param listeners the listeners to dispatch events to
+     */
+    @SuppressWarnings("unchecked")
+    ParseEventDispatcher(final Collection<ParseEventListener<V>> listeners)
+    {
+        Objects.requireNonNull(listeners, "listeners");
+        this.listeners = listeners.toArray(
+            (ParseEventListener<V>[]) new ParseEventListener<?>[0]);
+    }
+
+    void beforeParse(final MatcherContext<V> context)
+    {
+        final PreParseEvent<V> event = new PreParseEvent<>(context);
+
+        for (final ParseEventListener<V> listener: listeners)
+            try {
+                listener.beforeParse(event);
+            } catch (Throwable e) {
+                collect(e);
+            }
+
+        checkErrors("parsing listener error (before parse)");
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> void beforeMatch(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+        final int level = context.getLevel();
+        final int startIndex = context.getCurrentIndex();
+
+        final PreMatchEvent<V> event
+            = getPreMatchEvent((MatcherContext<V>) context, level);
+
+        for (final ParseEventListener<V> listener: listeners)
+            try {
+                listener.beforeMatch(matcher, level, startIndex);
+                listener.beforeMatch(event);
+            } catch (Throwable e) {
+                collect(e);
+            }
+
+        checkErrors("parsing listener error (before match)");
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> void matchSuccess(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+        final int level = context.getLevel();
+        final int startIndex = context.getStartIndex();
+        final int endIndex = context.getCurrentIndex();
+
+        final MatchSuccessEvent<V> event
+            = getSuccessEvent((MatcherContext<V>) context, level);
+
+        for (final ParseEventListener<V> listener: listeners)
+            try {
+                listener.matchSuccess(matcher, level, startIndex, endIndex);
+                listener.matchSuccess(event);
+            } catch (Throwable e) {
+                collect(e);
+            }
+
+        checkErrors("parsing listener error (after match)");
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> void matchFailure(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+        final int level = context.getLevel();
+        final int startIndex = context.getStartIndex();
+        final int endIndex = context.getCurrentIndex();
+
+        final MatchFailureEvent<V> event
+            = getFailureEvent((MatcherContext<V>) context, level);
+
+        for (final ParseEventListener<V> listener: listeners)
+            try {
+                listener.matchFailure(matcher, level, startIndex, endIndex);
+                listener.matchFailure(event);
+            } catch (Throwable e) {
+                collect(e);
+            }
+
+        checkErrors("parsing listener error (after match)");
+    }
+
+    void afterParse(final ParsingResult<V> result)
+    {
+        final PostParseEvent<V> event = new PostParseEvent<>(result);
+
+        for (final ParseEventListener<V> listener: listeners)
+            try {
+                listener.afterParse(event);
+            } catch (Throwable e) {
+                collect(e);
+            }
+
+        checkErrors("parsing listener error (after parse)");
+    }
+
+    @SuppressWarnings("unchecked")
+    private PreMatchEvent<V> getPreMatchEvent(final MatcherContext<V> context,
+        final int level)
+    {
+        if (level >= preMatchEvents.length)
+            preMatchEvents = Arrays.copyOf(preMatchEvents, 2 * level);
+
+        PreMatchEvent<V> event = (PreMatchEvent<V>) preMatchEvents[level];
+
+        if (event == null || event.getContext() != context) {
+            event = new PreMatchEvent<>(context);
+            preMatchEvents[level] = event;
+        }
+
+        return event;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MatchSuccessEvent<V> getSuccessEvent(
+        final MatcherContext<V> context, final int level)
+    {
+        if (level >= successEvents.length)
+            successEvents = Arrays.copyOf(successEvents, 2 * level);
+
+        MatchSuccessEvent<V> event = (MatchSuccessEvent<V>) successEvents[level];
+
+        if (event == null || event.getContext() != context) {
+            event = new MatchSuccessEvent<>(context);
+            successEvents[level] = event;
+        }
+
+        return event;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MatchFailureEvent<V> getFailureEvent(
+        final MatcherContext<V> context, final int level)
+    {
+        if (level >= failureEvents.length)
+            failureEvents = Arrays.copyOf(failureEvents, 2 * level);
+
+        MatchFailureEvent<V> event = (MatchFailureEvent<V>) failureEvents[level];
+
+        if (event == null || event.getContext() != context) {
+            event = new MatchFailureEvent<>(context);
+            failureEvents[level] = event;
+        }
+
+        return event;
+    }
+
+    private void collect(final Throwable e)
+    {
+        if (throwable == null)
+            throwable = e;
+        else
+            throwable.addSuppressed(e);
+    }
+
+    private void checkErrors(final String message)
+    {
+        if (throwable == null)
+            return;
+
+        final Throwable cause = throwable;
+        throwable = null;
+        throw new GrappaException(message, cause);
+    }
+}
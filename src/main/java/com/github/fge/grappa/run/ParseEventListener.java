@@ -16,13 +16,13 @@
 
 package com.github.fge.grappa.run;
 
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.run.events.MatchFailureEvent;
 import com.github.fge.grappa.run.events.MatchSuccessEvent;
 import com.github.fge.grappa.run.events.PostParseEvent;
 import com.github.fge.grappa.run.events.PreMatchEvent;
 import com.github.fge.grappa.run.events.PreParseEvent;
 import com.github.fge.grappa.run.trace.TracingListener;
-import com.google.common.eventbus.Subscribe;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 
@@ -45,6 +45,12 @@ import javax.annotation.ParametersAreNonnullByDefault;
  * which can then be used with the <a href="https://github.com/fge/grappa-debugger"
  * target="_blank">debugger</a>.</p>
  *
+ * <p>Match events are delivered twice: first to a method taking the matcher,
+ * level and indices as arguments, then to a method taking an event object.
+ * Event objects are reused across matches, so listeners must not keep
+ * references to them; the first form should be preferred when performance
+ * matters.</p>
+ *
  * <p>All the default implementations of methods in this class do nothing. A
  * call to {@code super()} in implementations is therefore not necessary.</p>
  *
@@ -60,37 +66,72 @@ public class ParseEventListener<V>
      *
      * @param event the event
      */
-    @Subscribe
     public void beforeParse(final PreParseEvent<V> event)
     {
     }
 
+    /**
+     * Method called before a match is attempted
+     *
+     * @param matcher the matcher
+     * @param level the level of the match
+     * @param startIndex the input index at which the match is attempted
+     */
+    public void beforeMatch(final Matcher matcher, final int level,
+        final int startIndex)
+    {
+    }
+
     /**
      * Method called before a match is attempted
      *
      * @param event the event
      */
-    @Subscribe
     public void beforeMatch(final PreMatchEvent<V> event)
     {
     }
 
+    /**
+     * Method called when a match is completed with success
+     *
+     * @param matcher the matcher
+     * @param level the level of the match
+     * @param startIndex the input index at which the match was attempted
+     * @param endIndex the input index at which the match ended
+     */
+    public void matchSuccess(final Matcher matcher, final int level,
+        final int startIndex, final int endIndex)
+    {
+    }
+
     /**
      * Method called when a match is completed with success
      *
      * @param event the event
      */
-    @Subscribe
     public void matchSuccess(final MatchSuccessEvent<V> event)
     {
     }
 
+    /**
+     * Method called when a match has resulted in a failure
+     *
+     * @param matcher the matcher
+     * @param level the level of the match
+     * @param startIndex the input index at which the match was attempted
+     * @param endIndex the current input index of the context when the match
+     * failed
+     */
+    public void matchFailure(final Matcher matcher, final int level,
+        final int startIndex, final int endIndex)
+    {
+    }
+
     /**
      * Method called when a match has resulted in a failure
      *
      * @param event the event
      */
-    @Subscribe
     public void matchFailure(final MatchFailureEvent<V> event)
     {
     }
@@ -100,7 +141,6 @@ public class ParseEventListener<V>
      *
      * @param event the event
      */
-    @Subscribe
     public void afterParse(final PostParseEvent<V> event)
     {
     }
@@ -19,25 +19,26 @@ package com.github.fge.grappa.run;
 import com.github.fge.grappa.Grappa;
 import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
 import com.github.fge.grappa.buffers.InputBuffer;
-import com.github.fge.grappa.exceptions.GrappaException;
 import com.github.fge.grappa.internal.NonFinalForTesting;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseActions;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.DefaultMatcherContext;
 import com.github.fge.grappa.run.context.MatcherContext;
-import com.github.fge.grappa.run.events.MatchContextEvent;
-import com.github.fge.grappa.run.events.MatchFailureEvent;
-import com.github.fge.grappa.run.events.MatchSuccessEvent;
-import com.github.fge.grappa.run.events.PostParseEvent;
-import com.github.fge.grappa.run.events.PreMatchEvent;
-import com.github.fge.grappa.run.events.PreParseEvent;
-import com.github.fge.grappa.stack.ArrayValueStack;
+import com.github.fge.grappa.stack.IntValueStack;
+import com.github.fge.grappa.stack.PersistentValueStack;
 import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.run.trace.TracingListener;
+import com.github.fge.grappa.support.Var;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.eventbus.EventBus;
+import com.google.common.collect.ImmutableList;
 
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
 
 /**
  * Class to run a parser on an input, and retrieve a result
@@ -56,27 +57,68 @@ import java.util.Objects;
  * events of your choice (before parsing, before matching, match failure
  * or success, after parsing), further extending the use of grappa.</p>
  *
+ * <p>Events have a cost, however, since listeners are called twice for each
+ * match attempt. If no listener is registered when a run starts, the run
+ * therefore uses a direct path instead, which invokes matchers without
+ * dispatching any event; terminals are moreover run against the context of
+ * their parent, without a context of their own (see {@link
+ * MatcherContext#runTerminal(Matcher)}).</p>
+ *
+ * <p>This runner uses the rule graph as is. Subclasses may use another graph
+ * for runs without listeners: {@link OptimizingParseRunner}, for instance,
+ * uses an optimized copy of it.</p>
+ *
+ * <p>All the state of a run is held in a {@link ParseSession} created for this
+ * run only; instances of this class are therefore thread-safe, and a single
+ * instance may be used for concurrent runs. Note however that:</p>
+ *
+ * <ul>
+ *     <li>listeners are shared by all runs, and must therefore be thread-safe
+ *     themselves if runs are concurrent (this is not the case of {@link
+ *     TracingListener}, for instance);</li>
+ *     <li>the state of the parser which produced the rule, if any, is not
+ *     covered by this guarantee: if the rule or any of its subrules use
+ *     {@link Var}s or actions with state of their own (this includes action
+ *     expressions using the methods of {@link BaseActions}, which use the
+ *     parser to hold the current context), runs of rules from the same parser
+ *     instance must not be concurrent. Use one parser instance, and a runner
+ *     for a rule of this instance, per thread instead; the parser class is
+ *     only generated once (see {@link Grappa#createParser(Class,
+ *     Object...)}).</li>
+ * </ul>
+ *
  * @param <V> type parameter of the parser's stack values
  *
  * @see ParseEventListener
  */
+@ThreadSafe
 @NonFinalForTesting
 public class ParseRunner<V>
     implements MatchHandler
 {
-    // TODO: does it need to be volatile?
-    private volatile Throwable throwable = null;
-
-    private final EventBus bus = new EventBus((exception, context) -> {
-        if (throwable == null)
-            throwable = exception;
-        else
-            throwable.addSuppressed(exception);
-    });
-
+    private final CopyOnWriteArrayList<ParseEventListener<V>> listeners
+        = new CopyOnWriteArrayList<>();
 
     protected final Matcher rootMatcher;
+    private final Matcher optimizedRootMatcher;
+
+    /**
+     * The value stack of the last run started
+     *
+     * @deprecated runs no longer share state with the runner; use {@link
+     * ParseSession#getValueStack()} instead. This field is only meaningful
+     * if runs are not concurrent, and will be removed in a future release.
+     */
+    @Deprecated
     protected ValueStack<V> valueStack;
+
+    /**
+     * Unused; always null
+     *
+     * @deprecated snapshots are taken by the matcher contexts; this field will
+     * be removed in a future release.
+     */
+    @Deprecated
     protected Object stackSnapshot;
 
     /**
@@ -85,8 +127,25 @@ public class ParseRunner<V>
      * @param rule the rule
      */
     public ParseRunner(@Nonnull final Rule rule)
+    {
+        this(rule, UnaryOperator.identity());
+    }
+
+    /**
+     * Constructor for runners using another graph in runs without listeners
+     *
+     * <p>The function is called once, with the root matcher of the rule, and
+     * must return a matcher producing the same outcome on all inputs.</p>
+     *
+     * @param rule the rule
+     * @param fastPath the function computing the matcher used by runs without
+     * listeners
+     */
+    protected ParseRunner(@Nonnull final Rule rule,
+        @Nonnull final UnaryOperator<Matcher> fastPath)
     {
         rootMatcher = Objects.requireNonNull((Matcher) rule, "rule");
+        optimizedRootMatcher = fastPath.apply(rootMatcher);
     }
 
     public final ParsingResult<V> run(final CharSequence input)
@@ -98,88 +157,143 @@ public class ParseRunner<V>
     public final ParsingResult<V> run(final InputBuffer inputBuffer)
     {
         Objects.requireNonNull(inputBuffer, "inputBuffer");
-        resetValueStack();
 
-        final MatcherContext<V> context = createRootContext(inputBuffer, this);
-        bus.post(new PreParseEvent<>(context));
+        final ValueStack<V> stack = createValueStack();
+        valueStack = stack;
+        stackSnapshot = null;
+        prepareRun(inputBuffer);
+
+        final ParseSession<V> session = createSession(inputBuffer, stack);
 
-        if (throwable != null)
-            throw new GrappaException("parsing listener error (before parse)",
-                throwable);
+        final MatcherContext<V> context = createRootContext(session);
+        session.beforeParse(context);
 
         final boolean matched = context.runMatcher();
         final ParsingResult<V> result
             = createParsingResult(matched, context);
 
-        bus.post(new PostParseEvent<>(result));
-
-        if (throwable != null)
-            throw new GrappaException("parsing listener error (after parse)",
-                throwable);
+        session.afterParse(result);
 
         return result;
     }
 
-    private void resetValueStack()
+    /**
+     * Create the value stack for a new parsing run
+     *
+     * <p>This method is called at the beginning of each run and must return a
+     * new, empty stack for each call. The default implementation returns a
+     * {@link PersistentValueStack}.</p>
+     *
+     * <p>Override this method to use another implementation; for instance, a
+     * grammar whose values are all {@code int}s can use an {@link
+     * IntValueStack} in order to avoid boxing them.</p>
+     *
+     * @return a new value stack
+     */
+    protected ValueStack<V> createValueStack()
+    {
+        return new PersistentValueStack<>();
+    }
+
+    /**
+     * Create the session for a new parsing run
+     *
+     * <p>This method is called at the beginning of each run. Implementations
+     * must return a new session for each call, using the listeners registered
+     * at the time of the call (see {@link #getListeners()}).</p>
+     *
+     * @param inputBuffer the input buffer of the run
+     * @param valueStack the value stack of the run
+     * @return a new session
+     */
+    protected ParseSession<V> createSession(final InputBuffer inputBuffer,
+        final ValueStack<V> valueStack)
+    {
+        return new ParseSession<>(inputBuffer, valueStack, getListeners());
+    }
+
+    /**
+     * Prepare a new parsing run
+     *
+     * <p>This method is called at the beginning of each run, after the value
+     * stack has been created and before the session is. The default
+     * implementation does nothing.</p>
+     *
+     * @param inputBuffer the input buffer of the run
+     *
+     * @deprecated override {@link #createSession(InputBuffer, ValueStack)}
+     * instead, which is called right after this method; this method will be
+     * removed in a future release.
+     */
+    @Deprecated
+    protected void prepareRun(final InputBuffer inputBuffer)
     {
-        // TODO: write a "memoizing" API
-        valueStack = new ArrayValueStack<>();
-        stackSnapshot = null;
     }
 
     @VisibleForTesting
-    MatcherContext<V> createRootContext(
-        final InputBuffer inputBuffer, final MatchHandler matchHandler)
+    MatcherContext<V> createRootContext(final ParseSession<V> session)
     {
-        return new DefaultMatcherContext<>(inputBuffer, valueStack,
-            matchHandler, rootMatcher);
+        return new DefaultMatcherContext<>(session.getInputBuffer(),
+            session.getValueStack(), session,
+            session.hasListeners() ? rootMatcher : optimizedRootMatcher);
     }
 
     @VisibleForTesting
     ParsingResult<V> createParsingResult(final boolean matched,
         final MatcherContext<V> context)
     {
-        return new ParsingResult<>(matched, valueStack, context);
+        return new ParsingResult<>(matched, context.getValueStack(), context);
     }
 
+    /**
+     * Register a listener
+     *
+     * <p>The listener will receive events from all runs started after this
+     * method returns. Registering the same listener more than once has no
+     * effect.</p>
+     *
+     * @param listener the listener
+     */
     public final void registerListener(final ParseEventListener<V> listener)
     {
-        bus.register(listener);
+        Objects.requireNonNull(listener, "listener");
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Get the currently registered listeners
+     *
+     * @return an immutable snapshot of the registered listeners, in
+     * registration order
+     */
+    protected final List<ParseEventListener<V>> getListeners()
+    {
+        return ImmutableList.copyOf(listeners);
     }
 
     /**
      * Internal method. DO NOT USE!
      *
+     * <p>Runs no longer use the runner as their match handler. For contexts
+     * which still do, this method runs the matcher in a {@link ParseSession}
+     * posting events to the listeners currently registered.</p>
+     *
      * @param context the MatcherContext
      * @param <T> type parameter of the values on the parser stack
      * @return true on a match; false otherwise
+     *
+     * @deprecated use the session of the run as a match handler instead (see
+     * {@link #createSession(InputBuffer, ValueStack)}); runners will no
+     * longer implement {@link MatchHandler} in a future release.
      */
+    @Deprecated
     @Override
     public <T> boolean match(final MatcherContext<T> context)
     {
-        final Matcher matcher = context.getMatcher();
-
-        final PreMatchEvent<T> preMatchEvent = new PreMatchEvent<>(context);
-        bus.post(preMatchEvent);
-
-        if (throwable != null)
-            throw new GrappaException("parsing listener error (before match)",
-                throwable);
-
-        // FIXME: is there any case at all where context.getMatcher() is null?
-        @SuppressWarnings("ConstantConditions")
-        final boolean match = matcher.match(context);
-
-        final MatchContextEvent<T> postMatchEvent = match
-            ? new MatchSuccessEvent<>(context)
-            : new MatchFailureEvent<>(context);
-
-        bus.post(postMatchEvent);
-
-        if (throwable != null)
-            throw new GrappaException("parsing listener error (after match)",
-                throwable);
+        @SuppressWarnings("unchecked")
+        final MatcherContext<V> ctx = (MatcherContext<V>) context;
 
-        return match;
+        return new ParseSession<>(ctx.getInputBuffer(), ctx.getValueStack(),
+            getListeners()).match(ctx);
     }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * The state of a single parsing run
+ *
+ * <p>A session is created by a {@link ParseRunner} for each call to one of its
+ * {@code run()} methods, and holds all the state of this run: the input buffer,
+ * the value stack and the dispatcher for parse events, if listeners were
+ * registered when the run started. It is also the {@link MatchHandler} of the
+ * run.</p>
+ *
+ * <p>Since a session is confined to the thread executing the run, it is not
+ * thread-safe; this is what makes a {@link ParseRunner} shareable among
+ * threads. Runners needing more per run state, such as {@link
+ * MemoizingParseRunner}, extend this class.</p>
+ *
+ * @param <V> type parameter of the parser's stack values
+ *
+ * @see ParseRunner#createSession(InputBuffer, ValueStack)
+ */
+@NotThreadSafe
+public class ParseSession<V>
+    implements MatchHandler
+{
+    private final InputBuffer inputBuffer;
+    private final ValueStack<V> valueStack;
+    @Nullable
+    private final ParseEventDispatcher<V> dispatcher;
+
+    /**
+     * Constructor
+     *
+     * @param inputBuffer the input buffer
+     * @param valueStack the value stack
+     * @param listeners the listeners to post parse events to (may be empty)
+     */
+    public ParseSession(@Nonnull final InputBuffer inputBuffer,
+        @Nonnull final ValueStack<V> valueStack,
+        @Nonnull final Collection<ParseEventListener<V>> listeners)
+    {
+        this.inputBuffer = Objects.requireNonNull(inputBuffer, "inputBuffer");
+        this.valueStack = Objects.requireNonNull(valueStack, "valueStack");
+        Objects.requireNonNull(listeners, "listeners");
+        dispatcher = listeners.isEmpty() ? null
+            : new ParseEventDispatcher<>(listeners);
+    }
+
+    public final InputBuffer getInputBuffer()
+    {
+        return inputBuffer;
+    }
+
+    public final ValueStack<V> getValueStack()
+    {
+        return valueStack;
+    }
+
+    /**
+     * Internal method. DO NOT USE!
+     *
+     * @param context the MatcherContext
+     * @param <T> type parameter of the values on the parser stack
+     * @return true on a match; false otherwise
+     */
+    @Override
+    public final <T> boolean match(final MatcherContext<T> context)
+    {
+        if (dispatcher == null)
+            return doMatch(context);
+
+        dispatcher.beforeMatch(context);
+
+        final boolean match = doMatch(context);
+
+        if (match)
+            dispatcher.matchSuccess(context);
+        else
+            dispatcher.matchFailure(context);
+
+        return match;
+    }
+
+    /**
+     * Run the matcher of a context
+     *
+     * <p>This is called for each match attempt; if listeners are registered,
+     * events are posted around this call. The default implementation simply
+     * invokes the matcher.</p>
+     *
+     * @param context the MatcherContext
+     * @param <T> type parameter of the values on the parser stack
+     * @return true on a match; false otherwise
+     */
+    protected <T> boolean doMatch(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+        // FIXME: is there any case at all where context.getMatcher() is null?
+        //noinspection ConstantConditions
+        return matcher.match(context);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This is the case if listeners are registered. Subclasses which
+     * override {@link #doMatch(MatcherContext)} in order to see terminal
+     * matchers must also override this method.</p>
+     *
+     * @return true if listeners are registered
+     */
+    @Override
+    public boolean handlesTerminals()
+    {
+        return dispatcher != null;
+    }
+
+    boolean hasListeners()
+    {
+        return dispatcher != null;
+    }
+
+    void beforeParse(final MatcherContext<V> context)
+    {
+        if (dispatcher != null)
+            dispatcher.beforeParse(context);
+    }
+
+    void afterParse(final ParsingResult<V> result)
+    {
+        if (dispatcher != null)
+            dispatcher.afterParse(result);
+    }
+}
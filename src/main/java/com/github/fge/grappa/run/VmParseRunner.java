@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.matchers.optimize.RuleOptimizer;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.run.vm.ProgramCompiler;
+import com.github.fge.grappa.support.Var;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link ParseRunner} running rules in a virtual machine
+ *
+ * <p>The optimized rule graph (see {@link RuleOptimizer}) is compiled into a
+ * program when the runner is created; runs execute this program in a single
+ * loop with an explicit backtrack stack, instead of recursing through matcher
+ * contexts. Deeply nested input therefore does not exhaust the Java stack,
+ * unless the rules involved run in the interpreter; see {@link
+ * ProgramCompiler} for details. The outcome of a run, including the values on
+ * the value stack, is the same as with a plain runner.</p>
+ *
+ * <p>Actions still see a {@link MatcherContext}, and may use {@link Var}s, as
+ * with a plain runner. Since the Java stack used by a run no longer depends on
+ * how deeply its input is nested, this runner is also suited to threads with
+ * a small stack.</p>
+ *
+ * <p>As with an {@link OptimizingParseRunner}, runs with listeners use the
+ * original graph.</p>
+ *
+ * @param <V> type parameter of the parser's stack values
+ */
+public class VmParseRunner<V>
+    extends ParseRunner<V>
+{
+    /**
+     * Constructor
+     *
+     * @param rule the rule
+     */
+    public VmParseRunner(@Nonnull final Rule rule)
+    {
+        super(rule,
+            root -> ProgramCompiler.compile(RuleOptimizer.optimize(root)));
+    }
+}
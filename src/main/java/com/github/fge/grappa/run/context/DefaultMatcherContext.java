@@ -34,8 +34,11 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * <p>The Context implementation orchestrating most of the matching process.</p>
@@ -72,11 +75,18 @@ public final class DefaultMatcherContext<V>
     private final MatchHandler matchHandler;
     private final DefaultMatcherContext<V> parent;
     private final int level;
+    // whether terminals can be run without a subcontext, and failing
+    // submatchers skipped; see runTerminal() and maySkipMatchers()
+    private final boolean directTerminals;
+    // shared by the root context and all its subcontexts
+    private final Map<Matcher, Object> runStates;
 
     private DefaultMatcherContext<V> subContext;
     private int startIndex;
     private int currentIndex;
     private Matcher matcher;
+    // set along with the matcher, from the value of the parent
+    private boolean inPredicate;
     private String path;
     private boolean hasError;
 
@@ -96,22 +106,27 @@ public final class DefaultMatcherContext<V>
 
         this(Objects.requireNonNull(inputBuffer, "inputBuffer"),
             Objects.requireNonNull(valueStack, "valueStack"),
-            Objects.requireNonNull(matchHandler, "matchHandler"), null, 0);
+            Objects.requireNonNull(matchHandler, "matchHandler"), null, 0,
+            !matchHandler.handlesTerminals(), new IdentityHashMap<>());
         Objects.requireNonNull(matcher);
         // TODO: what the...
         this.matcher = ProxyMatcher.unwrap(matcher);
+        inPredicate = this.matcher.getType() == MatcherType.PREDICATE;
     }
 
     private DefaultMatcherContext(final InputBuffer inputBuffer,
         final ValueStack<V> valueStack, final MatchHandler matchHandler,
         @Nullable final DefaultMatcherContext<V> parent,
-        final int level)
+        final int level, final boolean directTerminals,
+        final Map<Matcher, Object> runStates)
     {
         this.inputBuffer = inputBuffer;
         this.valueStack = valueStack;
         this.matchHandler = matchHandler;
         this.parent = parent;
         this.level = level;
+        this.directTerminals = directTerminals;
+        this.runStates = runStates;
     }
 
     @Override
@@ -180,12 +195,7 @@ public final class DefaultMatcherContext<V>
     @Override
     public boolean inPredicate()
     {
-        //noinspection SimplifiableIfStatement
-        if (matcher.getType() == MatcherType.PREDICATE)
-            return true;
-
-        return parent != null && parent.inPredicate();
-
+        return inPredicate;
     }
 
     @Override
@@ -255,6 +265,8 @@ public final class DefaultMatcherContext<V>
     public void setMatcher(final Matcher matcher)
     {
         this.matcher = matcher;
+        inPredicate = parent != null && parent.inPredicate
+            || matcher.getType() == MatcherType.PREDICATE;
     }
 
     @Override
@@ -277,13 +289,28 @@ public final class DefaultMatcherContext<V>
         currentIndex += delta;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T getRunState(final Matcher matcher,
+        final Function<? super InputBuffer, ? extends T> factory)
+    {
+        Object state = runStates.get(matcher);
+
+        if (state == null) {
+            state = Objects.requireNonNull(factory.apply(inputBuffer));
+            runStates.put(matcher, state);
+        }
+
+        return (T) state;
+    }
+
     @Override
     public MatcherContext<V> getBasicSubContext()
     {
         if (subContext == null) {
             // init new level
             subContext = new DefaultMatcherContext<>(inputBuffer, valueStack,
-                matchHandler, this, level + 1);
+                matchHandler, this, level + 1, directTerminals, runStates);
         } else {
             // we always need to reset the MatcherPath, even for actions
             subContext.path = null;
@@ -297,6 +324,8 @@ public final class DefaultMatcherContext<V>
         final DefaultMatcherContext<V> sc
             = (DefaultMatcherContext<V>) getBasicSubContext();
         sc.matcher = matcher;
+        sc.inPredicate = inPredicate
+            || matcher.getType() == MatcherType.PREDICATE;
         sc.setStartIndex(currentIndex);
         sc.setCurrentIndex(currentIndex);
         sc.hasError = false;
@@ -317,14 +346,47 @@ public final class DefaultMatcherContext<V>
         } catch (GrappaException e) {
             throw e; // don't wrap, just bubble up
         } catch (Throwable e) { // TODO: Throwable? What the...
-            final String msg = String.format(
-                "exception thrown when parsing %s '%s' at input position %s",
-                matcher instanceof ActionMatcher ? "action" : "rule", getPath(),
-                inputBuffer.getPosition(currentIndex));
-            throw new GrappaException(msg, e);
+            throw wrapException(e,
+                matcher instanceof ActionMatcher ? "action" : "rule",
+                getPath());
         }
     }
 
+    @Override
+    public boolean runTerminal(final Matcher matcher)
+    {
+        if (!directTerminals)
+            return matcher.getSubContext(this).runMatcher();
+
+        final int index = currentIndex;
+
+        try {
+            if (matcher.match(this))
+                return true;
+            currentIndex = index;
+            return false;
+        } catch (GrappaException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw wrapException(e, "rule", getPath() + '/' + matcher);
+        }
+    }
+
+    @Override
+    public boolean maySkipMatchers()
+    {
+        return directTerminals;
+    }
+
+    private GrappaException wrapException(final Throwable e,
+        final String kind, final String path)
+    {
+        final String msg = String.format(
+            "exception thrown when parsing %s '%s' at input position %s",
+            kind, path, inputBuffer.getPosition(currentIndex));
+        return new GrappaException(msg, e);
+    }
+
     private String getPath()
     {
         if (path != null)
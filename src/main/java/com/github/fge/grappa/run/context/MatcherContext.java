@@ -16,7 +16,12 @@
 
 package com.github.fge.grappa.run.context;
 
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.analysis.FirstSet;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.MatchHandler;
+
+import java.util.function.Function;
 
 public interface MatcherContext<V>
     extends Context<V>
@@ -34,6 +39,23 @@ public interface MatcherContext<V>
 
     void advanceIndex(int delta);
 
+    /**
+     * Get the object a matcher keeps for the duration of a parsing run
+     *
+     * <p>Matchers are shared by all runs of a grammar, which may be concurrent;
+     * this allows a matcher to reuse an object for all of its match attempts
+     * within one run (for instance, a {@link java.util.regex.Matcher} over the
+     * input buffer). The object is created using the given function the first
+     * time it is requested during the run.</p>
+     *
+     * @param matcher the matcher
+     * @param factory the function creating the object from the input buffer
+     * @param <T> type of the object
+     * @return the object
+     */
+    <T> T getRunState(Matcher matcher,
+        Function<? super InputBuffer, ? extends T> factory);
+
     /*
      * TODO! Only called from ActionMatcher and DefaultMatcherContext
      */
@@ -43,4 +65,37 @@ public interface MatcherContext<V>
     MatcherContext<V> getSubContext(Matcher matcher);
 
     boolean runMatcher();
+
+    /**
+     * Run a terminal matcher directly against this context
+     *
+     * <p>Unless the match handler of the run must see all terminals (see
+     * {@link MatchHandler#handlesTerminals()}), the matcher is run against
+     * this context instead of a subcontext: on success, it moves the current
+     * index of this context; on failure, the current index is left unchanged.
+     * Otherwise, the matcher is run in a subcontext as usual.</p>
+     *
+     * <p>This is only suitable for matchers which only read the input and move
+     * the current index of their context, and which are not followed by an
+     * action, since the subcontext is left as it was.</p>
+     *
+     * @param matcher the matcher
+     * @return true if the matcher matched
+     */
+    boolean runTerminal(Matcher matcher);
+
+    /**
+     * Tell whether submatchers known to fail may be skipped
+     *
+     * <p>A submatcher which is guaranteed to fail without any effect, for
+     * instance because its first set excludes the current character (see
+     * {@link FirstSet}), need not be run at all. This is not the case if the
+     * match handler of the run must see all terminals (see {@link
+     * MatchHandler#handlesTerminals()}), which notably happens when listeners
+     * are registered: they then see the same match attempts as if no
+     * submatcher was ever skipped.</p>
+     *
+     * @return true if such submatchers may be skipped
+     */
+    boolean maySkipMatchers();
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.memo;
+
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The recorded outcome of a matcher at a given input position
+ *
+ * <p>An entry records whether the match succeeded and, if it did, the index at
+ * which the match ended and the values it left on the value stack. Only matches
+ * which did not access values already on the stack when they started are ever
+ * recorded (see {@link MemoTable}), which means the effect of a match on the
+ * stack is fully described by the values it pushed.</p>
+ */
+@Immutable
+public final class MemoEntry
+{
+    private static final Object[] NO_VALUES = new Object[0];
+
+    /**
+     * The (shared) entry for a failed match
+     */
+    public static final MemoEntry FAILURE
+        = new MemoEntry(false, -1, NO_VALUES);
+
+    private final boolean success;
+    private final int endIndex;
+    private final Object[] values;
+
+    /**
+     * Create an entry for a successful match
+     *
+     * @param endIndex the index at which the match ended
+     * @param values the values pushed by the match, bottom first
+     * @return a new entry
+     */
+    public static MemoEntry success(final int endIndex, final Object[] values)
+    {
+        return new MemoEntry(true, endIndex,
+            values.length == 0 ? NO_VALUES : values);
+    }
+
+    private MemoEntry(final boolean success, final int endIndex,
+        final Object[] values)
+    {
+        this.success = success;
+        this.endIndex = endIndex;
+        this.values = values;
+    }
+
+    public boolean isSuccess()
+    {
+        return success;
+    }
+
+    public int getEndIndex()
+    {
+        return endIndex;
+    }
+
+    /**
+     * Replay this entry on a context
+     *
+     * <p>On a success, this sets the current index of the context to the
+     * recorded end index and pushes the recorded values onto the stack.</p>
+     *
+     * @param context the context
+     * @param <V> type parameter of the stack values
+     * @return true if the recorded match was a success
+     */
+    @SuppressWarnings("unchecked")
+    public <V> boolean replay(final MatcherContext<V> context)
+    {
+        if (!success)
+            return false;
+
+        context.setCurrentIndex(endIndex);
+
+        final ValueStack<V> stack = context.getValueStack();
+        for (final Object value: values)
+            stack.push((V) value);
+
+        return true;
+    }
+}
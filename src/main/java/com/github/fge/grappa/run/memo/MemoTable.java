@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.memo;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.MatchHandler;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.stack.ValueStackBase;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nullable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A table of match outcomes indexed by matcher and input position
+ *
+ * <p>The table has a fixed number of slots, one per input position in a
+ * window; position {@code n} uses slot {@code n % windowSize}. When a slot is
+ * needed for a position other than the one it currently holds, all entries
+ * for the previous position are evicted. A window at least as large as the
+ * input therefore never evicts anything, and the memory used by a smaller
+ * window is bounded regardless of the input size.</p>
+ *
+ * <p>A match is only recorded if it did not read or modify values which were
+ * already on the value stack when it started, since its outcome could
+ * otherwise depend on something else than the input position. This requires
+ * the value stack to extend {@link ValueStackBase}; with other stack
+ * implementations, nothing is ever recorded.</p>
+ *
+ * <p>Matches attempted within predicates are never recorded or replayed,
+ * since actions may be skipped in predicates (see {@link
+ * MatcherContext#inPredicate()}).</p>
+ *
+ * <p>Note that replaying a match does not run the actions it contains again.
+ * Rules whose actions depend on, or modify, state other than the value stack
+ * (for instance {@link com.github.fge.grappa.support.Var}s) should therefore
+ * not be memoized.</p>
+ */
+public final class MemoTable
+{
+    private final Slot[] slots;
+
+    /**
+     * Constructor
+     *
+     * @param windowSize the maximum number of input positions to hold entries
+     * for
+     * @param inputLength the length of the input
+     * @throws IllegalArgumentException window size is not strictly positive
+     */
+    public MemoTable(final int windowSize, final int inputLength)
+    {
+        Preconditions.checkArgument(windowSize > 0,
+            "window size must be strictly positive");
+        slots = new Slot[(int) Math.min(windowSize, inputLength + 1L)];
+    }
+
+    /**
+     * Get the recorded outcome of a matcher at a given position, if any
+     *
+     * @param matcher the matcher
+     * @param index the input position
+     * @return the entry, or null if none is recorded
+     */
+    @Nullable
+    public MemoEntry get(final Matcher matcher, final int index)
+    {
+        final Slot slot = slots[index % slots.length];
+        if (slot == null || slot.index != index)
+            return null;
+        return slot.get(matcher);
+    }
+
+    /**
+     * Record the outcome of a matcher at a given position
+     *
+     * @param matcher the matcher
+     * @param index the input position
+     * @param entry the outcome
+     */
+    public void put(final Matcher matcher, final int index,
+        final MemoEntry entry)
+    {
+        final int slotIndex = index % slots.length;
+        Slot slot = slots[slotIndex];
+
+        if (slot == null) {
+            slot = new Slot();
+            slots[slotIndex] = slot;
+        }
+
+        if (slot.index != index)
+            slot.reset(index);
+
+        slot.put(matcher, entry);
+    }
+
+    /**
+     * Run the matcher of a context, replaying or recording its outcome
+     *
+     * <p>If an outcome is recorded for the matcher of this context at its
+     * current index, it is replayed and the handler is not called. Otherwise,
+     * the handler is called and its outcome is recorded if possible.</p>
+     *
+     * @param context the context
+     * @param handler the handler to run the match with if no entry exists
+     * @param <V> type parameter of the stack values
+     * @return true if the match succeeded
+     */
+    public <V> boolean match(final MatcherContext<V> context,
+        final MatchHandler handler)
+    {
+        final ValueStack<V> stack = context.getValueStack();
+
+        if (!(stack instanceof ValueStackBase) || context.inPredicate())
+            return handler.match(context);
+
+        final Matcher matcher = context.getMatcher();
+        final int index = context.getCurrentIndex();
+
+        final MemoEntry entry = get(matcher, index);
+        if (entry != null)
+            return entry.replay(context);
+
+        final ValueStackBase<V> base = (ValueStackBase<V>) stack;
+        final int size = base.size();
+        final int outerWatermark = base.setWatermark(size);
+
+        final boolean matched = handler.match(context);
+
+        final int watermark = base.getWatermark();
+
+        if (watermark >= size)
+            put(matcher, index, matched
+                ? MemoEntry.success(context.getCurrentIndex(),
+                    pushedValues(base, size))
+                : MemoEntry.FAILURE);
+
+        base.setWatermark(Math.min(outerWatermark, watermark));
+        return matched;
+    }
+
+    private static <V> Object[] pushedValues(final ValueStack<V> stack,
+        final int previousSize)
+    {
+        final int nrValues = stack.size() - previousSize;
+        final Object[] values = new Object[nrValues];
+
+        for (int i = 0; i < nrValues; i++)
+            values[i] = stack.peek(nrValues - i - 1);
+
+        return values;
+    }
+
+    /*
+     * Most slots only ever hold one entry (and always exactly one when a table
+     * is dedicated to a single matcher), so the first entry is stored inline
+     * and a map is only created for the others.
+     */
+    private static final class Slot
+    {
+        private int index = -1;
+        private Matcher matcher = null;
+        private MemoEntry entry = null;
+        private Map<Matcher, MemoEntry> others = null;
+
+        private MemoEntry get(final Matcher matcher)
+        {
+            if (matcher == this.matcher)
+                return entry;
+            return others == null ? null : others.get(matcher);
+        }
+
+        private void put(final Matcher matcher, final MemoEntry entry)
+        {
+            if (this.matcher == null || this.matcher == matcher) {
+                this.matcher = matcher;
+                this.entry = entry;
+                return;
+            }
+            if (others == null)
+                others = new IdentityHashMap<>();
+            others.put(matcher, entry);
+        }
+
+        private void reset(final int index)
+        {
+            this.index = index;
+            matcher = null;
+            entry = null;
+            if (others != null)
+                others.clear();
+        }
+    }
+}
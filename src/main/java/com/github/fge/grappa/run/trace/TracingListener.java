@@ -4,11 +4,7 @@ import com.github.fge.grappa.buffers.InputBuffer;
 import com.github.fge.grappa.exceptions.GrappaException;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.run.ParseEventListener;
-import com.github.fge.grappa.run.context.MatcherContext;
-import com.github.fge.grappa.run.events.MatchFailureEvent;
-import com.github.fge.grappa.run.events.MatchSuccessEvent;
 import com.github.fge.grappa.run.events.PostParseEvent;
-import com.github.fge.grappa.run.events.PreMatchEvent;
 import com.github.fge.grappa.run.events.PreParseEvent;
 
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -19,8 +15,8 @@ import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
 
@@ -51,6 +47,7 @@ public final class TracingListener<V>
     private static final String MATCHERS_PATH = "/matchers.csv";
     private static final String INPUT_TEXT_PATH = "/input.txt";
     private static final String INFO_PATH = "/info.csv";
+    private static final int INITIAL_LEVELS = 64;
 
     private InputBuffer inputBuffer = null;
     private long startTime = 0L;
@@ -64,12 +61,18 @@ public final class TracingListener<V>
     private final Map<Matcher, Integer> matcherIds = new IdentityHashMap<>();
     private int nextMatcherId = 0;
 
-    private final Map<Integer, Integer> nodeIds = new HashMap<>();
+    /*
+     * Per level information about the match in progress; a match at level n
+     * has its parent node at level n - 1, and a match at level 0 has no parent
+     * (node id -1).
+     */
+    private int[] nodeIds = new int[INITIAL_LEVELS];
     private int nextNodeId = 0;
+    private int nrLevels = 0;
 
-    private final Map<Integer, Integer> prematchMatcherIds = new HashMap<>();
-    private final Map<Integer, Integer> prematchIndices = new HashMap<>();
-    private final Map<Integer, Long> prematchTimes = new HashMap<>();
+    private int[] prematchMatcherIds = new int[INITIAL_LEVELS];
+    private int[] prematchIndices = new int[INITIAL_LEVELS];
+    private long[] prematchTimes = new long[INITIAL_LEVELS];
 
     private final Path zipPath;
     private final Path nodeFile;
@@ -97,7 +100,6 @@ public final class TracingListener<V>
     @Override
     public void beforeParse(final PreParseEvent<V> event)
     {
-        nodeIds.put(-1, -1);
         inputBuffer = event.getContext().getInputBuffer();
         nrChars = inputBuffer.length();
         nrLines = inputBuffer.getLineCount();
@@ -105,11 +107,9 @@ public final class TracingListener<V>
     }
 
     @Override
-    public void beforeMatch(final PreMatchEvent<V> event)
+    public void beforeMatch(final Matcher matcher, final int level,
+        final int startIndex)
     {
-        final MatcherContext<V> context = event.getContext();
-        final Matcher matcher = context.getMatcher();
-
         Integer id = matcherIds.get(matcher);
         if (id == null) {
             //noinspection UnnecessaryBoxing
@@ -120,44 +120,48 @@ public final class TracingListener<V>
             nextMatcherId++;
         }
 
-        final int level = context.getLevel();
+        if (level >= nrLevels)
+            addLevels(level);
 
-        nodeIds.put(level, nextNodeId);
+        nodeIds[level] = nextNodeId;
         nextNodeId++;
 
-        prematchMatcherIds.put(level, id);
-        final int startIndex = Math.min(nrChars, context.getCurrentIndex());
-        prematchIndices.put(level, startIndex);
-        prematchTimes.put(level, System.nanoTime());
+        //noinspection AutoUnboxing
+        prematchMatcherIds[level] = id;
+        prematchIndices[level] = Math.min(nrChars, startIndex);
+        prematchTimes[level] = System.nanoTime();
     }
 
-    @SuppressWarnings({ "AutoBoxing", "AutoUnboxing" })
     @Override
-    public void matchSuccess(final MatchSuccessEvent<V> event)
+    public void matchSuccess(final Matcher matcher, final int level,
+        final int startIndex, final int endIndex)
     {
-        final long endTime = System.nanoTime();
-        final MatcherContext<V> context = event.getContext();
-        final int level = context.getLevel();
-
-        final Integer parentNodeId = nodeIds.get(level - 1);
-        final Integer nodeId = nodeIds.get(level);
+        writeNode(level, true, Math.min(nrChars, endIndex));
+    }
 
-        final int startIndex = prematchIndices.get(level);
-        final int endIndex
-            = Math.min(nrChars, context.getCurrentIndex());
+    @Override
+    public void matchFailure(final Matcher matcher, final int level,
+        final int startIndex, final int endIndex)
+    {
+        writeNode(level, false, endIndex);
+    }
 
-        final Integer matcherId = prematchMatcherIds.get(level);
+    private void writeNode(final int level, final boolean success,
+        final int endIndex)
+    {
+        final long endTime = System.nanoTime();
 
-        final long time = endTime - prematchTimes.get(level);
+        final int parentNodeId = level == 0 ? -1 : nodeIds[level - 1];
+        final long time = endTime - prematchTimes[level];
 
         // Write:
         // parent;id;level;success;matcherId;start;end;time
         sb.setLength(0);
         sb.append(parentNodeId).append(';')
-            .append(nodeId).append(';')
-            .append(level).append(";1;")
-            .append(matcherId).append(';')
-            .append(startIndex).append(';')
+            .append(nodeIds[level]).append(';')
+            .append(level).append(success ? ";1;" : ";0;")
+            .append(prematchMatcherIds[level]).append(';')
+            .append(prematchIndices[level]).append(';')
             .append(endIndex).append(';')
             .append(time).append('\n');
         try {
@@ -167,39 +171,16 @@ public final class TracingListener<V>
         }
     }
 
-    @SuppressWarnings({ "AutoBoxing", "AutoUnboxing" })
-    @Override
-    public void matchFailure(final MatchFailureEvent<V> event)
+    private void addLevels(final int level)
     {
-        final long endTime = System.nanoTime();
-        final MatcherContext<V> context = event.getContext();
-        final int level = context.getLevel();
-
-        final Integer parentNodeId = nodeIds.get(level - 1);
-        final Integer nodeId = nodeIds.get(level);
-
-        final int startIndex = prematchIndices.get(level);
-        final int endIndex = context.getCurrentIndex();
-
-        final Integer matcherId = prematchMatcherIds.get(level);
-
-        final long time = endTime - prematchTimes.get(level);
-
-        // Write:
-        // parent;id;level;success;matcherId;start;end;time
-        sb.setLength(0);
-        sb.append(parentNodeId).append(';')
-            .append(nodeId).append(';')
-            .append(level).append(";0;")
-            .append(matcherId).append(';')
-            .append(startIndex).append(';')
-            .append(endIndex).append(';')
-            .append(time).append('\n');
-        try {
-            writer.append(sb);
-        } catch (IOException e) {
-            throw cleanup(e);
+        if (level >= nodeIds.length) {
+            final int newLength = Math.max(2 * nodeIds.length, level + 1);
+            nodeIds = Arrays.copyOf(nodeIds, newLength);
+            prematchMatcherIds = Arrays.copyOf(prematchMatcherIds, newLength);
+            prematchIndices = Arrays.copyOf(prematchIndices, newLength);
+            prematchTimes = Arrays.copyOf(prematchTimes, newLength);
         }
+        nrLevels = level + 1;
     }
 
     @Override
@@ -275,7 +256,7 @@ public final class TracingListener<V>
         ) {
             sb.setLength(0);
             sb.append(startTime).append(';')
-                .append(prematchIndices.size()).append(';')
+                .append(nrLevels).append(';')
                 .append(nextMatcherId).append(';')
                 .append(nrLines).append(';')
                 .append(nrChars).append(';')
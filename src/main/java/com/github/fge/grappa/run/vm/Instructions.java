@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run.vm;
+
+/**
+ * The instruction set of the {@link VirtualMachine}
+ *
+ * <p>An instruction is an opcode followed by its operands, all stored in the
+ * same {@code int} array. Operands are either characters, addresses in the
+ * array, numbers of cycles, or indices in the constant pool of the program;
+ * the operands of each instruction are listed below.</p>
+ *
+ * <p>Matching instructions either succeed and advance the current index, or
+ * fail; a failure unwinds the backtrack stack up to the latest choice point,
+ * which restores the current index, the current context and, if a snapshot
+ * was taken, the value stack. Frames of variables entered since this choice
+ * point was pushed are exited.</p>
+ */
+final class Instructions
+{
+    /**
+     * Match a character: {@code CHAR c}
+     */
+    static final int CHAR = 0;
+
+    /**
+     * Match a character in a range: {@code RANGE low high}
+     */
+    static final int RANGE = 1;
+
+    /**
+     * Match a character in a set: {@code SET characters}
+     */
+    static final int SET = 2;
+
+    /**
+     * Match any character: {@code ANY}
+     */
+    static final int ANY = 3;
+
+    /**
+     * Match a string: {@code STRING string}
+     */
+    static final int STRING = 4;
+
+    /**
+     * Match the end of input: {@code EOI}
+     */
+    static final int EOI = 5;
+
+    /**
+     * Match characters in a set a bounded number of times: {@code SPAN
+     * characters min max}
+     */
+    static final int SPAN = 6;
+
+    /**
+     * Fail: {@code FAIL}
+     */
+    static final int FAIL = 7;
+
+    /**
+     * Jump to an address: {@code JUMP address}
+     */
+    static final int JUMP = 8;
+
+    /**
+     * Push a choice point resuming at an address: {@code CHOICE address
+     * snapshot}; the second operand tells whether the value stack is saved,
+     * and when it is restored (see below)
+     */
+    static final int CHOICE = 9;
+
+    /**
+     * Pop the latest choice point and jump: {@code COMMIT address}
+     */
+    static final int COMMIT = 10;
+
+    /**
+     * Pop the latest choice point and jump, provided the current index moved
+     * since the choice point was pushed: {@code COMMIT_ADVANCED address}
+     */
+    static final int COMMIT_ADVANCED = 11;
+
+    /**
+     * Update the latest choice point to the current state and jump, provided
+     * the current index moved since it was pushed (or last updated): {@code
+     * PARTIAL_COMMIT address}
+     */
+    static final int PARTIAL_COMMIT = 12;
+
+    /**
+     * Pop the latest choice point, restore the state it saved, and jump:
+     * {@code BACK_COMMIT address}
+     */
+    static final int BACK_COMMIT = 13;
+
+    /**
+     * Pop the latest choice point, and fail: {@code FAIL_TWICE}
+     */
+    static final int FAIL_TWICE = 14;
+
+    /**
+     * Call a subroutine: {@code CALL address}
+     */
+    static final int CALL = 15;
+
+    /**
+     * Return from a subroutine: {@code RETURN}
+     */
+    static final int RETURN = 16;
+
+    /**
+     * Open the context of a matcher: {@code OPEN matcher}
+     */
+    static final int OPEN = 17;
+
+    /**
+     * Close the current context, and make its parent current: {@code CLOSE}
+     */
+    static final int CLOSE = 18;
+
+    /**
+     * Run a matcher in a context of its own: {@code RUN matcher}
+     */
+    static final int RUN = 19;
+
+    /**
+     * Run a terminal in the current context: {@code TERMINAL matcher}
+     */
+    static final int TERMINAL = 20;
+
+    /**
+     * Push a counter with an initial value: {@code COUNTER value}
+     */
+    static final int COUNTER = 21;
+
+    /**
+     * Pop the latest choice point, provided the current index moved since it
+     * was pushed, and increment the counter below it; jump if the counter is
+     * lower than the maximum: {@code CYCLE address max}
+     */
+    static final int CYCLE = 22;
+
+    /**
+     * Pop the latest counter, and fail if it is lower than the minimum: {@code
+     * UNCOUNT min}
+     */
+    static final int UNCOUNT = 23;
+
+    /**
+     * Fail with an error if the current index did not move since the latest
+     * choice point was pushed: {@code ADVANCED message}
+     */
+    static final int ADVANCED = 24;
+
+    /**
+     * Enter a new frame of variables: {@code FRAME variables}
+     */
+    static final int FRAME = 25;
+
+    /**
+     * Exit the latest frame of variables: {@code UNFRAME}
+     */
+    static final int UNFRAME = 26;
+
+    /**
+     * Succeed: {@code END}
+     */
+    static final int END = 27;
+
+    /**
+     * Choice point operand: the value stack is not saved
+     */
+    static final int NO_SNAPSHOT = 0;
+
+    /**
+     * Choice point operand: the value stack is saved, and restored when
+     * backtracking to the choice point or by {@code BACK_COMMIT}
+     */
+    static final int SNAPSHOT = 1;
+
+    /**
+     * Choice point operand: the value stack is saved, but only restored by
+     * {@code BACK_COMMIT}
+     */
+    static final int COMMIT_SNAPSHOT = 2;
+
+    private Instructions()
+    {
+        throw new Error("nice try!");
+    }
+}
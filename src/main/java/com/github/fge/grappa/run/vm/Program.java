@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run.vm;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A program for the {@link VirtualMachine}
+ *
+ * <p>A program is made of its code, which starts at address 0 (see {@link
+ * Instructions}), and of a pool of constants referenced by the code: the
+ * matchers it opens contexts for or runs, the character sets and the
+ * strings it matches.</p>
+ */
+@Immutable
+final class Program
+{
+    private final int[] code;
+    private final Object[] constants;
+
+    Program(final int[] code, final Object[] constants)
+    {
+        this.code = code;
+        this.constants = constants;
+    }
+
+    int[] getCode()
+    {
+        return code;
+    }
+
+    Object[] getConstants()
+    {
+        return constants;
+    }
+}
@@ -0,0 +1,796 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run.vm;
+
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.AnyMatcher;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.EmptyMatcher;
+import com.github.fge.grappa.matchers.EndOfInputMatcher;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.NothingMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.analysis.StackNeutrality;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.join.JoinMatcher;
+import com.github.fge.grappa.matchers.optimize.RuleOptimizer;
+import com.github.fge.grappa.matchers.predicates.TestMatcher;
+import com.github.fge.grappa.matchers.predicates.TestNotMatcher;
+import com.github.fge.grappa.matchers.repeat.CharSpanMatcher;
+import com.github.fge.grappa.matchers.repeat.CodePointSpanMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatchers;
+import com.github.fge.grappa.matchers.wrap.MemoizingMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.matchers.wrap.VarFramingMatcher;
+import com.github.fge.grappa.support.Var;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.github.fge.grappa.run.vm.Instructions.ADVANCED;
+import static com.github.fge.grappa.run.vm.Instructions.ANY;
+import static com.github.fge.grappa.run.vm.Instructions.BACK_COMMIT;
+import static com.github.fge.grappa.run.vm.Instructions.CALL;
+import static com.github.fge.grappa.run.vm.Instructions.CHAR;
+import static com.github.fge.grappa.run.vm.Instructions.CHOICE;
+import static com.github.fge.grappa.run.vm.Instructions.CLOSE;
+import static com.github.fge.grappa.run.vm.Instructions.COMMIT;
+import static com.github.fge.grappa.run.vm.Instructions.COMMIT_ADVANCED;
+import static com.github.fge.grappa.run.vm.Instructions.COMMIT_SNAPSHOT;
+import static com.github.fge.grappa.run.vm.Instructions.COUNTER;
+import static com.github.fge.grappa.run.vm.Instructions.CYCLE;
+import static com.github.fge.grappa.run.vm.Instructions.END;
+import static com.github.fge.grappa.run.vm.Instructions.EOI;
+import static com.github.fge.grappa.run.vm.Instructions.FAIL;
+import static com.github.fge.grappa.run.vm.Instructions.FAIL_TWICE;
+import static com.github.fge.grappa.run.vm.Instructions.FRAME;
+import static com.github.fge.grappa.run.vm.Instructions.JUMP;
+import static com.github.fge.grappa.run.vm.Instructions.NO_SNAPSHOT;
+import static com.github.fge.grappa.run.vm.Instructions.OPEN;
+import static com.github.fge.grappa.run.vm.Instructions.PARTIAL_COMMIT;
+import static com.github.fge.grappa.run.vm.Instructions.RANGE;
+import static com.github.fge.grappa.run.vm.Instructions.RETURN;
+import static com.github.fge.grappa.run.vm.Instructions.RUN;
+import static com.github.fge.grappa.run.vm.Instructions.SET;
+import static com.github.fge.grappa.run.vm.Instructions.SNAPSHOT;
+import static com.github.fge.grappa.run.vm.Instructions.SPAN;
+import static com.github.fge.grappa.run.vm.Instructions.STRING;
+import static com.github.fge.grappa.run.vm.Instructions.TERMINAL;
+import static com.github.fge.grappa.run.vm.Instructions.UNCOUNT;
+import static com.github.fge.grappa.run.vm.Instructions.UNFRAME;
+
+/**
+ * Compiles a rule graph into a {@link Program} for the {@link VirtualMachine}
+ *
+ * <p>Sequences, first ofs, optionals, predicates, repetitions and joins are
+ * lowered to choice points, commits and jumps, and rules declaring {@link
+ * Var}s enter and exit their frames; terminals matching characters or
+ * strings become single instructions. A compiled matcher referenced only once
+ * is inlined in its parent; others become subroutines, which recursive rules
+ * call through the backtrack stack of the virtual machine rather than through
+ * the Java stack.</p>
+ *
+ * <p>As with {@link RuleOptimizer}, which should be run first, the outcome of
+ * a match is the same, but actions may see contexts at a different level: a
+ * compiled matcher only opens a context if it may be observed, that is, if it
+ * is a predicate, or has children which are not compiled (actions, and
+ * matchers not known to this class, which run in the interpreter along with
+ * all the graph reachable from them).</p>
+ *
+ * <p>Other matchers, such as {@link MemoizingMatcher}s, still use the Java
+ * stack for each nesting level of the rules they are part of.</p>
+ */
+public final class ProgramCompiler
+{
+    private static final String MATCHERS_PACKAGE
+        = MatcherType.class.getPackage().getName() + '.';
+
+    // beyond this, mandatory cycles of repetitions use a counter
+    private static final int MAX_EXPANDED_CYCLES = 16;
+
+    private final Map<Matcher, Integer> references = new IdentityHashMap<>();
+    private final Map<Matcher, Boolean> nullables = new IdentityHashMap<>();
+    private final Map<Matcher, Boolean> neutrals = new IdentityHashMap<>();
+    private final Map<Matcher, Boolean> restoring = new IdentityHashMap<>();
+    private final Map<Object, Integer> constantIndices
+        = new IdentityHashMap<>();
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Matcher, Integer> addresses = new IdentityHashMap<>();
+    private final List<Matcher> subroutines = new ArrayList<>();
+    private final List<Integer> callSites = new ArrayList<>();
+    private final List<Matcher> callees = new ArrayList<>();
+
+    private int[] code = new int[64];
+    private int size = 0;
+
+    /**
+     * Compile a rule graph
+     *
+     * <p>If the root of the graph is not a matcher which can be compiled, it
+     * is returned as is.</p>
+     *
+     * @param root the root of the graph; it must be fully built
+     * @return the root of the compiled graph
+     */
+    public static Matcher compile(@Nonnull final Matcher root)
+    {
+        Objects.requireNonNull(root);
+        final Matcher unwrapped = unwrapProxies(root);
+
+        if (!isCompiled(unwrapped))
+            return root;
+
+        return new VmMatcher(root.getLabel(),
+            new ProgramCompiler().generate(unwrapped));
+    }
+
+    private ProgramCompiler()
+    {
+    }
+
+    /*
+     * The value stack is left as the interpreter leaves it, including after a
+     * failure: choice points only restore it where the matchers they stand for
+     * would (see restoresOnFailure()); the root is wrapped in one if it
+     * restores the value stack when it fails.
+     */
+    private Program generate(final Matcher root)
+    {
+        references.put(root, 1);
+        countReferences(root);
+
+        final boolean snapshot = needsSnapshot(root);
+        final int failure = snapshot ? emitChoice(true) : -1;
+
+        if (isPredicate(root)) {
+            emit(OPEN, constant(root));
+            emitBody(root, snapshot);
+            emit(CLOSE);
+        } else {
+            emitBody(root, snapshot);
+        }
+
+        if (snapshot) {
+            final int success = emitJump(COMMIT);
+            patch(failure);
+            emit(FAIL);
+            patch(success);
+        }
+
+        emit(END);
+
+        // emitting a subroutine may add more subroutines to emit
+        Matcher matcher;
+        for (int i = 0; i < subroutines.size(); i++) {
+            matcher = subroutines.get(i);
+            addresses.put(matcher, size);
+            emitBody(matcher, false);
+            emit(RETURN);
+        }
+
+        for (int i = 0; i < callSites.size(); i++)
+            code[callSites.get(i)] = addresses.get(callees.get(i));
+
+        return new Program(Arrays.copyOf(code, size), constants.toArray());
+    }
+
+    private void countReferences(final Matcher root)
+    {
+        final List<Matcher> toVisit = new ArrayList<>();
+        toVisit.add(root);
+
+        Matcher matcher;
+        int copies;
+
+        while (!toVisit.isEmpty()) {
+            matcher = toVisit.remove(toVisit.size() - 1);
+            copies = copies(matcher);
+            for (final Matcher child: children(matcher)) {
+                if (!isCompiled(child))
+                    continue;
+                if (references.merge(child, copies, Integer::sum) == copies)
+                    toVisit.add(child);
+            }
+        }
+    }
+
+    /*
+     * If restored is true, the value stack is restored by a choice point if
+     * this matcher fails, as the interpreter would restore it; otherwise, the
+     * code emitted must leave the value stack as the interpreter would.
+     */
+    private void emitBody(final Matcher matcher, final boolean restored)
+    {
+        if (matcher instanceof VarFramingMatcher) {
+            emit(FRAME, constant(((VarFramingMatcher) matcher).getVariables()
+                .toArray(new Var<?>[0])));
+            emitBody(unwrapProxies(((VarFramingMatcher) matcher).getInner()),
+                restored);
+            emit(UNFRAME);
+            return;
+        }
+
+        final List<Matcher> children = children(matcher);
+        final Class<?> type = matcher.getClass();
+
+        if (type == SequenceMatcher.class) {
+            emitSequence(matcher, children, restored);
+        } else if (type == FirstOfMatcher.class) {
+            emitFirstOf(children, restored);
+        } else if (type == OptionalMatcher.class) {
+            final boolean snapshot = needsSnapshot(children.get(0));
+            final int failure = emitChoice(snapshot);
+            emitChild(children.get(0), false, snapshot);
+            patch(emitJump(COMMIT));
+            patch(failure);
+        } else if (type == TestMatcher.class) {
+            emitTest(children.get(0), restored);
+        } else if (type == TestNotMatcher.class) {
+            // the child succeeding leaves the value stack as it is
+            final int failure = emitChoice(!isNeutral(children.get(0)));
+            emitChild(children.get(0), false, true);
+            emit(FAIL_TWICE);
+            patch(failure);
+        } else if (matcher instanceof JoinMatcher) {
+            emitJoin((JoinMatcher) matcher, children.get(0), children.get(1),
+                restored);
+        } else {
+            emitRepeat((RepeatMatcher) matcher, children.get(0), restored);
+        }
+    }
+
+    /*
+     * A sequence restores the value stack when it fails; unless a choice point
+     * already does, it needs one of its own.
+     */
+    private void emitSequence(final Matcher matcher,
+        final List<Matcher> children, final boolean restored)
+    {
+        final boolean snapshot = !restored && !isNeutral(matcher);
+        final int failure = snapshot ? emitChoice(true) : -1;
+        final int size = children.size();
+
+        for (int i = 0; i < size; i++)
+            emitChild(children.get(i),
+                i + 1 < size && isInterpreted(children.get(i + 1)), true);
+
+        if (snapshot) {
+            final int success = emitJump(COMMIT);
+            patch(failure);
+            emit(FAIL);
+            patch(success);
+        }
+    }
+
+    /*
+     * Alternatives which fail leave the value stack as they leave it; the
+     * next alternative starts from there.
+     */
+    private void emitFirstOf(final List<Matcher> children,
+        final boolean restored)
+    {
+        final int last = children.size() - 1;
+        final List<Integer> successes = new ArrayList<>(last);
+
+        Matcher child;
+        boolean snapshot;
+        int failure;
+
+        for (int i = 0; i < last; i++) {
+            child = children.get(i);
+            snapshot = needsSnapshot(child);
+            failure = emitChoice(snapshot);
+            emitChild(child, false, snapshot);
+            successes.add(emitJump(COMMIT));
+            patch(failure);
+        }
+
+        if (last >= 0)
+            emitChild(children.get(last), false, restored);
+        else
+            emit(FAIL);
+
+        successes.forEach(this::patch);
+    }
+
+    /*
+     * A test restores the value stack if its child succeeds, but not if it
+     * fails; unless the child itself restores it then, the snapshot of the
+     * choice point is only used when committing.
+     */
+    private void emitTest(final Matcher child, final boolean restored)
+    {
+        final boolean neutral = isNeutral(child);
+        final boolean restoring = restored || restoresOnFailure(child);
+        final int failure = emitChoice(neutral ? NO_SNAPSHOT
+            : restoring ? SNAPSHOT : COMMIT_SNAPSHOT);
+
+        emitChild(child, false, restoring);
+        final int success = emitJump(BACK_COMMIT);
+        patch(failure);
+        emit(FAIL);
+        patch(success);
+    }
+
+    /*
+     * A repetition fails if its child matches empty; choice points record the
+     * index at which each cycle starts, and the commits closing cycles check
+     * it. Mandatory cycles only need such a choice point if their child can
+     * match empty at all.
+     *
+     * Repetitions with a maximum, or with many mandatory cycles, count their
+     * cycles instead.
+     */
+    private void emitRepeat(final RepeatMatcher matcher, final Matcher child,
+        final boolean restored)
+    {
+        final int minCycles = matcher.getMinCycles();
+        final int maxCycles = matcher.getMaxCycles();
+
+        if (maxCycles == 0)
+            return;
+
+        if (maxCycles != RepeatMatchers.UNBOUNDED
+            || minCycles >= MAX_EXPANDED_CYCLES) {
+            emit(COUNTER, 0);
+            final int loop = size;
+            final boolean snapshot = needsSnapshot(child);
+            final int failure = emitChoice(snapshot);
+            emitChild(child, false, snapshot);
+            emit(CYCLE, loop, maxCycles);
+            patch(failure);
+            emit(UNCOUNT, minCycles);
+            return;
+        }
+
+        final boolean nullable = isNullable(child);
+
+        int failure;
+
+        for (int i = 0; i < minCycles; i++) {
+            if (!nullable) {
+                emitChild(child, false, restored);
+                continue;
+            }
+            failure = emitChoice(false);
+            emitChild(child, false, restored);
+            final int success = emitJump(COMMIT_ADVANCED);
+            patch(failure);
+            emit(FAIL);
+            patch(success);
+        }
+
+        final boolean snapshot = needsSnapshot(child);
+        failure = emitChoice(snapshot);
+        final int loop = size;
+        emitChild(child, false, snapshot);
+        emit(PARTIAL_COMMIT, loop);
+        patch(failure);
+    }
+
+    /*
+     * The first cycle of a join only runs the joined rule; if it fails, the
+     * join succeeds only if no cycle is required. As in the interpreter, such
+     * a failure does not restore the value stack, while a failed cycle does.
+     */
+    private void emitJoin(final JoinMatcher matcher, final Matcher joined,
+        final Matcher joining, final boolean restored)
+    {
+        final boolean joinedFirst = isInterpreted(joining);
+        final boolean joiningFirst = isInterpreted(joined);
+        final String message = "joining rule ("
+            + matcher.getChildren().get(1) + ") of a JoinMatcher cannot match"
+            + " an empty character sequence!";
+
+        int noCycle = -1;
+
+        final int minCycles = matcher.getMinCycles();
+        final int maxCycles = matcher.getMaxCycles();
+
+        if (minCycles == 0) {
+            final int failure = emitChoice(false);
+            emitChild(joined, joinedFirst, false);
+            final int success = emitJump(COMMIT);
+            patch(failure);
+            noCycle = emitJump(JUMP);
+            patch(success);
+        } else {
+            emitChild(joined, joinedFirst, restored);
+        }
+
+        if (maxCycles <= 1) {
+            if (noCycle != -1)
+                patch(noCycle);
+            return;
+        }
+
+        emit(COUNTER, 1);
+        final int loop = size;
+        final int failure = emitChoice(!StackNeutrality.allNeutral(
+            Arrays.asList(joined, joining)));
+        emitChild(joining, joiningFirst, true);
+        emit(ADVANCED, constant(message));
+        emitChild(joined, joinedFirst, true);
+        emit(CYCLE, loop, maxCycles);
+        patch(failure);
+        emit(UNCOUNT, minCycles);
+
+        if (noCycle != -1)
+            patch(noCycle);
+    }
+
+    /*
+     * A child followed by a matcher run in the interpreter opens a context of
+     * its own, even if it would not otherwise need one: the next matcher may
+     * be an action, which accesses the match of the previous child through the
+     * last subcontext of its parent.
+     */
+    private void emitChild(final Matcher child,
+        final boolean followedByInterpreted, final boolean restored)
+    {
+        if (isInterpreted(child)) {
+            emit(RUN, constant(child));
+            return;
+        }
+
+        final boolean ownContext
+            = followedByInterpreted || needsOwnContext(child);
+
+        if (ownContext)
+            emit(OPEN, constant(child));
+
+        if (!isCompiled(child))
+            emitTerminal(child);
+        else if (references.get(child) == 1)
+            emitBody(child, restored);
+        else
+            emitCall(child);
+
+        if (ownContext)
+            emit(CLOSE);
+    }
+
+    private void emitCall(final Matcher matcher)
+    {
+        if (!addresses.containsKey(matcher)) {
+            addresses.put(matcher, -1);
+            subroutines.add(matcher);
+        }
+
+        callSites.add(emitJump(CALL));
+        callees.add(matcher);
+    }
+
+    private void emitTerminal(final Matcher matcher)
+    {
+        final Class<?> type = matcher.getClass();
+
+        if (type == CharMatcher.class) {
+            emit(CHAR, ((CharMatcher) matcher).getCharacter());
+        } else if (type == CharRangeMatcher.class) {
+            final CharRangeMatcher range = (CharRangeMatcher) matcher;
+            emit(RANGE, range.getLowerBound(), range.getUpperBound());
+        } else if (type == AnyOfMatcher.class) {
+            emit(SET, constant(((AnyOfMatcher) matcher).getCharacters()));
+        } else if (type == AnyMatcher.class) {
+            emit(ANY);
+        } else if (type == StringMatcher.class) {
+            emit(STRING, constant(((StringMatcher) matcher).getString()));
+        } else if (type == EndOfInputMatcher.class) {
+            emit(EOI);
+        } else if (type == NothingMatcher.class) {
+            emit(FAIL);
+        } else if (type == CharSpanMatcher.class) {
+            final CharSpanMatcher span = (CharSpanMatcher) matcher;
+            emit(SPAN, constant(span.getCharacters()), span.getMinCycles(),
+                span.getMaxCycles());
+        } else if (type != EmptyMatcher.class) {
+            emit(TERMINAL, constant(matcher));
+        }
+    }
+
+    private int emitChoice(final boolean snapshot)
+    {
+        return emitChoice(snapshot ? SNAPSHOT : NO_SNAPSHOT);
+    }
+
+    /*
+     * Returns the address of the operand to patch with the address of the
+     * alternative.
+     */
+    private int emitChoice(final int snapshot)
+    {
+        emit(CHOICE, 0, snapshot);
+        return size - 2;
+    }
+
+    private int emitJump(final int opcode)
+    {
+        emit(opcode, 0);
+        return size - 1;
+    }
+
+    private void patch(final int operand)
+    {
+        code[operand] = size;
+    }
+
+    private void emit(final int... words)
+    {
+        if (size + words.length > code.length)
+            code = Arrays.copyOf(code, Math.max(code.length * 2,
+                size + words.length));
+        System.arraycopy(words, 0, code, size, words.length);
+        size += words.length;
+    }
+
+    private int constant(final Object constant)
+    {
+        Integer ret = constantIndices.get(constant);
+
+        if (ret == null) {
+            ret = constants.size();
+            constantIndices.put(constant, ret);
+            constants.add(constant);
+        }
+
+        return ret;
+    }
+
+    /*
+     * A choice point in front of a compiled matcher saves the value stack if
+     * the interpreter would restore it when this matcher fails; the code of
+     * other matchers leaves the value stack as the interpreter would anyway.
+     */
+    private boolean needsSnapshot(final Matcher matcher)
+    {
+        return isCompiled(matcher) && !isNeutral(matcher)
+            && restoresOnFailure(matcher);
+    }
+
+    /*
+     * Whether the interpreter leaves the value stack as it was when this
+     * matcher fails (or whether it never fails). Conservative: recursive rules
+     * are assumed to restore it only if a sequence is part of the cycle, which
+     * is always the case unless they are left recursive.
+     */
+    private boolean restoresOnFailure(final Matcher framed)
+    {
+        final Matcher matcher = unframed(framed);
+        final Boolean known = restoring.get(matcher);
+
+        if (known != null)
+            return known;
+
+        restoring.put(matcher, true);
+
+        final Class<?> type = matcher.getClass();
+        final boolean ret;
+
+        if (isNeutral(matcher) || type == SequenceMatcher.class
+            || type == OptionalMatcher.class)
+            ret = true;
+        else if (!isCompiled(matcher))
+            ret = !isInterpreted(matcher) || matcher instanceof ActionMatcher;
+        else if (type == FirstOfMatcher.class)
+            ret = children(matcher).stream()
+                .allMatch(this::restoresOnFailure);
+        else if (type == TestMatcher.class)
+            ret = restoresOnFailure(children(matcher).get(0));
+        else if (type == TestNotMatcher.class)
+            ret = false;
+        else if (isJoin(matcher))
+            ret = ((JoinMatcher) matcher).getMinCycles() == 0;
+        else
+            ret = ((RepeatMatcher) matcher).getMinCycles() == 0;
+
+        restoring.put(matcher, ret);
+        return ret;
+    }
+
+    private boolean isNeutral(final Matcher matcher)
+    {
+        return neutrals.computeIfAbsent(matcher, StackNeutrality::isNeutral);
+    }
+
+    /*
+     * Conservative: a matcher is only deemed not to match empty if it is
+     * known not to. Recursive rules are assumed to match empty.
+     */
+    private boolean isNullable(final Matcher framed)
+    {
+        final Matcher matcher = unframed(framed);
+        final Boolean known = nullables.get(matcher);
+
+        if (known != null)
+            return known;
+
+        nullables.put(matcher, true);
+
+        final Class<?> type = matcher.getClass();
+        final boolean ret;
+
+        if (type == CharMatcher.class || type == CharRangeMatcher.class
+            || type == AnyOfMatcher.class || type == AnyMatcher.class
+            || type == NothingMatcher.class)
+            ret = false;
+        else if (type == StringMatcher.class)
+            ret = ((StringMatcher) matcher).getString().isEmpty();
+        else if (type == SequenceMatcher.class)
+            ret = children(matcher).stream().allMatch(this::isNullable);
+        else if (type == FirstOfMatcher.class)
+            ret = children(matcher).stream().anyMatch(this::isNullable);
+        else if (type == CharSpanMatcher.class)
+            ret = ((RepeatMatcher) matcher).getMinCycles() == 0;
+        else if (isCompiled(matcher) && matcher instanceof RepeatMatcher)
+            ret = ((RepeatMatcher) matcher).getMinCycles() == 0
+                || isNullable(children(matcher).get(0));
+        else if (isJoin(matcher))
+            ret = ((JoinMatcher) matcher).getMinCycles() == 0
+                || isNullable(children(matcher).get(0));
+        else
+            ret = true;
+
+        nullables.put(matcher, ret);
+        return ret;
+    }
+
+    /*
+     * Joins emit their joined rule twice; repetitions emit their child once
+     * per mandatory cycle, plus once for the loop, unless they count cycles.
+     */
+    private static int copies(final Matcher framed)
+    {
+        final Matcher matcher = unframed(framed);
+
+        if (isJoin(matcher))
+            return 2;
+
+        if (!(matcher instanceof RepeatMatcher))
+            return 1;
+
+        final RepeatMatcher repeat = (RepeatMatcher) matcher;
+        final int minCycles = repeat.getMinCycles();
+
+        return repeat.getMaxCycles() == RepeatMatchers.UNBOUNDED
+            && minCycles < MAX_EXPANDED_CYCLES ? minCycles + 1 : 1;
+    }
+
+    private static List<Matcher> children(final Matcher matcher)
+    {
+        final List<Matcher> children = matcher.getChildren();
+        final List<Matcher> ret = new ArrayList<>(children.size());
+
+        for (final Matcher child: children)
+            ret.add(unwrapProxies(child));
+
+        return ret;
+    }
+
+    private static boolean isPredicate(final Matcher matcher)
+    {
+        final Class<?> type = unframed(matcher).getClass();
+        return type == TestMatcher.class || type == TestNotMatcher.class;
+    }
+
+    /*
+     * Predicates always open a context, since actions check whether they run
+     * in one.
+     */
+    private static boolean needsOwnContext(final Matcher matcher)
+    {
+        if (!isCompiled(matcher))
+            return false;
+
+        if (isPredicate(matcher))
+            return true;
+
+        for (final Matcher child: children(matcher))
+            if (isInterpreted(child))
+                return true;
+
+        return false;
+    }
+
+    /*
+     * Subclasses are never compiled or inlined: they may match differently.
+     */
+    private static boolean isCompiled(final Matcher framed)
+    {
+        final Matcher matcher = unframed(framed);
+        final Class<?> type = matcher.getClass();
+
+        if (type == SequenceMatcher.class || type == FirstOfMatcher.class
+            || type == OptionalMatcher.class || isPredicate(matcher)
+            || isJoin(matcher))
+            return true;
+
+        return matcher instanceof RepeatMatcher
+            && type != CharSpanMatcher.class
+            && type != CodePointSpanMatcher.class;
+    }
+
+    private static boolean isJoin(final Matcher matcher)
+    {
+        return matcher instanceof JoinMatcher && matcher.getClass().getName()
+            .startsWith(MATCHERS_PACKAGE);
+    }
+
+    private static boolean isInlined(final Matcher matcher)
+    {
+        final Class<?> type = matcher.getClass();
+
+        return type == CharMatcher.class || type == CharRangeMatcher.class
+            || type == AnyOfMatcher.class || type == AnyMatcher.class
+            || type == StringMatcher.class || type == EmptyMatcher.class
+            || type == NothingMatcher.class || type == EndOfInputMatcher.class
+            || type == CharSpanMatcher.class;
+    }
+
+    /*
+     * Terminals defined by grappa only read the input and move the current
+     * index of their context; they can therefore run in the context of their
+     * parent.
+     */
+    private static boolean isInterpreted(final Matcher matcher)
+    {
+        if (isCompiled(matcher) || isInlined(matcher))
+            return false;
+
+        return matcher.getType() != MatcherType.TERMINAL
+            || !matcher.getClass().getName().startsWith(MATCHERS_PACKAGE);
+    }
+
+    /*
+     * Var frames are entered and exited around the body of the matcher they
+     * wrap, which is otherwise compiled as usual.
+     */
+    private static Matcher unframed(final Matcher matcher)
+    {
+        Matcher ret = matcher;
+
+        while (ret instanceof VarFramingMatcher)
+            ret = unwrapProxies(((VarFramingMatcher) ret).getInner());
+
+        return ret;
+    }
+
+    private static Matcher unwrapProxies(final Matcher matcher)
+    {
+        Matcher ret = matcher;
+        Matcher previous;
+
+        do {
+            previous = ret;
+            ret = ProxyMatcher.unwrap(ret);
+        } while (ret != previous);
+
+        return ret;
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run.vm;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.Characters;
+import com.github.fge.grappa.support.Var;
+
+import java.util.Arrays;
+
+import static com.github.fge.grappa.run.vm.Instructions.ADVANCED;
+import static com.github.fge.grappa.run.vm.Instructions.ANY;
+import static com.github.fge.grappa.run.vm.Instructions.BACK_COMMIT;
+import static com.github.fge.grappa.run.vm.Instructions.CALL;
+import static com.github.fge.grappa.run.vm.Instructions.CHAR;
+import static com.github.fge.grappa.run.vm.Instructions.CHOICE;
+import static com.github.fge.grappa.run.vm.Instructions.CLOSE;
+import static com.github.fge.grappa.run.vm.Instructions.COMMIT;
+import static com.github.fge.grappa.run.vm.Instructions.COMMIT_ADVANCED;
+import static com.github.fge.grappa.run.vm.Instructions.COMMIT_SNAPSHOT;
+import static com.github.fge.grappa.run.vm.Instructions.COUNTER;
+import static com.github.fge.grappa.run.vm.Instructions.CYCLE;
+import static com.github.fge.grappa.run.vm.Instructions.END;
+import static com.github.fge.grappa.run.vm.Instructions.EOI;
+import static com.github.fge.grappa.run.vm.Instructions.FAIL;
+import static com.github.fge.grappa.run.vm.Instructions.FAIL_TWICE;
+import static com.github.fge.grappa.run.vm.Instructions.FRAME;
+import static com.github.fge.grappa.run.vm.Instructions.JUMP;
+import static com.github.fge.grappa.run.vm.Instructions.NO_SNAPSHOT;
+import static com.github.fge.grappa.run.vm.Instructions.OPEN;
+import static com.github.fge.grappa.run.vm.Instructions.PARTIAL_COMMIT;
+import static com.github.fge.grappa.run.vm.Instructions.RANGE;
+import static com.github.fge.grappa.run.vm.Instructions.RETURN;
+import static com.github.fge.grappa.run.vm.Instructions.RUN;
+import static com.github.fge.grappa.run.vm.Instructions.SET;
+import static com.github.fge.grappa.run.vm.Instructions.SPAN;
+import static com.github.fge.grappa.run.vm.Instructions.STRING;
+import static com.github.fge.grappa.run.vm.Instructions.TERMINAL;
+import static com.github.fge.grappa.run.vm.Instructions.UNCOUNT;
+import static com.github.fge.grappa.run.vm.Instructions.UNFRAME;
+
+/**
+ * Runs a {@link Program} over the input of a context
+ *
+ * <p>All the state of a run is held in local variables of a single loop and
+ * in an explicit backtrack stack, which holds choice points along with the
+ * return addresses of subroutine calls, the counters of repetitions and the
+ * frames of variables; the depth of the Java stack therefore does not depend
+ * on the nesting of the input, except for matchers which are run by the
+ * interpreter.</p>
+ *
+ * <p>The current index is only written to the current context before this
+ * context can be observed: before a context is opened or closed, and before a
+ * matcher runs in it.</p>
+ *
+ * @param <V> type parameter of the parser's stack values
+ */
+final class VirtualMachine<V>
+{
+    private static final String EMPTY_REPEAT = "Inner rule of a RepeatMatcher"
+        + " cannot match an empty character sequence";
+
+    private static final int INITIAL_DEPTH = 32;
+
+    // indices recorded for entries which are not choice points; the address
+    // of such entries is the return address, the value of the counter, or
+    // the index of the variables in the constant pool, respectively
+    private static final int CALL_FRAME = -1;
+    private static final int COUNTER_FRAME = -2;
+    private static final int VAR_FRAME = -3;
+    // snapshot recorded for choice points which do not save the stack
+    private static final Object UNSAVED = new Object();
+
+    private final int[] code;
+    private final Object[] constants;
+    private final MatcherContext<V> root;
+    private final InputBuffer buffer;
+    private final int length;
+    private final ValueStack<V> valueStack;
+
+    private int depth = 0;
+    private int[] addresses = new int[INITIAL_DEPTH];
+    private int[] indices = new int[INITIAL_DEPTH];
+    private Object[] contexts = new Object[INITIAL_DEPTH];
+    private Object[] snapshots = new Object[INITIAL_DEPTH];
+
+    VirtualMachine(final Program program, final MatcherContext<V> context)
+    {
+        code = program.getCode();
+        constants = program.getConstants();
+        root = context;
+        buffer = context.getInputBuffer();
+        length = buffer.length();
+        valueStack = context.getValueStack();
+    }
+
+    @SuppressWarnings({ "unchecked", "OverlyLongMethod",
+        "OverlyComplexMethod" })
+    boolean run()
+    {
+        final int[] code = this.code;
+        MatcherContext<V> context = root;
+        int index = root.getCurrentIndex();
+        int pc = 0;
+        int top;
+        int end;
+        Matcher matcher;
+
+        while (true) {
+            switch (code[pc]) {
+                case CHAR:
+                    if (index < length
+                        && buffer.charAt(index) == code[pc + 1]) {
+                        index++;
+                        pc += 2;
+                        continue;
+                    }
+                    break;
+                case RANGE:
+                    if (index < length) {
+                        final char c = buffer.charAt(index);
+                        if (c >= code[pc + 1] && c <= code[pc + 2]) {
+                            index++;
+                            pc += 3;
+                            continue;
+                        }
+                    }
+                    break;
+                case SET:
+                    if (index < length && ((Characters) constants[code[pc + 1]])
+                        .contains(buffer.charAt(index))) {
+                        index++;
+                        pc += 2;
+                        continue;
+                    }
+                    break;
+                case ANY:
+                    if (index < length) {
+                        index++;
+                        pc++;
+                        continue;
+                    }
+                    break;
+                case STRING:
+                    final String string = (String) constants[code[pc + 1]];
+                    if (buffer.regionMatches(index, string)) {
+                        index += string.length();
+                        pc += 2;
+                        continue;
+                    }
+                    break;
+                case EOI:
+                    if (index == length) {
+                        pc++;
+                        continue;
+                    }
+                    break;
+                case SPAN:
+                    final Characters characters
+                        = (Characters) constants[code[pc + 1]];
+                    end = (int) Math.min(length, (long) index + code[pc + 3]);
+                    top = index;
+                    while (top < end && characters.contains(buffer.charAt(top)))
+                        top++;
+                    if (top - index >= code[pc + 2]) {
+                        index = top;
+                        pc += 4;
+                        continue;
+                    }
+                    break;
+                case FAIL:
+                    break;
+                case JUMP:
+                    pc = code[pc + 1];
+                    continue;
+                case CHOICE:
+                    push(code[pc + 1], index, context, snapshot(code[pc + 2]));
+                    pc += 3;
+                    continue;
+                case COMMIT:
+                    depth--;
+                    pc = code[pc + 1];
+                    continue;
+                case COMMIT_ADVANCED:
+                    depth--;
+                    if (index == indices[depth])
+                        throw new GrappaException(EMPTY_REPEAT);
+                    pc = code[pc + 1];
+                    continue;
+                case PARTIAL_COMMIT:
+                    top = depth - 1;
+                    if (index == indices[top])
+                        throw new GrappaException(EMPTY_REPEAT);
+                    indices[top] = index;
+                    if (snapshots[top] != UNSAVED)
+                        snapshots[top] = valueStack.takeSnapshot();
+                    pc = code[pc + 1];
+                    continue;
+                case BACK_COMMIT:
+                    depth--;
+                    index = indices[depth];
+                    context = (MatcherContext<V>) contexts[depth];
+                    if (snapshots[depth] instanceof CommitSnapshot)
+                        valueStack.restoreSnapshot(
+                            ((CommitSnapshot) snapshots[depth]).snapshot);
+                    else
+                        restoreSnapshot(depth);
+                    pc = code[pc + 1];
+                    continue;
+                case FAIL_TWICE:
+                    depth--;
+                    break;
+                case CALL:
+                    push(pc + 2, CALL_FRAME, null, null);
+                    pc = code[pc + 1];
+                    continue;
+                case RETURN:
+                    depth--;
+                    pc = addresses[depth];
+                    continue;
+                case OPEN:
+                    context.setCurrentIndex(index);
+                    context = ((Matcher) constants[code[pc + 1]])
+                        .getSubContext(context);
+                    pc += 2;
+                    continue;
+                case CLOSE:
+                    context.setCurrentIndex(index);
+                    context = context.getParent();
+                    pc++;
+                    continue;
+                case RUN:
+                    matcher = (Matcher) constants[code[pc + 1]];
+                    context.setCurrentIndex(index);
+                    if (matcher.getSubContext(context).runMatcher()) {
+                        index = context.getCurrentIndex();
+                        pc += 2;
+                        continue;
+                    }
+                    break;
+                case TERMINAL:
+                    matcher = (Matcher) constants[code[pc + 1]];
+                    context.setCurrentIndex(index);
+                    if (matcher.match(context)) {
+                        index = context.getCurrentIndex();
+                        pc += 2;
+                        continue;
+                    }
+                    break;
+                case COUNTER:
+                    push(code[pc + 1], COUNTER_FRAME, null, null);
+                    pc += 2;
+                    continue;
+                case CYCLE:
+                    depth--;
+                    if (index == indices[depth])
+                        throw new GrappaException(EMPTY_REPEAT);
+                    top = depth - 1;
+                    if (++addresses[top] < code[pc + 2]) {
+                        pc = code[pc + 1];
+                        continue;
+                    }
+                    pc += 3;
+                    continue;
+                case UNCOUNT:
+                    depth--;
+                    if (addresses[depth] >= code[pc + 1]) {
+                        pc += 2;
+                        continue;
+                    }
+                    break;
+                case ADVANCED:
+                    if (index == indices[depth - 1])
+                        throw new GrappaException(
+                            (String) constants[code[pc + 1]]);
+                    pc += 2;
+                    continue;
+                case FRAME:
+                    for (final Var<?> var: (Var<?>[]) constants[code[pc + 1]])
+                        var.enterFrame();
+                    push(code[pc + 1], VAR_FRAME, null, null);
+                    pc += 2;
+                    continue;
+                case UNFRAME:
+                    depth--;
+                    exitFrames(depth);
+                    pc++;
+                    continue;
+                case END:
+                    context.setCurrentIndex(index);
+                    return true;
+                default:
+                    throw new IllegalStateException("invalid opcode "
+                        + code[pc] + " at address " + pc);
+            }
+
+            // failure: backtrack to the latest choice point, if any
+            do {
+                if (depth == 0)
+                    return false;
+                depth--;
+                if (indices[depth] == VAR_FRAME)
+                    exitFrames(depth);
+            } while (indices[depth] < 0);
+
+            pc = addresses[depth];
+            index = indices[depth];
+            context = (MatcherContext<V>) contexts[depth];
+            restoreSnapshot(depth);
+        }
+    }
+
+    private void push(final int address, final int index, final Object context,
+        final Object snapshot)
+    {
+        if (depth == addresses.length) {
+            final int newLength = depth * 2;
+            addresses = Arrays.copyOf(addresses, newLength);
+            indices = Arrays.copyOf(indices, newLength);
+            contexts = Arrays.copyOf(contexts, newLength);
+            snapshots = Arrays.copyOf(snapshots, newLength);
+        }
+
+        addresses[depth] = address;
+        indices[depth] = index;
+        contexts[depth] = context;
+        snapshots[depth] = snapshot;
+        depth++;
+    }
+
+    private Object snapshot(final int operand)
+    {
+        if (operand == NO_SNAPSHOT)
+            return UNSAVED;
+
+        final Object snapshot = valueStack.takeSnapshot();
+        return operand == COMMIT_SNAPSHOT ? new CommitSnapshot(snapshot)
+            : snapshot;
+    }
+
+    private void exitFrames(final int entry)
+    {
+        for (final Var<?> var: (Var<?>[]) constants[addresses[entry]])
+            var.exitFrame();
+    }
+
+    // snapshots only restored by BACK_COMMIT are not restored here
+    private void restoreSnapshot(final int entry)
+    {
+        final Object snapshot = snapshots[entry];
+
+        if (snapshot != UNSAVED && !(snapshot instanceof CommitSnapshot))
+            valueStack.restoreSnapshot(snapshot);
+    }
+
+    private static final class CommitSnapshot
+    {
+        private final Object snapshot;
+
+        private CommitSnapshot(final Object snapshot)
+        {
+            this.snapshot = snapshot;
+        }
+    }
+}
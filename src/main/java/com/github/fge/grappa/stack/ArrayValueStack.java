@@ -11,7 +11,11 @@ import java.util.NoSuchElementException;
 /**
  * A {@link ValueStack} implementation using arrays
  *
- * <p>This is the default implementation currently used.</p>
+ * <p>Values are stored bottom first, which means the top of the stack is at
+ * the end of the array; pushing, popping and duplicating the top value
+ * therefore never need to move the other values. When full, the array doubles
+ * in size; it never shrinks, except when the stack is {@link #clear()
+ * cleared}.</p>
  *
  * @param <V> type parameter of the stack's element
  */
@@ -22,23 +26,33 @@ public final class ArrayValueStack<V>
     @VisibleForTesting
     static final int INITIAL_SIZE = 16;
 
-    @VisibleForTesting
-    static final int SIZE_INCREASE = 16;
-
     private int arraySize = 0;
-    private V[] array = (V[]) new Object[INITIAL_SIZE];
+    private V[] array = newArray(INITIAL_SIZE);
 
     public ArrayValueStack()
     {
     }
 
+    /*
+     * Values are given top first, as they would be returned by the iterator
+     */
     @VisibleForTesting
     ArrayValueStack(final V[] values)
     {
-        System.arraycopy(values, 0, array, 0, values.length);
-        arraySize = values.length;
+        final int length = values.length;
+
+        if (length > INITIAL_SIZE)
+            array = newArray(length);
+
+        for (int i = 0; i < length; i++)
+            array[i] = values[length - i - 1];
+
+        arraySize = length;
     }
 
+    /*
+     * Note: returns the array as it is stored, bottom first
+     */
     @VisibleForTesting
     V[] getArray()
     {
@@ -49,39 +63,39 @@ public final class ArrayValueStack<V>
     protected void doPush(final int down, final V value)
     {
         ensureCapacity();
-        System.arraycopy(array, down, array, down + 1, arraySize - down);
-        array[down] = value;
+        final int index = arraySize - down;
+        System.arraycopy(array, index, array, index + 1, down);
+        array[index] = value;
         arraySize++;
     }
 
     @Override
     protected V doPop(final int down)
     {
-        final V ret = array[down];
-        arraySize--;
-        System.arraycopy(array, down + 1, array, down, arraySize - down);
-        array[arraySize] = null;
-        shrinkIfNecessary();
+        final int index = arraySize - down - 1;
+        final V ret = array[index];
+        System.arraycopy(array, index + 1, array, index, down);
+        array[--arraySize] = null;
         return ret;
     }
 
     @Override
     protected V doPeek(final int down)
     {
-        return array[down];
+        return array[arraySize - down - 1];
     }
 
     @Override
     protected void doPoke(final int down, final V value)
     {
-        array[down] = value;
+        array[arraySize - down - 1] = value;
     }
 
     @Override
     protected void doDup()
     {
         ensureCapacity();
-        System.arraycopy(array, 0, array, 1, arraySize);
+        array[arraySize] = array[arraySize - 1];
         arraySize++;
     }
 
@@ -90,12 +104,13 @@ public final class ArrayValueStack<V>
     {
         V tmp;
 
-        final int swapIndex = n / 2; // this also works for odd numbers
+        int low = arraySize - n;
+        int high = arraySize - 1;
 
-        for (int index = 0; index < swapIndex; index++) {
-            tmp = array[index];
-            array[index] = array[n - index - 1];
-            array[n - index - 1] = tmp;
+        while (low < high) {
+            tmp = array[low];
+            array[low++] = array[high];
+            array[high--] = tmp;
         }
     }
 
@@ -109,23 +124,36 @@ public final class ArrayValueStack<V>
     public void clear()
     {
         arraySize = 0;
-        array = (V[]) new Object[INITIAL_SIZE];
+        array = newArray(INITIAL_SIZE);
     }
 
     @Nonnull
     @Override
     public Object takeSnapshot()
     {
-        final V[] copy = Arrays.copyOf(array, array.length);
-        return new ArrayWithSize<>(copy, arraySize);
+        return new Snapshot<>(Arrays.copyOf(array, arraySize));
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public void restoreSnapshot(final Object snapshot)
     {
-        final ArrayWithSize<V> s = (ArrayWithSize<V>) snapshot;
-        array = s.array;
-        arraySize = s.arraySize;
+        final V[] values = ((Snapshot<V>) snapshot).array;
+        final int size = values.length;
+
+        /*
+         * The snapshot array is copied rather than adopted: a snapshot may be
+         * restored more than once.
+         */
+        if (size > array.length)
+            array = Arrays.copyOf(values, Math.max(array.length << 1, size));
+        else
+            System.arraycopy(values, 0, array, 0, size);
+
+        if (arraySize > size)
+            Arrays.fill(array, size, arraySize, null);
+
+        arraySize = size;
     }
 
     @Override
@@ -137,26 +165,22 @@ public final class ArrayValueStack<V>
     private void ensureCapacity()
     {
         if (arraySize == array.length)
-            array = Arrays.copyOf(array, arraySize + SIZE_INCREASE);
+            array = Arrays.copyOf(array, arraySize << 1);
     }
 
-    private void shrinkIfNecessary()
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArray(final int size)
     {
-        final int length = array.length;
-        final int lengthSizeDiff = length - arraySize;
-        if (lengthSizeDiff >= SIZE_INCREASE)
-            array = Arrays.copyOf(array, length - SIZE_INCREASE);
+        return (T[]) new Object[size];
     }
 
-    private static final class ArrayWithSize<T>
+    private static final class Snapshot<T>
     {
         private final T[] array;
-        private final int arraySize;
 
-        private ArrayWithSize(final T[] array, final int size)
+        private Snapshot(final T[] array)
         {
             this.array = array;
-            arraySize = size;
         }
     }
 
@@ -164,20 +188,19 @@ public final class ArrayValueStack<V>
         implements Iterator<T>
     {
         private final T[] array;
-        private final int arraySize;
 
-        private int index = 0;
+        private int index;
 
         private ArrayIterator(final T[] array, final int size)
         {
             this.array = array;
-            arraySize = size;
+            index = size;
         }
 
         @Override
         public boolean hasNext()
         {
-            return index < arraySize;
+            return index > 0;
         }
 
         @Override
@@ -185,7 +208,7 @@ public final class ArrayValueStack<V>
         {
             if (!hasNext())
                 throw new NoSuchElementException();
-            return array[index++];
+            return array[--index];
         }
 
         @Override
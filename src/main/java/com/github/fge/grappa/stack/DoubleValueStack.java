@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.stack;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * A value stack of {@code double}s
+ *
+ * <p>In addition to the {@link ValueStack} operations, which box and unbox
+ * values, this stack offers operations on primitive values which do not
+ * allocate anything.</p>
+ *
+ * @see PrimitiveValueStack
+ */
+@ParametersAreNonnullByDefault
+public final class DoubleValueStack
+    extends PrimitiveValueStack<Double>
+{
+    /**
+     * Push a value onto the stack
+     *
+     * @param value the value
+     */
+    public void pushDouble(final double value)
+    {
+        pushBits(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Pop the top value of the stack
+     *
+     * @return the value
+     *
+     * @throws IllegalStateException the stack is empty
+     */
+    public double popDouble()
+    {
+        return popDouble(0);
+    }
+
+    /**
+     * Pop a value from the stack
+     *
+     * @param down the index of the value
+     * @return the value
+     *
+     * @throws IllegalArgumentException index is negative
+     * @throws IllegalStateException not enough elements in stack
+     */
+    public double popDouble(final int down)
+    {
+        return Double.longBitsToDouble(popBits(down));
+    }
+
+    /**
+     * Retrieve the top value of the stack without removing it
+     *
+     * @return the value
+     *
+     * @throws IllegalStateException the stack is empty
+     */
+    public double peekDouble()
+    {
+        return peekDouble(0);
+    }
+
+    /**
+     * Retrieve a value from the stack without removing it
+     *
+     * @param down the index of the value
+     * @return the value
+     *
+     * @throws IllegalArgumentException index is negative
+     * @throws IllegalStateException not enough elements in stack
+     */
+    public double peekDouble(final int down)
+    {
+        return Double.longBitsToDouble(peekBits(down));
+    }
+
+    /**
+     * Replace the top value of the stack
+     *
+     * @param value the new value
+     *
+     * @throws IllegalStateException the stack is empty
+     */
+    public void pokeDouble(final double value)
+    {
+        pokeBits(0, Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    protected long toBits(final Double value)
+    {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    @Override
+    protected Double fromBits(final long bits)
+    {
+        return Double.longBitsToDouble(bits);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.stack;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * A value stack of {@code int}s
+ *
+ * <p>In addition to the {@link ValueStack} operations, which box and unbox
+ * values, this stack offers operations on primitive values which do not
+ * allocate anything.</p>
+ *
+ * @see PrimitiveValueStack
+ */
+@ParametersAreNonnullByDefault
+public final class IntValueStack
+    extends PrimitiveValueStack<Integer>
+{
+    /**
+     * Push a value onto the stack
+     *
+     * @param value the value
+     */
+    public void pushInt(final int value)
+    {
+        pushBits(value);
+    }
+
+    /**
+     * Pop the top value of the stack
+     *
+     * @return the value
+     *
+     * @throws IllegalStateException the stack is empty
+     */
+    public int popInt()
+    {
+        return popInt(0);
+    }
+
+    /**
+     * Pop a value from the stack
+     *
+     * @param down the index of the value
+     * @return the value
+     *
+     * @throws IllegalArgumentException index is negative
+     * @throws IllegalStateException not enough elements in stack
+     */
+    public int popInt(final int down)
+    {
+        return (int) popBits(down);
+    }
+
+    /**
+     * Retrieve the top value of the stack without removing it
+     *
+     * @return the value
+     *
+     * @throws IllegalStateException the stack is empty
+     */
+    public int peekInt()
+    {
+        return peekInt(0);
+    }
+
+    /**
+     * Retrieve a value from the stack without removing it
+     *
+     * @param down the index of the value
+     * @return the value
+     *
+     * @throws IllegalArgumentException index is negative
+     * @throws IllegalStateException not enough elements in stack
+     */
+    public int peekInt(final int down)
+    {
+        return (int) peekBits(down);
+    }
+
+    /**
+     * Replace the top value of the stack
+     *
+     * @param value the new value
+     *
+     * @throws IllegalStateException the stack is empty
+     */
+    public void pokeInt(final int value)
+    {
+        pokeBits(0, value);
+    }
+
+    @Override
+    protected long toBits(final Integer value)
+    {
+        return value;
+    }
+
+    @Override
+    protected Integer fromBits(final long bits)
+    {
+        return (int) bits;
+    }
+}
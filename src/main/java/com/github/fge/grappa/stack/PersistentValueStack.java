@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.stack;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * A value stack implemented as a persistent linked list
+ *
+ * <p>Each element of the stack is an immutable node pointing to the node
+ * below it; modifying the stack only ever creates new nodes, and existing
+ * nodes are shared between all states of the stack which contain them. A
+ * snapshot is therefore simply the current top node, and both taking and
+ * restoring a snapshot are constant time operations, whatever the size of the
+ * stack.</p>
+ *
+ * <p>Operations at the top of the stack, which are by far the most common,
+ * are also constant time; operations at depth {@code n} need to recreate the
+ * {@code n} nodes above it.</p>
+ *
+ * @param <V> type of values in this stack
+ */
+@ParametersAreNonnullByDefault
+public final class PersistentValueStack<V>
+    extends ValueStackBase<V>
+{
+    private Node<V> head = Node.empty();
+
+    public PersistentValueStack()
+    {
+    }
+
+    @VisibleForTesting
+    PersistentValueStack(final Collection<V> values)
+    {
+        @SuppressWarnings("unchecked")
+        final V[] array = (V[]) values.toArray();
+        head = prepend(array, array.length, head);
+    }
+
+    @Override
+    public int size()
+    {
+        return head.size;
+    }
+
+    @Override
+    public void clear()
+    {
+        head = Node.empty();
+    }
+
+    @Nonnull
+    @Override
+    public Object takeSnapshot()
+    {
+        return head;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void restoreSnapshot(final Object snapshot)
+    {
+        Objects.requireNonNull(snapshot);
+        Preconditions.checkState(snapshot.getClass() == Node.class);
+        head = (Node<V>) snapshot;
+    }
+
+    @Override
+    protected void doPush(final int down, final V value)
+    {
+        if (down == 0) {
+            head = new Node<>(value, head);
+            return;
+        }
+
+        final V[] above = valuesAbove(down);
+        final Node<V> below = nodeAt(down);
+        head = prepend(above, down, new Node<>(value, below));
+    }
+
+    @Override
+    protected V doPop(final int down)
+    {
+        if (down == 0) {
+            final V ret = head.value;
+            head = head.next;
+            return ret;
+        }
+
+        final V[] above = valuesAbove(down);
+        final Node<V> node = nodeAt(down);
+        head = prepend(above, down, node.next);
+        return node.value;
+    }
+
+    @Override
+    protected V doPeek(final int down)
+    {
+        return nodeAt(down).value;
+    }
+
+    @Override
+    protected void doPoke(final int down, final V value)
+    {
+        final V[] above = valuesAbove(down);
+        final Node<V> node = nodeAt(down);
+        head = prepend(above, down, new Node<>(value, node.next));
+    }
+
+    @Override
+    protected void doDup()
+    {
+        head = new Node<>(head.value, head);
+    }
+
+    @Override
+    protected void doSwap(final int n)
+    {
+        final V[] values = valuesAbove(n);
+        final Node<V> below = nodeAt(n);
+
+        Node<V> node = below;
+
+        // values are in stack order; prepending them in this order reverses
+        // them
+        for (int i = 0; i < n; i++)
+            node = new Node<>(values[i], node);
+
+        head = node;
+    }
+
+    @Override
+    public Iterator<V> iterator()
+    {
+        return new NodeIterator<>(head);
+    }
+
+    @Nonnull
+    @Override
+    public String toString()
+    {
+        final StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (Node<V> node = head; node.size > 0; node = node.next)
+            joiner.add(String.valueOf(node.value));
+        return joiner.toString();
+    }
+
+    private Node<V> nodeAt(final int down)
+    {
+        Node<V> node = head;
+        for (int i = 0; i < down; i++)
+            node = node.next;
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V[] valuesAbove(final int down)
+    {
+        final V[] values = (V[]) new Object[down];
+        Node<V> node = head;
+
+        for (int i = 0; i < down; i++) {
+            values[i] = node.value;
+            node = node.next;
+        }
+
+        return values;
+    }
+
+    /*
+     * Prepend the first count values of an array, in stack order (that is,
+     * values[0] ends up at the top)
+     */
+    private static <V> Node<V> prepend(final V[] values, final int count,
+        final Node<V> tail)
+    {
+        Node<V> node = tail;
+        for (int i = count - 1; i >= 0; i--)
+            node = new Node<>(values[i], node);
+        return node;
+    }
+
+    private static final class Node<V>
+    {
+        private static final Node<?> EMPTY = new Node<>();
+
+        private final V value;
+        private final Node<V> next;
+        private final int size;
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V> empty()
+        {
+            return (Node<V>) EMPTY;
+        }
+
+        private Node()
+        {
+            value = null;
+            next = null;
+            size = 0;
+        }
+
+        private Node(final V value, final Node<V> next)
+        {
+            this.value = value;
+            this.next = next;
+            size = next.size + 1;
+        }
+    }
+
+    private static final class NodeIterator<T>
+        implements Iterator<T>
+    {
+        private Node<T> node;
+
+        private NodeIterator(final Node<T> node)
+        {
+            this.node = node;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return node.size > 0;
+        }
+
+        @Override
+        public T next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            final T ret = node.value;
+            node = node.next;
+            return ret;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.stack;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Base class for value stacks storing primitive values
+ *
+ * <p>Values are stored as {@code long}s in an array, bottom first (see {@link
+ * ArrayValueStack}); implementations define how values of their type are
+ * converted to and from a {@code long}.</p>
+ *
+ * <p>Snapshots do not copy the array: they share it with the stack, which
+ * copies it before writing to a position a snapshot still needs.</p>
+ *
+ * <p>All {@link ValueStack} operations are supported, but operations taking
+ * or returning values need to box or unbox them. Implementations therefore
+ * also provide operations on primitive values; {@link
+ * com.github.fge.grappa.parsers.BaseActions} uses them when the value stack of
+ * a parser is of the appropriate type.</p>
+ *
+ * @param <V> the boxed type of the stack values
+ *
+ * @see IntValueStack
+ * @see LongValueStack
+ * @see DoubleValueStack
+ */
+@ParametersAreNonnullByDefault
+public abstract class PrimitiveValueStack<V>
+    extends ValueStackBase<V>
+{
+    @VisibleForTesting
+    static final int INITIAL_SIZE = 16;
+
+    private int arraySize = 0;
+    private long[] array = new long[INITIAL_SIZE];
+    // positions below this one are shared with snapshots
+    private int frozen = 0;
+
+    /**
+     * Convert a value to its representation in this stack
+     *
+     * @param value the value
+     * @return the representation
+     */
+    protected abstract long toBits(V value);
+
+    /**
+     * Convert a representation in this stack to a value
+     *
+     * @param bits the representation
+     * @return the value
+     */
+    protected abstract V fromBits(long bits);
+
+    /**
+     * Push a primitive value onto the stack
+     *
+     * @param bits the representation of the value
+     */
+    protected final void pushBits(final long bits)
+    {
+        lowerWatermark(arraySize);
+        unfreeze(arraySize);
+        ensureCapacity();
+        array[arraySize++] = bits;
+    }
+
+    /**
+     * Pop a primitive value from the stack
+     *
+     * @param down the index of the value
+     * @return the representation of the value
+     *
+     * @throws IllegalArgumentException index is negative
+     * @throws IllegalStateException not enough elements in stack
+     */
+    protected final long popBits(final int down)
+    {
+        checkDown(down);
+        return doPopBits(down);
+    }
+
+    /**
+     * Retrieve a primitive value from the stack without removing it
+     *
+     * @param down the index of the value
+     * @return the representation of the value
+     *
+     * @throws IllegalArgumentException index is negative
+     * @throws IllegalStateException not enough elements in stack
+     */
+    protected final long peekBits(final int down)
+    {
+        checkDown(down);
+        return array[arraySize - down - 1];
+    }
+
+    /**
+     * Replace a primitive value on the stack
+     *
+     * @param down the index of the value
+     * @param bits the representation of the new value
+     *
+     * @throws IllegalArgumentException index is negative
+     * @throws IllegalStateException not enough elements in stack
+     */
+    protected final void pokeBits(final int down, final long bits)
+    {
+        checkDown(down);
+        unfreeze(arraySize - down - 1);
+        array[arraySize - down - 1] = bits;
+    }
+
+    @Override
+    protected final void doPush(final int down, final V value)
+    {
+        final int index = arraySize - down;
+        unfreeze(index);
+        ensureCapacity();
+        System.arraycopy(array, index, array, index + 1, down);
+        array[index] = toBits(value);
+        arraySize++;
+    }
+
+    @Override
+    protected final V doPop(final int down)
+    {
+        return fromBits(doPopBits(down));
+    }
+
+    @Override
+    protected final V doPeek(final int down)
+    {
+        return fromBits(array[arraySize - down - 1]);
+    }
+
+    @Override
+    protected final void doPoke(final int down, final V value)
+    {
+        unfreeze(arraySize - down - 1);
+        array[arraySize - down - 1] = toBits(value);
+    }
+
+    @Override
+    protected final void doDup()
+    {
+        unfreeze(arraySize);
+        ensureCapacity();
+        array[arraySize] = array[arraySize - 1];
+        arraySize++;
+    }
+
+    @Override
+    protected final void doSwap(final int n)
+    {
+        long tmp;
+
+        int low = arraySize - n;
+        int high = arraySize - 1;
+
+        unfreeze(low);
+
+        while (low < high) {
+            tmp = array[low];
+            array[low++] = array[high];
+            array[high--] = tmp;
+        }
+    }
+
+    @Override
+    public final int size()
+    {
+        return arraySize;
+    }
+
+    @Override
+    public final void clear()
+    {
+        arraySize = 0;
+        array = new long[INITIAL_SIZE];
+        frozen = 0;
+    }
+
+    @Nonnull
+    @Override
+    public final Object takeSnapshot()
+    {
+        frozen = Math.max(frozen, arraySize);
+        return new Snapshot(array, arraySize);
+    }
+
+    @Override
+    public final void restoreSnapshot(final Object snapshot)
+    {
+        final Snapshot restored = (Snapshot) snapshot;
+
+        /*
+         * Other snapshots may share the array, with a greater size: it is
+         * entirely frozen.
+         */
+        array = restored.array;
+        arraySize = restored.size;
+        frozen = array.length;
+    }
+
+    @Override
+    public final Iterator<V> iterator()
+    {
+        return new Iterator<V>()
+        {
+            private final long[] values = array;
+            private int index = arraySize;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index > 0;
+            }
+
+            @Override
+            public V next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return fromBits(values[--index]);
+            }
+        };
+    }
+
+    private void checkDown(final int down)
+    {
+        if (down < 0)
+            throw new IllegalArgumentException(NEGATIVE_INDEX);
+        checkIndex(down);
+        lowerWatermark(arraySize - down - 1);
+    }
+
+    private long doPopBits(final int down)
+    {
+        final int index = arraySize - down - 1;
+        final long ret = array[index];
+        if (down > 0)
+            unfreeze(index);
+        System.arraycopy(array, index + 1, array, index, down);
+        arraySize--;
+        return ret;
+    }
+
+    private void ensureCapacity()
+    {
+        if (arraySize == array.length) {
+            array = Arrays.copyOf(array, arraySize << 1);
+            frozen = 0;
+        }
+    }
+
+    // copy the array if a snapshot needs the given position
+    private void unfreeze(final int index)
+    {
+        if (index < frozen) {
+            array = array.clone();
+            frozen = 0;
+        }
+    }
+
+    private static final class Snapshot
+    {
+        private final long[] array;
+        private final int size;
+
+        private Snapshot(final long[] array, final int size)
+        {
+            this.array = array;
+            this.size = size;
+        }
+    }
+}
@@ -40,6 +40,8 @@ public abstract class ValueStackBase<V>
     @VisibleForTesting
     static final String SWAP_BADARG = "argument to swap(...) must be >= 2";
 
+    private int watermark = Integer.MAX_VALUE;
+
     @Override
     public final boolean isEmpty()
     {
@@ -63,6 +65,7 @@ public abstract class ValueStackBase<V>
             throw new IllegalArgumentException(NEGATIVE_INDEX);
         checkIndex(down - 1);
         Objects.requireNonNull(value);
+        lowerWatermark(size() - down);
         doPush(down, value);
     }
 
@@ -91,6 +94,7 @@ public abstract class ValueStackBase<V>
         if (down < 0)
             throw new IllegalArgumentException(NEGATIVE_INDEX);
         checkIndex(down);
+        lowerWatermark(size() - down - 1);
         return doPop(down);
     }
 
@@ -132,6 +136,7 @@ public abstract class ValueStackBase<V>
         if (down < 0)
             throw new IllegalArgumentException(NEGATIVE_INDEX);
         checkIndex(down);
+        lowerWatermark(size() - down - 1);
         return doPeek(down);
     }
 
@@ -172,6 +177,7 @@ public abstract class ValueStackBase<V>
             throw new IllegalArgumentException(NEGATIVE_INDEX);
         checkIndex(down);
         Objects.requireNonNull(value);
+        lowerWatermark(size() - down - 1);
         doPoke(down, value);
     }
 
@@ -195,6 +201,7 @@ public abstract class ValueStackBase<V>
          * As for .push(n, value), we need to check for n - 1 here
          */
         checkIndex(n - 1);
+        lowerWatermark(size() - n);
         doSwap(n);
     }
 
@@ -220,11 +227,65 @@ public abstract class ValueStackBase<V>
     public final void dup()
     {
         checkIndex(0);
+        lowerWatermark(size() - 1);
         doDup();
     }
 
     protected abstract void doDup();
 
+    /**
+     * Get the watermark of this stack
+     *
+     * <p>The watermark is the lowest position in the stack, counting from the
+     * <em>bottom</em> of the stack, which has been read or modified by one of
+     * the {@code push}, {@code pop}, {@code peek}, {@code poke}, {@code swap}
+     * or {@code dup} operations since the watermark was last set.</p>
+     *
+     * <p>This allows to determine whether a given sequence of operations only
+     * ever touched elements it pushed itself; see {@link
+     * #setWatermark(int)}.</p>
+     *
+     * @return the watermark
+     */
+    public final int getWatermark()
+    {
+        return watermark;
+    }
+
+    /**
+     * Set the watermark of this stack
+     *
+     * <p>A typical use is to set the watermark to the current size of the
+     * stack, run some code, then compare the resulting watermark with that
+     * size: if it is not lower, the code has not accessed any element which
+     * was on the stack before it ran.</p>
+     *
+     * @param watermark the new watermark
+     * @return the previous watermark
+     */
+    public final int setWatermark(final int watermark)
+    {
+        final int ret = this.watermark;
+        this.watermark = watermark;
+        return ret;
+    }
+
+    /**
+     * Lower the watermark to the given position, if it is lower than the
+     * current watermark
+     *
+     * <p>Implementations offering operations other than those defined by
+     * {@link ValueStack} must call this method for each position they read or
+     * modify.</p>
+     *
+     * @param position the position, counting from the bottom of the stack
+     */
+    protected final void lowerWatermark(final int position)
+    {
+        if (position < watermark)
+            watermark = position;
+    }
+
     /**
      * Check whether the stack has enough elements to perform an operation
      * given an index in the stack
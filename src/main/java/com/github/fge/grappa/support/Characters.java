@@ -20,22 +20,45 @@ import java.util.Arrays;
 import java.util.Objects;
 
 /**
- * An immutable, set-like aggregation of (relatively few) characters that allows
- * for an inverted semantic ("all chars except these few").
+ * An immutable set of characters
+ *
+ * <p>A set is said to be subtractive if it contains more than half of all
+ * characters; it is then described by the characters it does <b>not</b>
+ * contain ("all chars except these few"), see {@link #getChars()}.</p>
+ *
+ * <p>Sets are stored as bitmaps, which makes {@link #contains(char)} a
+ * constant time operation: ASCII characters are looked up in a 128 bit
+ * bitmap, and other characters in a two level table of 256 bit pages, where
+ * pages containing either no character or all characters are shared.</p>
  */
 public final class Characters
 {
-    private static final char[] NO_CHARS = new char[0];
+    private static final int ASCII_SIZE = 128;
+    private static final int NR_CHARS = 1 << Character.SIZE;
+
+    private static final int PAGE_SHIFT = 8;
+    private static final int NR_PAGES = NR_CHARS >>> PAGE_SHIFT;
+    private static final int WORDS_PER_PAGE = (1 << PAGE_SHIFT) / Long.SIZE;
+    private static final int NR_WORDS = NR_CHARS / Long.SIZE;
+
+    private static final long[] EMPTY_PAGE = new long[WORDS_PER_PAGE];
+    private static final long[] FULL_PAGE = { -1L, -1L, -1L, -1L };
 
     /**
      * The empty Characters set
      */
-    public static final Characters NONE = new Characters(false, NO_CHARS);
+    public static final Characters NONE = new Characters(new long[NR_WORDS]);
 
     /**
      * The Characters set including all character.
      */
-    public static final Characters ALL = new Characters(true, NO_CHARS);
+    public static final Characters ALL = NONE.complement();
+
+    // ASCII characters
+    private final long low;
+    private final long high;
+    // all characters, by pages of 256 characters
+    private final long[][] pages;
 
     // if the set is subtractive its semantics change from "includes all
     // characters in the set" to "includes all characters not in the set"
@@ -50,7 +73,9 @@ public final class Characters
      */
     public static Characters of(final char c)
     {
-        return new Characters(false, new char[]{ c });
+        final long[] bits = new long[NR_WORDS];
+        set(bits, c);
+        return new Characters(bits);
     }
 
     /**
@@ -61,12 +86,15 @@ public final class Characters
      */
     public static Characters of(final char... chars)
     {
-        final int length = chars.length;
-        if (length == 0)
+        if (chars.length == 0)
             return NONE;
-        final char[] array = Arrays.copyOf(chars, length);
-        Arrays.sort(array);
-        return new Characters(false, array);
+
+        final long[] bits = new long[NR_WORDS];
+
+        for (final char c: chars)
+            set(bits, c);
+
+        return new Characters(bits);
     }
 
     /**
@@ -88,18 +116,65 @@ public final class Characters
      */
     public static Characters allBut(final char... chars)
     {
-        final int length = chars.length;
-        if (length == 0)
-            return ALL;
-        final char[] array = Arrays.copyOf(chars, length);
-        Arrays.sort(array);
-        return new Characters(true, array);
+        return chars.length == 0 ? ALL : of(chars).complement();
+    }
+
+    /**
+     * Creates a new Characters instance containing a range of characters
+     *
+     * @param lowerBound the first character of the range
+     * @param upperBound the last character of the range
+     * @return a new Characters object
+     * @throws IllegalArgumentException lower bound is greater than upper
+     * bound
+     */
+    public static Characters range(final char lowerBound,
+        final char upperBound)
+    {
+        if (lowerBound > upperBound)
+            throw new IllegalArgumentException("illegal range: lower bound "
+                + "is greater than upper bound");
+
+        final long[] bits = new long[NR_WORDS];
+
+        for (int c = lowerBound; c <= upperBound; c++)
+            set(bits, c);
+
+        return new Characters(bits);
     }
 
-    private Characters(final boolean subtractive, final char[] chars)
+    private Characters(final long[] bits)
     {
-        this.subtractive = subtractive;
-        this.chars = Objects.requireNonNull(chars, "chars");
+        low = bits[0];
+        high = bits[1];
+
+        pages = new long[NR_PAGES][];
+
+        int cardinality = 0;
+
+        for (int page = 0; page < NR_PAGES; page++) {
+            final int from = page * WORDS_PER_PAGE;
+            final long[] words
+                = Arrays.copyOfRange(bits, from, from + WORDS_PER_PAGE);
+            if (Arrays.equals(words, EMPTY_PAGE))
+                pages[page] = EMPTY_PAGE;
+            else if (Arrays.equals(words, FULL_PAGE))
+                pages[page] = FULL_PAGE;
+            else
+                pages[page] = words;
+        }
+
+        for (final long word: bits)
+            cardinality += Long.bitCount(word);
+
+        subtractive = cardinality > NR_CHARS / 2;
+        chars = new char[subtractive ? NR_CHARS - cardinality : cardinality];
+
+        int index = 0;
+
+        for (int c = 0; c < NR_CHARS; c++)
+            if (contains((char) c) != subtractive)
+                chars[index++] = (char) c;
     }
 
     /**
@@ -114,11 +189,11 @@ public final class Characters
      * Returns the characters in this set, if it is additive.
      * If the set is subtractive the method returns the characters <b>not</b> in the set.
      *
-     * @return the characters
+     * @return the characters, in ascending order
      */
     public char[] getChars()
     {
-        return chars;
+        return chars.clone();
     }
 
     /**
@@ -129,8 +204,81 @@ public final class Characters
      */
     public boolean contains(final char c)
     {
-        final int index = Arrays.binarySearch(chars, c);
-        return index < 0 == subtractive;
+        if (c < ASCII_SIZE)
+            return ((c < Long.SIZE ? low : high) & 1L << c) != 0L;
+
+        final long word
+            = pages[c >>> PAGE_SHIFT][(c >>> 6) & (WORDS_PER_PAGE - 1)];
+        return (word & 1L << c) != 0L;
+    }
+
+    /**
+     * Return the set of characters in this set or in another set
+     *
+     * @param other the other set
+     * @return a new Characters object
+     */
+    public Characters union(final Characters other)
+    {
+        Objects.requireNonNull(other);
+
+        final long[] bits = toBits();
+        final long[] otherBits = other.toBits();
+
+        for (int i = 0; i < NR_WORDS; i++)
+            bits[i] |= otherBits[i];
+
+        return new Characters(bits);
+    }
+
+    /**
+     * Return the set of characters in both this set and another set
+     *
+     * @param other the other set
+     * @return a new Characters object
+     */
+    public Characters intersection(final Characters other)
+    {
+        Objects.requireNonNull(other);
+
+        final long[] bits = toBits();
+        final long[] otherBits = other.toBits();
+
+        for (int i = 0; i < NR_WORDS; i++)
+            bits[i] &= otherBits[i];
+
+        return new Characters(bits);
+    }
+
+    /**
+     * Return the set of characters not in this set
+     *
+     * @return a new Characters object
+     */
+    public Characters complement()
+    {
+        final long[] bits = toBits();
+
+        for (int i = 0; i < NR_WORDS; i++)
+            bits[i] = ~bits[i];
+
+        return new Characters(bits);
+    }
+
+    private long[] toBits()
+    {
+        final long[] bits = new long[NR_WORDS];
+
+        for (int page = 0; page < NR_PAGES; page++)
+            System.arraycopy(pages[page], 0, bits, page * WORDS_PER_PAGE,
+                WORDS_PER_PAGE);
+
+        return bits;
+    }
+
+    private static void set(final long[] bits, final int c)
+    {
+        bits[c / Long.SIZE] |= 1L << c;
     }
 
     @Override
@@ -17,6 +17,7 @@
 package com.github.fge.grappa.support;
 
 import com.github.fge.grappa.misc.Reference;
+import com.github.fge.grappa.run.ParseRunner;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -45,6 +46,11 @@ import java.util.function.Supplier;
  * rule1()} running after {@code rule2()} will "see" this newly written value
  * (since values in Var objects are passed by reference).</p>
  *
+ * <p>Frames and values are held by the Var itself, and therefore by the parser
+ * instance whose rules use it; they can still be read once a parsing run is
+ * over. Concurrent runs must use rules created by different parser instances
+ * (see {@link ParseRunner}).</p>
+ *
  * @param <T> the type wrapped by this Var
  */
 public class Var<T>
@@ -33,6 +33,7 @@ import com.github.fge.grappa.transform.process.InstructionGraphCreator;
 import com.github.fge.grappa.transform.process.InstructionGroupCreator;
 import com.github.fge.grappa.transform.process.InstructionGroupPreparer;
 import com.github.fge.grappa.transform.process.LabellingGenerator;
+import com.github.fge.grappa.transform.process.MemoizingGenerator;
 import com.github.fge.grappa.transform.process.ReturnInstructionUnifier;
 import com.github.fge.grappa.transform.process.RuleMethodProcessor;
 import com.github.fge.grappa.transform.process.RuleMethodRewriter;
@@ -74,6 +75,7 @@ public final class ParserGenerator<V, P extends BaseParser<V>>
             new SuperCallRewriter(),
             new BodyWithSuperCallReplacer(),
             new VarFramingGenerator(),
+            new MemoizingGenerator(),
             new LabellingGenerator(),
             new CachingGenerator()
         );
@@ -32,6 +32,7 @@ import com.github.fge.grappa.transform.process.InstructionGraphCreator;
 import com.github.fge.grappa.transform.process.InstructionGroupCreator;
 import com.github.fge.grappa.transform.process.InstructionGroupPreparer;
 import com.github.fge.grappa.transform.process.LabellingGenerator;
+import com.github.fge.grappa.transform.process.MemoizingGenerator;
 import com.github.fge.grappa.transform.process.ReturnInstructionUnifier;
 import com.github.fge.grappa.transform.process.RuleMethodProcessor;
 import com.github.fge.grappa.transform.process.RuleMethodRewriter;
@@ -158,6 +159,7 @@ public final class ParserTransformer
             new SuperCallRewriter(),
             new BodyWithSuperCallReplacer(),
             new VarFramingGenerator(),
+            new MemoizingGenerator(),
             new LabellingGenerator(),
             new CachingGenerator()
         );
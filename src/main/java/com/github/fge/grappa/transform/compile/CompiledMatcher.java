@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.transform.compile;
+
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The root matcher of a compiled rule graph
+ *
+ * <p>This matcher has the label of the root of the graph it was compiled
+ * from, and matches exactly what this root matches.</p>
+ *
+ * @see GrammarCompiler
+ */
+@Immutable
+public final class CompiledMatcher
+    extends AbstractMatcher
+{
+    private final CompiledRules rules;
+
+    CompiledMatcher(final String label, final CompiledRules rules)
+    {
+        super(label);
+        this.rules = rules;
+    }
+
+    @Override
+    public MatcherType getType()
+    {
+        return MatcherType.COMPOSITE;
+    }
+
+    @Override
+    public <V> boolean match(final MatcherContext<V> context)
+    {
+        return rules.match(context);
+    }
+}
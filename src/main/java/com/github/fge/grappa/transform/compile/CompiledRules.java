@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.transform.compile;
+
+import com.github.fge.grappa.run.context.MatcherContext;
+
+/**
+ * The interface implemented by the classes generated by {@link
+ * GrammarCompiler}
+ */
+interface CompiledRules
+{
+    /**
+     * Run the compiled root matcher
+     *
+     * @param context the context of the root matcher
+     * @param <V> type parameter of the stack values
+     * @return true if the match succeeded
+     */
+    <V> boolean match(MatcherContext<V> context);
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.transform.compile;
+
+import com.github.fge.grappa.matchers.AnyMatcher;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.EmptyMatcher;
+import com.github.fge.grappa.matchers.EndOfInputMatcher;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.NothingMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.optimize.RuleOptimizer;
+import com.github.fge.grappa.matchers.predicates.TestMatcher;
+import com.github.fge.grappa.matchers.predicates.TestNotMatcher;
+import com.github.fge.grappa.matchers.repeat.CharSpanMatcher;
+import com.github.fge.grappa.matchers.repeat.CodePointSpanMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.transform.CodeBlock;
+import com.github.fge.grappa.transform.ParserTransformException;
+import com.github.fge.grappa.transform.load.LookupClassLoader;
+import org.objectweb.asm.ClassTooLargeException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.MethodNode;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static me.qmx.jitescript.util.CodegenUtils.ci;
+import static me.qmx.jitescript.util.CodegenUtils.p;
+import static me.qmx.jitescript.util.CodegenUtils.sig;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+/**
+ * Compiles a rule graph into a single generated class
+ *
+ * <p>Each sequence, first of, optional, repetition and predicate of the graph
+ * becomes a method of the generated class. In these methods, terminals
+ * matching characters or strings are checked inline against the input
+ * buffer, and compiled children are called directly. Instead of an interface
+ * call to {@link Matcher#match(MatcherContext)} through the match handler,
+ * and a new context, per match attempt, the JIT sees direct calls which it can
+ * inline across rules.</p>
+ *
+ * <p>A compiled matcher only gets a context of its own if its children may
+ * observe it: predicates do, as do actions and all other matchers which are
+ * not compiled; such matchers are run by the interpreter, along with all the
+ * graph reachable from them. Other compiled matchers run in the context of
+ * their parent. As with {@link RuleOptimizer}, which should be run first,
+ * the outcome of a match is the same, but actions may see contexts at a
+ * different level.</p>
+ *
+ * <p>Generated classes are defined in the class loader of this package, and
+ * are never unloaded; compile a graph once, and reuse the result for all
+ * runs.</p>
+ */
+public final class GrammarCompiler
+{
+    private static final String MATCHERS_PACKAGE
+        = MatcherType.class.getPackage().getName() + '.';
+    private static final String CLASS_PREFIX
+        = GrammarCompiler.class.getPackage().getName().replace('.', '/')
+        + "/GeneratedRules";
+    private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+    private final String className;
+    private final Map<Matcher, String> methodNames = new IdentityHashMap<>();
+    private final List<Matcher> compiled = new ArrayList<>();
+    private final Map<Object, String> fieldNames = new IdentityHashMap<>();
+    private final List<Object> constants = new ArrayList<>();
+
+    /**
+     * Compile a rule graph
+     *
+     * <p>If the root of the graph is not a matcher which can be compiled, or
+     * if the generated class would be too large, the root is returned as
+     * is.</p>
+     *
+     * @param root the root of the graph; it must be fully built
+     * @return the root of the compiled graph
+     */
+    public static Matcher compile(@Nonnull final Matcher root)
+    {
+        Objects.requireNonNull(root);
+        final Matcher unwrapped = unwrapProxies(root);
+
+        if (!isCompiled(unwrapped))
+            return root;
+
+        return new GrammarCompiler().generate(unwrapped);
+    }
+
+    private GrammarCompiler()
+    {
+        className = CLASS_PREFIX + CLASS_COUNTER.incrementAndGet();
+    }
+
+    private Matcher generate(final Matcher root)
+    {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+
+        cw.visit(V1_8, ACC_PUBLIC + ACC_FINAL + ACC_SYNTHETIC, className, null,
+            p(Object.class), new String[] { p(CompiledRules.class) });
+
+        final String rootMethod = methodName(root);
+
+        // compiling a matcher may add more matchers to compile
+        for (int i = 0; i < compiled.size(); i++) {
+            final Matcher matcher = compiled.get(i);
+            final MethodNode method = new MethodNode(ACC_PRIVATE,
+                methodNames.get(matcher), RuleMethodGenerator.MATCH_DESC, null,
+                null);
+            method.instructions.add(new RuleMethodGenerator(this, matcher)
+                .generate().getInstructionList());
+            method.accept(cw);
+        }
+
+        generateMatch(cw, rootMethod);
+        generateConstructor(cw);
+
+        final byte[] code;
+
+        try {
+            code = cw.toByteArray();
+        } catch (MethodTooLargeException | ClassTooLargeException ignored) {
+            return root;
+        }
+
+        final CompiledRules rules;
+
+        try (
+            final LookupClassLoader loader = new LookupClassLoader(
+                GrammarCompiler.class.getClassLoader(), GrammarCompiler.class)
+        ) {
+            rules = (CompiledRules) loader
+                .loadClass(className.replace('/', '.'), code)
+                .getConstructor(Object[].class)
+                .newInstance((Object) constants.toArray());
+        } catch (ReflectiveOperationException e) {
+            throw new ParserTransformException(
+                "unable to instantiate compiled rules", e);
+        }
+
+        return new CompiledMatcher(root.getLabel(), rules);
+    }
+
+    private void generateMatch(final ClassWriter cw, final String rootMethod)
+    {
+        final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "match",
+            RuleMethodGenerator.MATCH_DESC, null, null);
+        final CodeBlock block = CodeBlock.newCodeBlock()
+            .aload(0)
+            .aload(1)
+            .invokespecial(className, rootMethod,
+                RuleMethodGenerator.MATCH_DESC)
+            .ireturn();
+
+        mv.visitCode();
+        block.getInstructionList().accept(mv);
+        mv.visitMaxs(0, 0); // trigger automatic computing
+        mv.visitEnd();
+    }
+
+    /*
+     * Constants are passed to the constructor as an array, and stored in
+     * final fields in the order they were registered.
+     */
+    private void generateConstructor(final ClassWriter cw)
+    {
+        final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>",
+            sig(void.class, Object[].class), null, null);
+        final CodeBlock block = CodeBlock.newCodeBlock()
+            .aload(0)
+            .invokespecial(p(Object.class), "<init>", sig(void.class));
+
+        for (int i = 0; i < constants.size(); i++) {
+            final Class<?> type = fieldType(constants.get(i));
+            final String name = fieldNames.get(constants.get(i));
+            cw.visitField(ACC_PRIVATE + ACC_FINAL, name, ci(type), null, null)
+                .visitEnd();
+            block.aload(0)
+                .aload(1)
+                .ldc(i)
+                .aaload()
+                .checkcast(p(type))
+                .putfield(className, name, ci(type));
+        }
+
+        block.voidreturn();
+
+        mv.visitCode();
+        block.getInstructionList().accept(mv);
+        mv.visitMaxs(0, 0); // trigger automatic computing
+        mv.visitEnd();
+    }
+
+    String getClassName()
+    {
+        return className;
+    }
+
+    /**
+     * Get the name of the method compiled for a matcher
+     *
+     * @param matcher the matcher (must be compiled)
+     * @return the method name
+     */
+    String methodName(final Matcher matcher)
+    {
+        String ret = methodNames.get(matcher);
+
+        if (ret == null) {
+            ret = "match" + compiled.size();
+            methodNames.put(matcher, ret);
+            compiled.add(matcher);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Get the name of the field holding a constant
+     *
+     * @param constant the constant
+     * @return the field name
+     */
+    String fieldName(final Object constant)
+    {
+        String ret = fieldNames.get(constant);
+
+        if (ret == null) {
+            ret = "constant" + constants.size();
+            fieldNames.put(constant, ret);
+            constants.add(constant);
+        }
+
+        return ret;
+    }
+
+    static Class<?> fieldType(final Object constant)
+    {
+        return constant instanceof Matcher ? Matcher.class
+            : constant.getClass();
+    }
+
+    /*
+     * Subclasses are never compiled or inlined: they may match differently.
+     */
+    static boolean isCompiled(final Matcher matcher)
+    {
+        final Class<?> type = matcher.getClass();
+
+        if (type == SequenceMatcher.class || type == FirstOfMatcher.class
+            || type == OptionalMatcher.class || type == TestMatcher.class
+            || type == TestNotMatcher.class)
+            return true;
+
+        return matcher instanceof RepeatMatcher
+            && type != CharSpanMatcher.class
+            && type != CodePointSpanMatcher.class;
+    }
+
+    static boolean isInlined(final Matcher matcher)
+    {
+        final Class<?> type = matcher.getClass();
+
+        return type == CharMatcher.class || type == CharRangeMatcher.class
+            || type == AnyOfMatcher.class || type == AnyMatcher.class
+            || type == StringMatcher.class || type == EmptyMatcher.class
+            || type == NothingMatcher.class || type == EndOfInputMatcher.class
+            || type == CharSpanMatcher.class;
+    }
+
+    /*
+     * Terminals defined by grappa only read the input and move the current
+     * index of their context; they can therefore be called on the context of
+     * their parent.
+     */
+    static boolean isCalledInPlace(final Matcher matcher)
+    {
+        return matcher.getType() == MatcherType.TERMINAL
+            && matcher.getClass().getName().startsWith(MATCHERS_PACKAGE);
+    }
+
+    /**
+     * Tell whether a matcher is run by the interpreter, in a context of its
+     * own
+     *
+     * @param matcher the matcher
+     * @return true if this is the case
+     */
+    static boolean isInterpreted(final Matcher matcher)
+    {
+        return !(isCompiled(matcher) || isInlined(matcher)
+            || isCalledInPlace(matcher));
+    }
+
+    static Matcher unwrapProxies(final Matcher matcher)
+    {
+        Matcher ret = matcher;
+        Matcher previous;
+
+        do {
+            previous = ret;
+            ret = ProxyMatcher.unwrap(ret);
+        } while (ret != previous);
+
+        return ret;
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.transform.compile;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.EmptyMatcher;
+import com.github.fge.grappa.matchers.EndOfInputMatcher;
+import com.github.fge.grappa.matchers.NothingMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.analysis.StackNeutrality;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.predicates.TestMatcher;
+import com.github.fge.grappa.matchers.predicates.TestNotMatcher;
+import com.github.fge.grappa.matchers.repeat.CharSpanMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatchers;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.Characters;
+import com.github.fge.grappa.transform.CodeBlock;
+import org.objectweb.asm.tree.LabelNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static me.qmx.jitescript.util.CodegenUtils.ci;
+import static me.qmx.jitescript.util.CodegenUtils.p;
+import static me.qmx.jitescript.util.CodegenUtils.sig;
+
+/**
+ * Generates the body of the method compiled for a matcher
+ *
+ * <p>A method takes the context the matcher runs in, and returns whether the
+ * match succeeded; on success, the current index of the context is at the end
+ * of the match. On failure, the current index is unspecified: matchers which
+ * go on matching after a child failed (first ofs, optionals, repetitions)
+ * reset it themselves.</p>
+ *
+ * <p>A child runs in the context of its parent, unless the parent or the
+ * child needs a context of its own (see {@link #needsOwnContext(Matcher)}),
+ * or the child is followed by an interpreted matcher in a sequence: actions
+ * access the match of the matcher preceding them through the last
+ * subcontext of their parent.</p>
+ */
+final class RuleMethodGenerator
+{
+    static final String MATCH_DESC = sig(boolean.class, MatcherContext.class);
+
+    private static final String CONTEXT = p(MatcherContext.class);
+    private static final String BUFFER = p(InputBuffer.class);
+    private static final String MATCHER = p(Matcher.class);
+    private static final String STACK = p(ValueStack.class);
+    private static final String CHARACTERS = p(Characters.class);
+
+    private static final String EMPTY_REPEAT = "Inner rule of a RepeatMatcher"
+        + " cannot match an empty character sequence";
+
+    // local variables
+    private static final int CONTEXT_VAR = 1;
+    private static final int BUFFER_VAR = 2;
+    private static final int LENGTH_VAR = 3;
+    private static final int START_VAR = 4;
+    private static final int SNAPSHOT_VAR = 5;
+    private static final int INDEX_VAR = 6;
+    private static final int CHAR_VAR = 7;
+    private static final int END_VAR = 8;
+    private static final int CYCLES_VAR = 9;
+    private static final int SUBCONTEXT_VAR = 10;
+    private static final int BEFORE_VAR = 11;
+
+    private final GrammarCompiler compiler;
+    private final Matcher matcher;
+    private final CodeBlock block = CodeBlock.newCodeBlock();
+
+    RuleMethodGenerator(final GrammarCompiler compiler, final Matcher matcher)
+    {
+        this.compiler = compiler;
+        this.matcher = matcher;
+    }
+
+    CodeBlock generate()
+    {
+        block.aload(CONTEXT_VAR)
+            .invokeinterface(CONTEXT, "getInputBuffer", sig(InputBuffer.class))
+            .dup()
+            .astore(BUFFER_VAR)
+            .invokeinterface(BUFFER, "length", sig(int.class))
+            .istore(LENGTH_VAR)
+            .aload(CONTEXT_VAR)
+            .invokeinterface(CONTEXT, "getCurrentIndex", sig(int.class))
+            .istore(START_VAR);
+
+        final Class<?> type = matcher.getClass();
+
+        if (type == SequenceMatcher.class)
+            generateSequence();
+        else if (type == FirstOfMatcher.class)
+            generateFirstOf();
+        else if (type == OptionalMatcher.class)
+            generateOptional();
+        else if (type == TestMatcher.class || type == TestNotMatcher.class)
+            generateTest(type == TestMatcher.class);
+        else
+            generateRepeat((RepeatMatcher) matcher);
+
+        return block;
+    }
+
+    /**
+     * Tell whether a compiled matcher needs a context of its own
+     *
+     * <p>This is the case of predicates, since actions check whether they run
+     * in one; and of matchers having interpreted children, since these may
+     * observe the context of their parent.</p>
+     *
+     * @param matcher the matcher
+     * @return true if this is the case
+     */
+    static boolean needsOwnContext(final Matcher matcher)
+    {
+        if (matcher instanceof TestMatcher || matcher instanceof TestNotMatcher)
+            return true;
+
+        for (final Matcher child: matcher.getChildren())
+            if (GrammarCompiler.isInterpreted(
+                GrammarCompiler.unwrapProxies(child)))
+                return true;
+
+        return false;
+    }
+
+    private void generateSequence()
+    {
+        final List<Matcher> children = children();
+        final boolean neutral = StackNeutrality.allNeutral(children);
+        final LabelNode failure = new LabelNode();
+        final int size = children.size();
+
+        if (!neutral)
+            block.aload(CONTEXT_VAR)
+                .invokeinterface(CONTEXT, "getValueStack",
+                    sig(ValueStack.class))
+                .invokeinterface(STACK, "takeSnapshot", sig(Object.class))
+                .astore(SNAPSHOT_VAR);
+
+        for (int i = 0; i < size; i++)
+            generateChild(children.get(i), i + 1 < size
+                && GrammarCompiler.isInterpreted(children.get(i + 1)),
+                failure);
+
+        block.iconst_1().ireturn().label(failure);
+
+        if (!neutral)
+            block.aload(CONTEXT_VAR)
+                .invokeinterface(CONTEXT, "getValueStack",
+                    sig(ValueStack.class))
+                .aload(SNAPSHOT_VAR)
+                .invokeinterface(STACK, "restoreSnapshot",
+                    sig(void.class, Object.class));
+
+        block.iconst_0().ireturn();
+    }
+
+    private void generateFirstOf()
+    {
+        LabelNode next;
+
+        for (final Matcher child: children()) {
+            next = new LabelNode();
+            generateChild(child, false, next);
+            block.iconst_1().ireturn().label(next);
+            resetIndex(START_VAR);
+        }
+
+        block.iconst_0().ireturn();
+    }
+
+    private void generateOptional()
+    {
+        final LabelNode failure = new LabelNode();
+
+        generateChild(children().get(0), false, failure);
+        block.iconst_1().ireturn().label(failure);
+        resetIndex(START_VAR);
+        block.iconst_1().ireturn();
+    }
+
+    /*
+     * Predicates never move the current index, and always restore the value
+     * stack (but only on success for test(), and on failure for testNot()).
+     */
+    private void generateTest(final boolean test)
+    {
+        final LabelNode failure = new LabelNode();
+        final boolean neutral = StackNeutrality.allNeutral(children());
+
+        if (!neutral)
+            block.aload(CONTEXT_VAR)
+                .invokeinterface(CONTEXT, "getValueStack",
+                    sig(ValueStack.class))
+                .invokeinterface(STACK, "takeSnapshot", sig(Object.class))
+                .astore(SNAPSHOT_VAR);
+
+        generateChild(children().get(0), false, failure);
+
+        if (!test)
+            block.iconst_0().ireturn().label(failure);
+
+        resetIndex(START_VAR);
+
+        if (!neutral)
+            block.aload(CONTEXT_VAR)
+                .invokeinterface(CONTEXT, "getValueStack",
+                    sig(ValueStack.class))
+                .aload(SNAPSHOT_VAR)
+                .invokeinterface(STACK, "restoreSnapshot",
+                    sig(void.class, Object.class));
+
+        block.iconst_1().ireturn();
+
+        if (test)
+            block.label(failure).iconst_0().ireturn();
+    }
+
+    private void generateRepeat(final RepeatMatcher repeat)
+    {
+        final int minCycles = repeat.getMinCycles();
+        final int maxCycles = repeat.getMaxCycles();
+        final LabelNode loop = new LabelNode();
+        final LabelNode failure = new LabelNode();
+        final LabelNode done = new LabelNode();
+        final LabelNode advanced = new LabelNode();
+        final LabelNode notEnough = new LabelNode();
+
+        block.iconst_0().istore(CYCLES_VAR)
+            .iload(START_VAR).istore(BEFORE_VAR)
+            .label(loop);
+
+        if (maxCycles != RepeatMatchers.UNBOUNDED)
+            block.iload(CYCLES_VAR).ldc(maxCycles).if_icmpge(done);
+
+        generateChild(children().get(0), false, failure);
+
+        block.aload(CONTEXT_VAR)
+            .invokeinterface(CONTEXT, "getCurrentIndex", sig(int.class))
+            .dup()
+            .istore(INDEX_VAR)
+            .iload(BEFORE_VAR)
+            .if_icmpne(advanced)
+            .newobj(p(GrappaException.class))
+            .dup()
+            .ldc(EMPTY_REPEAT)
+            .invokespecial(p(GrappaException.class), "<init>",
+                sig(void.class, String.class))
+            .athrow()
+            .label(advanced)
+            .iload(INDEX_VAR).istore(BEFORE_VAR)
+            .iinc(CYCLES_VAR, 1)
+            .go_to(loop)
+            .label(failure);
+
+        resetIndex(BEFORE_VAR);
+
+        block.label(done)
+            .iload(CYCLES_VAR).ldc(minCycles).if_icmplt(notEnough)
+            .iconst_1().ireturn()
+            .label(notEnough)
+            .iconst_0().ireturn();
+    }
+
+    /*
+     * On success, the current index of the context is at the end of the match
+     * of the child; on failure, control goes to the given label.
+     */
+    private void generateChild(final Matcher child,
+        final boolean followedByInterpreted, final LabelNode failure)
+    {
+        if (GrammarCompiler.isCompiled(child)) {
+            if (followedByInterpreted || needsOwnContext(child))
+                generateSubContextCall(child, failure);
+            else
+                block.aload(0)
+                    .aload(CONTEXT_VAR)
+                    .invokespecial(compiler.getClassName(),
+                        compiler.methodName(child), MATCH_DESC)
+                    .ifeq(failure);
+            return;
+        }
+
+        if (followedByInterpreted || GrammarCompiler.isInterpreted(child)) {
+            generateInterpreted(child, failure);
+            return;
+        }
+
+        if (GrammarCompiler.isInlined(child)) {
+            generateInlined(child, failure);
+            return;
+        }
+
+        loadConstant(child, Matcher.class)
+            .aload(CONTEXT_VAR)
+            .invokeinterface(MATCHER, "match", MATCH_DESC)
+            .ifeq(failure);
+    }
+
+    private void generateSubContextCall(final Matcher child,
+        final LabelNode failure)
+    {
+        loadConstant(child, Matcher.class)
+            .aload(CONTEXT_VAR)
+            .invokeinterface(MATCHER, "getSubContext",
+                sig(MatcherContext.class, MatcherContext.class))
+            .astore(SUBCONTEXT_VAR)
+            .aload(0)
+            .aload(SUBCONTEXT_VAR)
+            .invokespecial(compiler.getClassName(), compiler.methodName(child),
+                MATCH_DESC)
+            .ifeq(failure)
+            .aload(CONTEXT_VAR)
+            .aload(SUBCONTEXT_VAR)
+            .invokeinterface(CONTEXT, "getCurrentIndex", sig(int.class))
+            .invokeinterface(CONTEXT, "setCurrentIndex",
+                sig(void.class, int.class));
+    }
+
+    private void generateInterpreted(final Matcher child,
+        final LabelNode failure)
+    {
+        loadConstant(child, Matcher.class)
+            .aload(CONTEXT_VAR)
+            .invokeinterface(MATCHER, "getSubContext",
+                sig(MatcherContext.class, MatcherContext.class))
+            .invokeinterface(CONTEXT, "runMatcher", sig(boolean.class))
+            .ifeq(failure);
+    }
+
+    private void generateInlined(final Matcher child, final LabelNode failure)
+    {
+        final Class<?> type = child.getClass();
+
+        if (type == EmptyMatcher.class)
+            return;
+
+        if (type == NothingMatcher.class) {
+            block.go_to(failure);
+            return;
+        }
+
+        loadIndex();
+
+        if (type == EndOfInputMatcher.class) {
+            block.iload(INDEX_VAR).iload(LENGTH_VAR).if_icmpne(failure);
+            return;
+        }
+
+        if (type == StringMatcher.class) {
+            final String string = ((StringMatcher) child).getString();
+            block.aload(BUFFER_VAR)
+                .iload(INDEX_VAR)
+                .ldc(string)
+                .invokeinterface(BUFFER, "regionMatches",
+                    sig(boolean.class, int.class, String.class))
+                .ifeq(failure);
+            advanceIndex(string.length());
+            return;
+        }
+
+        if (type == CharSpanMatcher.class) {
+            generateSpan((CharSpanMatcher) child, failure);
+            return;
+        }
+
+        // all other inlined matchers match a single character
+        block.iload(INDEX_VAR).iload(LENGTH_VAR).if_icmpge(failure);
+
+        if (type == CharMatcher.class) {
+            loadCurrentChar()
+                .ldc((int) ((CharMatcher) child).getCharacter())
+                .if_icmpne(failure);
+        } else if (type == CharRangeMatcher.class) {
+            final CharRangeMatcher range = (CharRangeMatcher) child;
+            loadCurrentChar()
+                .dup()
+                .istore(CHAR_VAR)
+                .ldc((int) range.getLowerBound())
+                .if_icmplt(failure)
+                .iload(CHAR_VAR)
+                .ldc((int) range.getUpperBound())
+                .if_icmpgt(failure);
+        } else if (type == AnyOfMatcher.class) {
+            loadConstant(((AnyOfMatcher) child).getCharacters(),
+                Characters.class);
+            loadCurrentChar()
+                .invokevirtual(CHARACTERS, "contains",
+                    sig(boolean.class, char.class))
+                .ifeq(failure);
+        }
+
+        advanceIndex(1);
+    }
+
+    private void generateSpan(final CharSpanMatcher span,
+        final LabelNode failure)
+    {
+        final int maxCycles = span.getMaxCycles();
+        final LabelNode loop = new LabelNode();
+        final LabelNode done = new LabelNode();
+
+        if (maxCycles == RepeatMatchers.UNBOUNDED) {
+            block.iload(LENGTH_VAR).istore(END_VAR);
+        } else {
+            block.iload(INDEX_VAR).i2l().ldc((long) maxCycles).ladd()
+                .iload(LENGTH_VAR).i2l()
+                .invokestatic(p(Math.class), "min",
+                    sig(long.class, long.class, long.class))
+                .l2i()
+                .istore(END_VAR);
+        }
+
+        block.iload(INDEX_VAR).istore(CHAR_VAR)
+            .label(loop)
+            .iload(CHAR_VAR).iload(END_VAR).if_icmpge(done);
+        loadConstant(span.getCharacters(), Characters.class)
+            .aload(BUFFER_VAR)
+            .iload(CHAR_VAR)
+            .invokeinterface(BUFFER, "charAt", sig(char.class, int.class))
+            .invokevirtual(CHARACTERS, "contains",
+                sig(boolean.class, char.class))
+            .ifeq(done)
+            .iinc(CHAR_VAR, 1)
+            .go_to(loop)
+            .label(done)
+            .aload(CONTEXT_VAR)
+            .iload(CHAR_VAR)
+            .invokeinterface(CONTEXT, "setCurrentIndex",
+                sig(void.class, int.class))
+            .iload(CHAR_VAR)
+            .iload(INDEX_VAR)
+            .isub()
+            .ldc(span.getMinCycles())
+            .if_icmplt(failure);
+    }
+
+    private List<Matcher> children()
+    {
+        final List<Matcher> children = matcher.getChildren();
+        final List<Matcher> ret = new ArrayList<>(children.size());
+
+        for (final Matcher child: children)
+            ret.add(GrammarCompiler.unwrapProxies(child));
+
+        return ret;
+    }
+
+    private CodeBlock loadConstant(final Object constant, final Class<?> type)
+    {
+        return block.aload(0)
+            .getfield(compiler.getClassName(), compiler.fieldName(constant),
+                ci(type));
+    }
+
+    private void loadIndex()
+    {
+        block.aload(CONTEXT_VAR)
+            .invokeinterface(CONTEXT, "getCurrentIndex", sig(int.class))
+            .istore(INDEX_VAR);
+    }
+
+    private CodeBlock loadCurrentChar()
+    {
+        return block.aload(BUFFER_VAR)
+            .iload(INDEX_VAR)
+            .invokeinterface(BUFFER, "charAt", sig(char.class, int.class));
+    }
+
+    private void advanceIndex(final int delta)
+    {
+        block.aload(CONTEXT_VAR)
+            .ldc(delta)
+            .invokeinterface(CONTEXT, "advanceIndex",
+                sig(void.class, int.class));
+    }
+
+    private void resetIndex(final int var)
+    {
+        block.aload(CONTEXT_VAR)
+            .iload(var)
+            .invokeinterface(CONTEXT, "setCurrentIndex",
+                sig(void.class, int.class));
+    }
+}
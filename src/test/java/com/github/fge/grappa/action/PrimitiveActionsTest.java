@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.action;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.stack.IntValueStack;
+import com.github.fge.grappa.stack.ValueStack;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class PrimitiveActionsTest
+{
+    static class SumParser
+        extends BaseParser<Integer>
+    {
+        Rule sum()
+        {
+            return sequence(number(),
+                zeroOrMore('+', number(), pushInt(popInt() + popInt())),
+                EOI);
+        }
+
+        Rule number()
+        {
+            return sequence(oneOrMore(digit()),
+                pushInt(Integer.parseInt(match())));
+        }
+    }
+
+    private SumParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(SumParser.class);
+    }
+
+    @Test
+    public void primitiveActionsWorkWithPrimitiveStack()
+    {
+        final ParseRunner<Integer> runner = new ParseRunner<Integer>(
+            parser.sum())
+        {
+            @Override
+            protected ValueStack<Integer> createValueStack()
+            {
+                return new IntValueStack();
+            }
+        };
+
+        final ParsingResult<Integer> result = runner.run("1+22+333");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).isInstanceOf(IntValueStack.class)
+            .containsExactly(356);
+    }
+
+    @Test
+    public void primitiveActionsWorkWithDefaultStack()
+    {
+        final ParseRunner<Integer> runner = new ParseRunner<>(parser.sum());
+
+        final ParsingResult<Integer> result = runner.run("1+22+333");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly(356);
+    }
+}
@@ -24,6 +24,8 @@ import org.assertj.core.api.SoftAssertions;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.util.Iterator;
 import java.util.List;
 
@@ -101,4 +103,56 @@ public final class RegexMatcherTest
 
         soft.assertAll();
     }
+
+    @Test
+    public void anchorsMatchAtCurrentIndexAndEndOfInput()
+    {
+        final Matcher anchored = new RegexMatcher("^[a-z]+$");
+        final MatcherContext<Object> context = new MatcherContextBuilder()
+            .withMatcher(anchored).withInput("  hello").withIndex(2).build();
+
+        assertThat(anchored.match(context)).isTrue();
+        assertThat(context.getCurrentIndex()).isEqualTo(7);
+    }
+
+    @Test
+    public void regexOnlySeesLookaheadWindow()
+    {
+        final Matcher bounded = new RegexMatcher("[a-z]+", 3);
+        final Matcher anchored = new RegexMatcher("[a-z]+$", 3);
+        final MatcherContextBuilder builder = new MatcherContextBuilder()
+            .withInput(" abcdef").withIndex(1);
+
+        MatcherContext<Object> context;
+
+        context = builder.withMatcher(bounded).build();
+        assertThat(bounded.match(context)).isTrue();
+        assertThat(context.getCurrentIndex()).isEqualTo(4);
+
+        context = builder.withMatcher(anchored).build();
+        assertThat(anchored.match(context)).isTrue();
+        assertThat(context.getCurrentIndex()).isEqualTo(4);
+
+        context = builder.withMatcher(bounded).withIndex(5).build();
+        assertThat(bounded.match(context)).isTrue();
+        assertThat(context.getCurrentIndex()).isEqualTo(7);
+    }
+
+    @Test
+    public void regexMatcherIsReusedWithinRun()
+    {
+        final MatcherContext<Object> context = new MatcherContextBuilder()
+            .withMatcher(matcher).withInput("ab cd").build();
+
+        assertThat(matcher.match(context)).isTrue();
+        final java.util.regex.Matcher first
+            = context.getRunState(matcher, input -> null);
+
+        context.setCurrentIndex(3);
+        assertThat(matcher.match(context)).isTrue();
+        assertThat(context.getCurrentIndex()).isEqualTo(5);
+        final java.util.regex.Matcher second
+            = context.getRunState(matcher, input -> null);
+        assertThat(second).isSameAs(first);
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.util.MatcherContextBuilder;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class StringMatchersTest
+{
+    @DataProvider
+    public Iterator<Object[]> stringData()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { "while", "while(", 0, true });
+        list.add(new Object[] { "while", "a while", 2, true });
+        list.add(new Object[] { "while", "whale", 0, false });
+        list.add(new Object[] { "while", "whil", 0, false });
+        list.add(new Object[] { "while", "a whil", 2, false });
+        list.add(new Object[] { "while", "WHILE", 0, false });
+        list.add(new Object[] { "", "foo", 3, true });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "stringData")
+    public void stringMatcherWorksCorrectly(final String string,
+        final String input, final int index, final boolean expected)
+    {
+        checkMatch(new StringMatcher(string), input, index, expected,
+            string.length());
+    }
+
+    @DataProvider
+    public Iterator<Object[]> ignoreCaseData()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { "while", "WhIlE(", 0 });
+        list.add(new Object[] { "while", "a WHILE", 2 });
+        list.add(new Object[] { "while", "whale", 0 });
+        list.add(new Object[] { "while", "WHIL", 0 });
+        list.add(new Object[] { "Stra\u00dfe", "STRA\u00dfE", 0 });
+        // dotless i and Kelvin sign are equal to i and k ignoring case
+        list.add(new Object[] { "kilo", "\u212a\u0131lo", 0 });
+        list.add(new Object[] { "\u212a\u0131lo", "KILO", 0 });
+        list.add(new Object[] { "[@`{", "[@`{", 0 });
+        list.add(new Object[] { "[@`{", "{`@[", 0 });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "ignoreCaseData")
+    public void stringIgnoreCaseMatcherBehavesLikeEqualsIgnoreCase(
+        final String string, final String input, final int index)
+    {
+        final int end = Math.min(index + string.length(), input.length());
+        final boolean expected
+            = input.substring(index, end).equalsIgnoreCase(string);
+
+        checkMatch(new StringIgnoreCaseMatcher(string), input, index,
+            expected, string.length());
+    }
+
+    private static void checkMatch(final Matcher matcher, final String input,
+        final int index, final boolean expected, final int length)
+    {
+        final MatcherContext<Object> context = new MatcherContextBuilder()
+            .withInput(input).withIndex(index).withMatcher(matcher).build();
+
+        assertThat(matcher.match(context)).isEqualTo(expected);
+        assertThat(context.getCurrentIndex())
+            .isEqualTo(expected ? index + length : index);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.analysis;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.MemoizingMatcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class DirectTerminalsTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        Rule terminal()
+        {
+            return ch('a');
+        }
+
+        Rule any()
+        {
+            return ANY;
+        }
+
+        Rule recursive()
+        {
+            return firstOf(sequence('(', recursive(), ')'), 'a');
+        }
+
+        Rule withAction()
+        {
+            return sequence('a', oneOrMore(digit()), 'b', push(match()), 'c');
+        }
+    }
+
+    private TestParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(TestParser.class);
+    }
+
+    @Test
+    public void terminalsAreDirect()
+    {
+        assertThat(DirectTerminals.isDirect((Matcher) parser.terminal()))
+            .isTrue();
+        assertThat(DirectTerminals.isDirect((Matcher) parser.any())).isTrue();
+    }
+
+    @Test
+    public void compositesAreNotDirect()
+    {
+        assertThat(DirectTerminals.isDirect((Matcher) parser.recursive()))
+            .isFalse();
+    }
+
+    @Test
+    public void wrappedTerminalsAreNotDirect()
+    {
+        final Matcher memoized = new MemoizingMatcher(parser.terminal(), 1);
+
+        assertThat(DirectTerminals.isDirect(memoized)).isFalse();
+    }
+
+    @Test
+    public void terminalsFollowedByActionsAreNotDirect()
+    {
+        final Matcher matcher = (Matcher) parser.withAction();
+
+        assertThat(DirectTerminals.ofChildren(matcher.getChildren()))
+            .containsExactly(true, true, false, false, true);
+    }
+}
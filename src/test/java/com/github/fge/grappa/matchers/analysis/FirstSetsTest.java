@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.analysis;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.MatchHandler;
+import com.github.fge.grappa.run.ParseEventListener;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.context.DefaultMatcherContext;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ArrayValueStack;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class FirstSetsTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        int actions = 0;
+
+        boolean countAction()
+        {
+            actions++;
+            return true;
+        }
+
+        Rule keyword()
+        {
+            return firstOf("if", "else", ignoreCase("while"), "for");
+        }
+
+        Rule number()
+        {
+            return sequence(optional('-'), oneOrMore(charRange('0', '9')));
+        }
+
+        Rule parens()
+        {
+            return firstOf(sequence('(', parens(), ')'), 'x');
+        }
+
+        Rule nullable()
+        {
+            return sequence(zeroOrMore('a'), optional('b'));
+        }
+
+        Rule withPredicate()
+        {
+            return sequence(testNot('a'), 'b');
+        }
+
+        Rule withAction()
+        {
+            return sequence(countAction(), 'a');
+        }
+
+        Rule keywordSequences()
+        {
+            return firstOf(sequence('i', 'f'), sequence("el", "se"),
+                sequence('f', "or"));
+        }
+
+        Rule skippable()
+        {
+            return sequence(optional('-'), testNot('+'),
+                firstOf("if", "else", digit()));
+        }
+
+        Rule statement()
+        {
+            return firstOf(withAction(), keyword(), number());
+        }
+    }
+
+    private TestParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(TestParser.class);
+    }
+
+    @Test
+    public void terminalsAndCompositesHaveExpectedFirstSets()
+    {
+        final FirstSet keyword = firstSet(parser.keyword());
+
+        assertThat(keyword.isNullable()).isFalse();
+        assertThat(keyword.mayStartWith('i')).isTrue();
+        assertThat(keyword.mayStartWith('W')).isTrue();
+        assertThat(keyword.mayStartWith('x')).isFalse();
+        // non ASCII characters are never excluded
+        assertThat(keyword.mayStartWith('é')).isTrue();
+
+        final FirstSet number = firstSet(parser.number());
+
+        assertThat(number.isNullable()).isFalse();
+        assertThat(number.mayStartWith('-')).isTrue();
+        assertThat(number.mayStartWith('7')).isTrue();
+        assertThat(number.mayStartWith('+')).isFalse();
+
+        final FirstSet withPredicate = firstSet(parser.withPredicate());
+
+        assertThat(withPredicate.isNullable()).isFalse();
+        assertThat(withPredicate.mayStartWith('a')).isTrue();
+        assertThat(withPredicate.mayStartWith('b')).isTrue();
+        assertThat(withPredicate.mayStartWith('c')).isFalse();
+    }
+
+    @Test
+    public void recursiveRulesHaveFirstSets()
+    {
+        final FirstSet parens = firstSet(parser.parens());
+
+        assertThat(parens.isNullable()).isFalse();
+        assertThat(parens.mayStartWith('(')).isTrue();
+        assertThat(parens.mayStartWith('x')).isTrue();
+        assertThat(parens.mayStartWith(')')).isFalse();
+    }
+
+    @Test
+    public void nullableRulesMayStartWithAnything()
+    {
+        final FirstSet nullable = firstSet(parser.nullable());
+
+        assertThat(nullable.isNullable()).isTrue();
+        assertThat(nullable.mayStartWith('z')).isTrue();
+    }
+
+    @Test
+    public void actionsMayRunAtAnyCharacter()
+    {
+        final FirstSet withAction = firstSet(parser.withAction());
+
+        for (char c = 0; c < 128; c++)
+            assertThat(withAction.mayStartWith(c)).isTrue();
+    }
+
+    @Test
+    public void firstOfOnlyTriesViableAlternatives()
+    {
+        final MatchCounter counter = new MatchCounter();
+
+        assertThat(run(parser.keywordSequences(), "for", counter)).isTrue();
+        // the firstOf itself and its last alternative
+        assertThat(counter.count).isEqualTo(2);
+
+        counter.count = 0;
+        assertThat(run(parser.keywordSequences(), "foo", counter)).isFalse();
+        assertThat(counter.count).isEqualTo(2);
+    }
+
+    @Test
+    public void listenersSeeAllMatchAttempts()
+    {
+        final ParseRunner<Object> runner
+            = new ParseRunner<>(parser.skippable());
+        final List<String> events = new ArrayList<>();
+
+        runner.registerListener(new ParseEventListener<Object>()
+        {
+            @Override
+            public void beforeMatch(final Matcher matcher, final int level,
+                final int startIndex)
+            {
+                events.add(matcher.getLabel() + '@' + startIndex);
+            }
+
+            @Override
+            public void matchFailure(final Matcher matcher, final int level,
+                final int startIndex, final int endIndex)
+            {
+                events.add("failure");
+            }
+        });
+
+        assertThat(runner.run("7").isSuccess()).isTrue();
+        assertThat(events).containsExactly("skippable@0",
+            "optional@0", "'-'@0", "failure",
+            "testNot@0", "'+'@0", "failure",
+            "firstOf@0", "string(if)@0", "failure", "string(else)@0", "failure",
+            "digit@0");
+    }
+
+    @Test
+    public void alternativesWithActionsAreAlwaysTried()
+    {
+        final ParseRunner<Object> runner
+            = new ParseRunner<>(parser.statement());
+
+        assertThat(runner.run("42").isSuccess()).isTrue();
+        assertThat(parser.actions).isEqualTo(1);
+    }
+
+    private static FirstSet firstSet(final Rule rule)
+    {
+        return FirstSets.of((Matcher) rule);
+    }
+
+    private static boolean run(final Rule rule, final String input,
+        final MatchHandler handler)
+    {
+        return new DefaultMatcherContext<>(new CharSequenceInputBuffer(input),
+            new ArrayValueStack<>(), handler, (Matcher) rule).runMatcher();
+    }
+
+    /*
+     * Counts the matchers run in a context of their own; terminals are run
+     * directly against the context of their parent
+     */
+    private static final class MatchCounter
+        implements MatchHandler
+    {
+        private int count = 0;
+
+        @Override
+        public <V> boolean match(final MatcherContext<V> context)
+        {
+            count++;
+            //noinspection ConstantConditions
+            return context.getMatcher().match(context);
+        }
+
+        @Override
+        public boolean handlesTerminals()
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.analysis;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.DefaultMatcherContext;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ArrayValueStack;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.Var;
+import com.github.fge.grappa.util.SimpleMatchHandler;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public final class StackNeutralityTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        private static final Map<String, Integer> NUMBERS
+            = ImmutableMap.of("one", 1, "two", 2);
+
+        Rule terminals()
+        {
+            return sequence(oneOrMore(digit()), optional('.', digit()),
+                testNot('x'), join(alpha()).using(',').min(1));
+        }
+
+        Rule recursive()
+        {
+            return firstOf(sequence('(', recursive(), ')'), 'a');
+        }
+
+        Rule withAction()
+        {
+            return sequence(oneOrMore(digit()), push(match()));
+        }
+
+        Rule withNestedAction()
+        {
+            return sequence('a', firstOf('b', test(withAction())));
+        }
+
+        Rule mappedTrie()
+        {
+            return sequence(trie(NUMBERS), '.');
+        }
+
+        Rule mappedTrieWithVar()
+        {
+            return sequence(trie(NUMBERS, new Var<>()), '.');
+        }
+
+        Rule recursiveWithAction()
+        {
+            return firstOf(sequence('(', recursiveWithAction(), ')'),
+                withAction());
+        }
+    }
+
+    private TestParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(TestParser.class);
+    }
+
+    @Test
+    public void rulesWithoutActionsAreNeutral()
+    {
+        assertThat(StackNeutrality.isNeutral((Matcher) parser.terminals()))
+            .isTrue();
+        assertThat(StackNeutrality.isNeutral((Matcher) parser.recursive()))
+            .isTrue();
+    }
+
+    @Test
+    public void rulesWithActionsAreNotNeutral()
+    {
+        assertThat(StackNeutrality.isNeutral((Matcher) parser.withAction()))
+            .isFalse();
+        assertThat(StackNeutrality.isNeutral(
+            (Matcher) parser.withNestedAction())).isFalse();
+        assertThat(StackNeutrality.isNeutral(
+            (Matcher) parser.recursiveWithAction())).isFalse();
+    }
+
+    @Test
+    public void triesPushingValuesAreNotNeutral()
+    {
+        assertThat(StackNeutrality.isNeutral((Matcher) parser.mappedTrie()))
+            .isFalse();
+        assertThat(StackNeutrality.isNeutral(
+            (Matcher) parser.mappedTrieWithVar())).isTrue();
+    }
+
+    @Test
+    public void neutralSequenceDoesNotSnapshotTheStack()
+    {
+        final ValueStack<Object> stack = spy(new ArrayValueStack<>());
+
+        assertThat(run(parser.terminals(), "12.3a,b", stack)).isTrue();
+        assertThat(run(parser.terminals(), "12x", stack)).isFalse();
+
+        verify(stack, never()).takeSnapshot();
+        verify(stack, never()).restoreSnapshot(any());
+    }
+
+    @Test
+    public void sequenceWithActionsRestoresTheStackOnFailure()
+    {
+        final ValueStack<Object> stack = spy(new ArrayValueStack<>());
+        final Rule rule = parser.sequence(parser.withAction(), 'x');
+
+        assertThat(run(rule, "12y", stack)).isFalse();
+
+        verify(stack, atLeastOnce()).restoreSnapshot(any());
+        assertThat(stack).isEmpty();
+    }
+
+    private static boolean run(final Rule rule, final String input,
+        final ValueStack<Object> stack)
+    {
+        final MatcherContext<Object> context = new DefaultMatcherContext<>(
+            new CharSequenceInputBuffer(input), stack,
+            SimpleMatchHandler.INSTANCE, (Matcher) rule);
+
+        return context.runMatcher();
+    }
+}
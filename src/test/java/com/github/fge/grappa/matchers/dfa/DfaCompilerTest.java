@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.dfa;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.OptimizingParseRunner;
+import com.github.fge.grappa.run.ParseEventListener;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class DfaCompilerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        Rule choice()
+        {
+            return sequence(firstOf('a', "ab"), 'c');
+        }
+
+        Rule greedy()
+        {
+            return sequence(zeroOrMore(firstOf('a', 'b')), 'b');
+        }
+
+        Rule pairs()
+        {
+            return sequence(zeroOrMore("ab"), "ac");
+        }
+
+        Rule keywordOrWord()
+        {
+            return firstOf(sequence("if", '('), oneOrMore(charRange('a', 'z')));
+        }
+
+        Rule nested()
+        {
+            return zeroOrMore(sequence(oneOrMore('a'), 'b'));
+        }
+
+        Rule bounded()
+        {
+            return sequence(repeat(sequence('x', optional('y'))).times(1, 3),
+                'z');
+        }
+
+        Rule number()
+        {
+            return sequence(optional('-'), oneOrMore(digit()),
+                optional(sequence('.', oneOrMore(digit()))));
+        }
+
+        Rule accented()
+        {
+            return oneOrMore(firstOf(charRange('\u00e0', '\u00ff'), ANY));
+        }
+
+        Rule nullableBody()
+        {
+            return zeroOrMore(optional('a'));
+        }
+
+        Rule withAction()
+        {
+            return sequence('a', push(match()));
+        }
+
+        Rule parens()
+        {
+            return firstOf(sequence('(', parens(), ')'), 'x');
+        }
+
+        Rule preempted()
+        {
+            return firstOf(sequence(firstOf("xyy", 'x'), 'y'), "xyyq");
+        }
+
+        Rule matched(final Rule rule)
+        {
+            return sequence(rule, push(match()));
+        }
+    }
+
+    private TestParser parser;
+    private DfaCompiler compiler;
+
+    @BeforeMethod
+    public void init()
+    {
+        parser = Grappa.createParser(TestParser.class);
+        compiler = new DfaCompiler();
+    }
+
+    @DataProvider
+    public Iterator<Object[]> inputs()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { parser.choice(), "abc" });
+        list.add(new Object[] { parser.choice(), "ac" });
+        list.add(new Object[] { parser.greedy(), "aab" });
+        list.add(new Object[] { parser.pairs(), "ababac" });
+        list.add(new Object[] { parser.pairs(), "abab" });
+        list.add(new Object[] { parser.keywordOrWord(), "if(" });
+        list.add(new Object[] { parser.keywordOrWord(), "ifa(" });
+        list.add(new Object[] { parser.keywordOrWord(), "(" });
+        list.add(new Object[] { parser.nested(), "aababaa" });
+        list.add(new Object[] { parser.nested(), "" });
+        list.add(new Object[] { parser.bounded(), "xyxxz" });
+        list.add(new Object[] { parser.bounded(), "xyxxxz" });
+        list.add(new Object[] { parser.bounded(), "z" });
+        list.add(new Object[] { parser.number(), "-12.5x" });
+        list.add(new Object[] { parser.number(), "12." });
+        list.add(new Object[] { parser.number(), "-" });
+        list.add(new Object[] { parser.accented(), "\u00e9t\u00e9\u0100" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "inputs")
+    public void compiledRulesHaveTheSameOutcome(final Rule rule,
+        final String input)
+    {
+        final Matcher compiled = compiler.compile((Matcher) rule);
+
+        assertThat(compiled).isInstanceOf(DfaMatcher.class);
+
+        final ParseRunner<Object> original
+            = new ParseRunner<>(parser.matched(rule));
+
+        // the original rule graph is used when listeners are registered
+        original.registerListener(new ParseEventListener<>());
+
+        final ParsingResult<Object> expected = original.run(input);
+        final ParsingResult<Object> actual
+            = new ParseRunner<>(parser.matched(compiled)).run(input);
+
+        assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @Test
+    public void compiledMatcherKeepsTheLabel()
+    {
+        final Matcher matcher = (Matcher) parser.number();
+
+        assertThat(compiler.compile(matcher).getLabel())
+            .isEqualTo(matcher.getLabel());
+    }
+
+    /*
+     * After "xy", the second choice of the inner rule reaches the outer cut,
+     * but the first one may still discard it, and then fail on "q"
+     */
+    @Test
+    public void tentativelySuccessfulPathsAreNotCompiled()
+    {
+        final Rule rule = parser.preempted();
+
+        assertThat(compiler.compile((Matcher) rule)).isNull();
+
+        final ParseRunner<Object> original
+            = new ParseRunner<>(parser.matched(rule));
+
+        original.registerListener(new ParseEventListener<>());
+
+        final ParsingResult<Object> expected = original.run("xyyq");
+        final ParsingResult<Object> actual
+            = new OptimizingParseRunner<>(parser.matched(rule)).run("xyyq");
+
+        assertThat(expected.isSuccess()).isTrue();
+        assertThat(actual.isSuccess()).isTrue();
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @DataProvider
+    public Iterator<Object[]> nonRegularRules()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { parser.nullableBody() });
+        list.add(new Object[] { parser.withAction() });
+        list.add(new Object[] { parser.parens() });
+        list.add(new Object[] { parser.matched(parser.number()) });
+        list.add(new Object[] { parser.regex("[a-z]+") });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "nonRegularRules")
+    public void nonRegularRulesAreNotCompiled(final Rule rule)
+    {
+        assertThat(compiler.isRegular((Matcher) rule)).isFalse();
+        assertThat(compiler.compile((Matcher) rule)).isNull();
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.optimize;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.dfa.DfaMatcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.trie.TrieMatcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.OptimizingParseRunner;
+import com.github.fge.grappa.run.ParseEventListener;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.support.Characters;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class RuleOptimizerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        Rule literal()
+        {
+            return sequence('a', sequence('b', "cd"), EMPTY, 'e');
+        }
+
+        Rule keyword()
+        {
+            return firstOf("if", firstOf("else", 'x'), "for", 'y');
+        }
+
+        Rule prefixes()
+        {
+            return firstOf("i", 'x', "if");
+        }
+
+        Rule charClass()
+        {
+            return firstOf('a', charRange('0', '9'), firstOf(anyOf("xyz"),
+                noneOf("abc")));
+        }
+
+        Rule withAction()
+        {
+            return sequence('a', 'b', push(match()), 'c', 'd');
+        }
+
+        Rule numbers()
+        {
+            return zeroOrMore(sequence(optional('-'), oneOrMore(digit()), ' '));
+        }
+
+        Rule wrappedRepeat()
+        {
+            return firstOf(sequence(EMPTY, repeat(sequence("ab",
+                push(match()))).min(2)), "ab");
+        }
+
+        Rule parens()
+        {
+            return firstOf(sequence('(', parens(), ')'), 'x');
+        }
+
+        Rule matched(final Rule rule)
+        {
+            return sequence(rule, push(match()));
+        }
+    }
+
+    private TestParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(TestParser.class);
+    }
+
+    @Test
+    public void sequencesAreFlattenedAndLiteralsMerged()
+    {
+        final Matcher matcher = optimize(parser.literal());
+
+        assertThat(matcher).isInstanceOf(StringMatcher.class);
+        assertThat(((StringMatcher) matcher).getString()).isEqualTo("abcde");
+    }
+
+    @Test
+    public void firstOfLiteralsIsMergedIntoTrie()
+    {
+        assertThat(optimize(parser.keyword())).isInstanceOf(TrieMatcher.class);
+    }
+
+    @Test
+    public void literalsPrefixingLaterLiteralsAreNotMerged()
+    {
+        final Matcher matcher = optimize(parser.prefixes());
+
+        assertThat(matcher).isInstanceOf(FirstOfMatcher.class);
+        assertThat(matcher.getChildren()).hasSize(2);
+    }
+
+    @Test
+    public void characterClassesAreMerged()
+    {
+        final Matcher matcher = optimize(parser.charClass());
+
+        assertThat(matcher).isInstanceOf(AnyOfMatcher.class);
+
+        final Characters characters = ((AnyOfMatcher) matcher).getCharacters();
+
+        assertThat(characters.contains('a')).isTrue();
+        assertThat(characters.contains('b')).isFalse();
+        assertThat(characters.contains('c')).isFalse();
+        assertThat(characters.contains('5')).isTrue();
+        assertThat(characters.contains('é')).isTrue();
+    }
+
+    @Test
+    public void matchersPrecedingActionsAreNotMerged()
+    {
+        final Matcher matcher = optimize(parser.withAction());
+
+        assertThat(matcher.getChildren()).hasSize(4);
+        assertThat(matcher.getChildren().get(3))
+            .isInstanceOf(StringMatcher.class);
+    }
+
+    @Test
+    public void sequencesAreNotReplacedWithChildrenNotRestoringTheStack()
+    {
+        final Matcher matcher = optimize(parser.wrappedRepeat());
+
+        assertThat(matcher.getChildren().get(0))
+            .isInstanceOf(SequenceMatcher.class);
+    }
+
+    @Test
+    public void regularSubgraphsAreCompiled()
+    {
+        assertThat(optimize(parser.numbers())).isInstanceOf(DfaMatcher.class);
+    }
+
+    @Test
+    public void recursiveRulesAreOptimized()
+    {
+        final Matcher matcher = optimize(parser.parens());
+
+        assertThat(new OptimizingParseRunner<>(parser.parens()).run("((x))")
+            .isSuccess()).isTrue();
+        assertThat(matcher).isNotSameAs(parser.parens());
+    }
+
+    @DataProvider
+    public Iterator<Object[]> inputs()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { parser.matched(parser.literal()), "abcde" });
+        list.add(new Object[] { parser.matched(parser.literal()), "abcd" });
+        list.add(new Object[] { parser.matched(parser.keyword()), "else" });
+        list.add(new Object[] { parser.matched(parser.keyword()), "fox" });
+        list.add(new Object[] { parser.matched(parser.prefixes()), "if" });
+        list.add(new Object[] { parser.matched(parser.charClass()), "b" });
+        list.add(new Object[] { parser.matched(parser.charClass()), "%" });
+        list.add(new Object[] { parser.matched(parser.withAction()), "abcd" });
+        list.add(new Object[] { parser.matched(parser.parens()), "((x)" });
+        list.add(new Object[] { parser.matched(parser.numbers()), "1 -23 4-" });
+        list.add(new Object[] { parser.matched(parser.wrappedRepeat()),
+            "ab" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "inputs")
+    public void optimizedRulesHaveTheSameOutcome(final Rule rule,
+        final String input)
+    {
+        final ParseRunner<Object> runner = new OptimizingParseRunner<>(rule);
+
+        final ParsingResult<Object> optimized = runner.run(input);
+
+        // the original rule graph is used when listeners are registered
+        runner.registerListener(new ParseEventListener<>());
+
+        final ParsingResult<Object> original = runner.run(input);
+
+        assertThat(optimized.isSuccess()).isEqualTo(original.isSuccess());
+        assertThat(optimized.getValueStack())
+            .containsExactlyElementsOf(original.getValueStack());
+    }
+
+    @Test
+    public void listenersSeeTheOriginalRules()
+    {
+        final ParseRunner<Object> runner
+            = new OptimizingParseRunner<>(parser.keyword());
+        final List<String> labels = new ArrayList<>();
+
+        runner.registerListener(new ParseEventListener<Object>()
+        {
+            @Override
+            public void beforeMatch(final Matcher matcher, final int level,
+                final int startIndex)
+            {
+                labels.add(matcher.getLabel());
+            }
+        });
+
+        assertThat(runner.run("for").isSuccess()).isTrue();
+        assertThat(labels).startsWith("keyword");
+    }
+
+    private static Matcher optimize(final Rule rule)
+    {
+        return RuleOptimizer.optimize((Matcher) rule);
+    }
+}
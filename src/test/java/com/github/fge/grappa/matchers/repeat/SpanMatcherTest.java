@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.repeat;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.optimize.RuleOptimizer;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class SpanMatcherTest
+{
+    // mathematical double struck capital A and B (U+1D538, U+1D539)
+    private static final String A = "\ud835\udd38";
+    private static final String B = "\ud835\udd39";
+
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        Rule digits()
+        {
+            return oneOrMore(digit());
+        }
+
+        Rule blanks()
+        {
+            return zeroOrMore(anyOf(" \t"));
+        }
+
+        Rule hex()
+        {
+            return repeat(hexDigit()).times(4);
+        }
+
+        Rule xs()
+        {
+            return repeat('x').times(2, 3);
+        }
+
+        Rule anything()
+        {
+            return repeat(ANY).max(3);
+        }
+
+        Rule letters()
+        {
+            return oneOrMore(unicodeRange(0x1d538, 0x1d539));
+        }
+
+        Rule alphas()
+        {
+            return oneOrMore(alpha());
+        }
+
+        Rule matched(final Rule rule)
+        {
+            return sequence(rule, push(match()));
+        }
+    }
+
+    private TestParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(TestParser.class);
+    }
+
+    @Test
+    public void singleCharTerminalsAreSpanned()
+    {
+        assertThat(parser.digits()).isInstanceOf(CharSpanMatcher.class);
+        assertThat(parser.blanks()).isInstanceOf(CharSpanMatcher.class);
+        assertThat(parser.hex()).isInstanceOf(CharSpanMatcher.class);
+        assertThat(parser.xs()).isInstanceOf(CharSpanMatcher.class);
+        assertThat(parser.anything()).isInstanceOf(CharSpanMatcher.class);
+        assertThat(parser.letters()).isInstanceOf(CodePointSpanMatcher.class);
+        assertThat(parser.alphas())
+            .isInstanceOf(BoundedDownRepeatMatcher.class);
+    }
+
+    @Test
+    public void optimizedRepetitionsAreSpanned()
+    {
+        assertThat(RuleOptimizer.optimize((Matcher) parser.alphas()))
+            .isInstanceOf(CharSpanMatcher.class);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getMatchData()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { parser.digits(), "123a", "123" });
+        list.add(new Object[] { parser.digits(), "a", null });
+        list.add(new Object[] { parser.blanks(), "a", "" });
+        list.add(new Object[] { parser.blanks(), " \t a", " \t " });
+        list.add(new Object[] { parser.hex(), "aF09b", "aF09" });
+        list.add(new Object[] { parser.hex(), "aF0", null });
+        list.add(new Object[] { parser.xs(), "x", null });
+        list.add(new Object[] { parser.xs(), "xxxx", "xxx" });
+        list.add(new Object[] { parser.anything(), "ab", "ab" });
+        list.add(new Object[] { parser.anything(), "abcd", "abc" });
+        list.add(new Object[] { parser.letters(), A + B + "a", A + B });
+        list.add(new Object[] { parser.letters(), "a", null });
+        list.add(new Object[] { parser.alphas(), "abC1", "abC" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getMatchData")
+    public void spansMatchLikeRepetitions(final Rule rule, final String input,
+        final String expected)
+    {
+        final ParsingResult<Object> result
+            = new ParseRunner<>(parser.matched(rule)).run(input);
+
+        if (expected == null) {
+            assertThat(result.isSuccess()).isFalse();
+            return;
+        }
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getTopStackValue()).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.trie;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ParseRunner;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public final class DafsaBuilderTest
+{
+    // mathematical double struck capital A (U+1D538), and a private use char
+    private static final String NON_BMP = "\ud835\udd38";
+    private static final String PRIVATE_USE = "\ue000";
+
+    static class TrieParser
+        extends BaseParser<Object>
+    {
+        Rule rule(final Trie trie)
+        {
+            return sequence(trie(trie), EOI);
+        }
+    }
+
+    @Test
+    public void commonSuffixesAreShared()
+    {
+        final Trie dafsa = Trie.newDafsaBuilder().addWord("tops").addWord("tap")
+            .addWord("taps").addWord("top").addWord("tap").build();
+        final Trie trie = Trie.newBuilder().addWord("tops").addWord("tap")
+            .addWord("taps").addWord("top").build();
+
+        assertThat(dafsa.getNrWords()).isEqualTo(4);
+        assertThat(dafsa.getMaxLength()).isEqualTo(4);
+        assertThat(dafsa.getNrStates()).isEqualTo(5);
+        assertThat(trie.getNrStates()).isEqualTo(8);
+
+        assertThat(dafsa.match("tapster", 0)).isEqualTo(4);
+        assertThat(dafsa.match("toe", 0)).isEqualTo(-1);
+        assertThat(dafsa.match("a top", 2)).isEqualTo(3);
+    }
+
+    @Test
+    public void minimalTrieMatchesLikeTrie()
+    {
+        final Random random = new Random(42L);
+        final TrieBuilder trieBuilder = Trie.newBuilder();
+        final DafsaBuilder dafsaBuilder = Trie.newDafsaBuilder();
+        final List<String> inputs = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            final String word = randomWord(random);
+            trieBuilder.addWord(word);
+            dafsaBuilder.addWord(word);
+            inputs.add(word + randomWord(random));
+            inputs.add(randomWord(random));
+        }
+
+        final Trie trie = trieBuilder.build();
+        final Trie dafsa = dafsaBuilder.build();
+
+        assertThat(dafsa.getNrWords()).isEqualTo(trie.getNrWords());
+        assertThat(dafsa.getNrStates()).isLessThan(trie.getNrStates());
+
+        for (final String input: inputs)
+            assertThat(dafsa.match(input, 0)).as(input)
+                .isEqualTo(trie.match(input, 0));
+    }
+
+    @Test
+    public void codePointsAboveBmpAreOrderedCorrectly()
+    {
+        final Trie dafsa = Trie.newDafsaBuilder().addWord("a" + NON_BMP)
+            .addWord("a" + PRIVATE_USE).addWord("a" + NON_BMP + "b").build();
+
+        assertThat(dafsa.match("a" + NON_BMP + "b", 0)).isEqualTo(4);
+        assertThat(dafsa.match("a" + PRIVATE_USE, 0)).isEqualTo(2);
+        assertThat(dafsa.match("a" + NON_BMP, 0)).isEqualTo(3);
+    }
+
+    @Test
+    public void caseFoldedTrieIsMinimal()
+    {
+        final Trie folded = Trie.newBuilder().addWord("Tap").addWord("TOP")
+            .build().caseFolded();
+
+        assertThat(folded.getNrWords()).isEqualTo(2);
+        assertThat(folded.getNrStates()).isEqualTo(4);
+        assertThat(folded.match("tOp", 0)).isEqualTo(3);
+    }
+
+    @Test
+    public void trieSurvivesRoundTrip()
+        throws IOException
+    {
+        final Trie trie = Trie.newDafsaBuilder().addWord("tap").addWord("top")
+            .addWord("tops").addWord(NON_BMP).build().caseFolded();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.writeTo(out);
+        out.write(0x2a);
+
+        final ByteArrayInputStream in
+            = new ByteArrayInputStream(out.toByteArray());
+        final Trie loaded = Trie.readFrom(in);
+
+        assertThat(in.read()).as("trailing data is left unread")
+            .isEqualTo(0x2a);
+        assertThat(loaded.isCaseFolded()).isTrue();
+        assertThat(loaded.getNrWords()).isEqualTo(4);
+        assertThat(loaded.getMaxLength()).isEqualTo(4);
+        assertThat(loaded.getNrStates()).isEqualTo(trie.getNrStates());
+        assertThat(loaded.match("TOPS", 0)).isEqualTo(4);
+        assertThat(loaded.match("TAPS", 0)).isEqualTo(3);
+        assertThat(loaded.match(NON_BMP, 0)).isEqualTo(2);
+        assertThat(loaded.match("t", 0)).isEqualTo(-1);
+    }
+
+    @Test
+    public void invalidDataIsRejected()
+        throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Trie.newDafsaBuilder().addWord("ab").build().writeTo(out);
+        final byte[] valid = out.toByteArray();
+
+        final byte[] badMagic = valid.clone();
+        badMagic[0] = 0;
+        assertThatThrownBy(() -> Trie.readFrom(
+            new ByteArrayInputStream(badMagic)))
+            .isInstanceOf(IOException.class).hasMessage("not a trie");
+
+        // 7 header ints, 4 edge starts and 2 labels; make the first edge loop
+        final byte[] cycle = valid.clone();
+        cycle[13 * Integer.BYTES + 3] = 0;
+        assertThatThrownBy(() -> Trie.readFrom(
+            new ByteArrayInputStream(cycle)))
+            .isInstanceOf(IOException.class)
+            .hasMessage("corrupted trie: invalid targets");
+
+        assertThatThrownBy(() -> Trie.readFrom(
+            new ByteArrayInputStream(valid, 0, valid.length - 1)))
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void corruptedHeaderIsRejected()
+        throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Trie.newDafsaBuilder().addWord("ab").build().writeTo(out);
+        final byte[] valid = out.toByteArray();
+
+        // the number of states, then of edges, are the 6th and 7th header ints
+        final ByteBuffer maxStates = ByteBuffer.wrap(valid.clone());
+        maxStates.putInt(5 * Integer.BYTES, Integer.MAX_VALUE);
+        assertThatThrownBy(() -> Trie.readFrom(
+            new ByteArrayInputStream(maxStates.array())))
+            .isInstanceOf(IOException.class)
+            .hasMessage("corrupted trie: invalid header");
+
+        final ByteBuffer manyStates = ByteBuffer.wrap(valid.clone());
+        manyStates.putInt(5 * Integer.BYTES, Integer.MAX_VALUE - 1);
+        assertThatThrownBy(() -> Trie.readFrom(
+            new ByteArrayInputStream(manyStates.array())))
+            .isInstanceOf(EOFException.class);
+
+        final ByteBuffer manyEdges = ByteBuffer.wrap(valid.clone());
+        manyEdges.putInt(6 * Integer.BYTES, Integer.MAX_VALUE);
+        assertThatThrownBy(() -> Trie.readFrom(
+            new ByteArrayInputStream(manyEdges.array())))
+            .isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    public void parserCanUseBuiltTrie()
+    {
+        final TrieParser parser = Grappa.createParser(TrieParser.class);
+        final Trie trie = Trie.newDafsaBuilder().addWord("do")
+            .addWord("double").build();
+
+        assertThat(new ParseRunner<>(parser.rule(trie)).run("double")
+            .isSuccess()).isTrue();
+        assertThat(new ParseRunner<>(parser.rule(trie.caseFolded()))
+            .run("DOUBLE").isSuccess()).isTrue();
+        assertThat(new ParseRunner<>(parser.rule(trie)).run("dou")
+            .isSuccess()).isFalse();
+    }
+
+    private static String randomWord(final Random random)
+    {
+        final int length = 1 + random.nextInt(8);
+        final StringBuilder sb = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++)
+            sb.append((char) ('a' + random.nextInt(4)));
+
+        return sb.toString();
+    }
+}
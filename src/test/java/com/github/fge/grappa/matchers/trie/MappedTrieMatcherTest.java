@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.trie;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.support.Var;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class MappedTrieMatcherTest
+{
+    enum Keyword
+    {
+        DO,
+        DOUBLE,
+        FOR,
+    }
+
+    private static final Map<String, Keyword> KEYWORDS = ImmutableMap.of(
+        "do", Keyword.DO, "double", Keyword.DOUBLE, "for", Keyword.FOR);
+
+    static class KeywordParser
+        extends BaseParser<Object>
+    {
+        final Var<Keyword> last = new Var<>();
+
+        Rule keywords()
+        {
+            return sequence(trie(KEYWORDS),
+                zeroOrMore(' ', trie(KEYWORDS)), EOI);
+        }
+
+        Rule backtracking()
+        {
+            return firstOf(sequence(trie(KEYWORDS), ';'), "doubles");
+        }
+
+        Rule withVar()
+        {
+            return sequence(trie(KEYWORDS, last), EOI);
+        }
+    }
+
+    private KeywordParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(KeywordParser.class);
+    }
+
+    @Test
+    public void valuesOfLongestMatchesArePushed()
+    {
+        final ParsingResult<Object> result
+            = new ParseRunner<>(parser.keywords()).run("do double for");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack())
+            .containsExactly(Keyword.FOR, Keyword.DOUBLE, Keyword.DO);
+    }
+
+    @Test
+    public void pushedValueIsRemovedOnBacktrack()
+    {
+        final ParsingResult<Object> result
+            = new ParseRunner<>(parser.backtracking()).run("doubles");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).isEmpty();
+    }
+
+    @Test
+    public void valueCanBeSetIntoVar()
+    {
+        final ParsingResult<Object> result
+            = new ParseRunner<>(parser.withVar()).run("double");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).isEmpty();
+        assertThat(parser.last.get()).isEqualTo(Keyword.DOUBLE);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.trie;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class TrieTest
+{
+    // mathematical double struck capital A and B (U+1D538, U+1D539)
+    private static final String A = "\u1d538";
+    private static final String B = "\u1d539";
+
+    @Test
+    public void longestWordIsMatchedAtIndex()
+    {
+        final Trie trie = Trie.newBuilder().addWord("do").addWord("double")
+            .addWord("dot").build();
+
+        assertThat(trie.match("a double", 2)).isEqualTo(6);
+        assertThat(trie.match("a doubling", 2)).isEqualTo(2);
+        assertThat(trie.match("a doubling", 0)).isEqualTo(-1);
+        assertThat(trie.match("a do", 2)).isEqualTo(2);
+        assertThat(trie.match("a d", 2)).isEqualTo(-1);
+        assertThat(trie.match("a do", 4)).isEqualTo(-1);
+    }
+
+    @Test
+    public void duplicateWordsAreCountedOnce()
+    {
+        final Trie trie = Trie.newBuilder().addWord("if").addWord("in")
+            .addWord("if").build();
+
+        assertThat(trie.getNrWords()).isEqualTo(2);
+        assertThat(trie.getMaxLength()).isEqualTo(2);
+    }
+
+    @Test
+    public void nonBmpCodePointsAreSupported()
+    {
+        final Trie trie = Trie.newBuilder().addWord(A).addWord(A + B + "x")
+            .build();
+
+        assertThat(trie.getMaxLength()).isEqualTo(5);
+        assertThat(trie.match(A + B + "x", 0)).isEqualTo(5);
+        assertThat(trie.match(A + B, 0)).isEqualTo(2);
+        assertThat(trie.match(B, 0)).isEqualTo(-1);
+        // a lone high surrogate does not match
+        assertThat(trie.match(A.substring(0, 1), 0)).isEqualTo(-1);
+    }
+
+    @Test
+    public void caseFoldedTriesIgnoreCase()
+    {
+        final Trie trie = Trie.newBuilder().addWord("Select").addWord("\u00c9T\u00c9")
+            .addWord("kilo").build();
+        final Trie folded = trie.caseFolded();
+
+        assertThat(trie.isCaseFolded()).isFalse();
+        assertThat(trie.match("SELECT", 0)).isEqualTo(-1);
+
+        assertThat(folded.isCaseFolded()).isTrue();
+        assertThat(folded.caseFolded()).isSameAs(folded);
+        assertThat(folded.getNrWords()).isEqualTo(3);
+        assertThat(folded.match("SELECT", 0)).isEqualTo(6);
+        assertThat(folded.match("sElEcT", 0)).isEqualTo(6);
+        assertThat(folded.match("\u00e9t\u00e9", 0)).isEqualTo(3);
+        // Kelvin sign and dotless i
+        assertThat(folded.match("\u212a\u0131lo", 0)).isEqualTo(4);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.matchers.wrap;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.annotations.Memoized;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class MemoizingMatcherTest
+{
+    static class MemoizedParser
+        extends BaseParser<Object>
+    {
+        int attempts = 0;
+
+        boolean countAttempt()
+        {
+            attempts++;
+            return true;
+        }
+
+        Rule memoizedRule()
+        {
+            return sequence(
+                firstOf(sequence(number(), 'x'), sequence(number(), 'y')),
+                EOI
+            );
+        }
+
+        Rule plainRule()
+        {
+            return sequence(
+                firstOf(sequence(plainNumber(), 'x'),
+                    sequence(plainNumber(), 'y')),
+                EOI
+            );
+        }
+
+        @Memoized(window = 16)
+        Rule number()
+        {
+            return sequence(countAttempt(), oneOrMore(digit()),
+                push(match()));
+        }
+
+        Rule plainNumber()
+        {
+            return sequence(countAttempt(), oneOrMore(digit()),
+                push(match()));
+        }
+    }
+
+    private MemoizedParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(MemoizedParser.class);
+    }
+
+    @Test
+    public void annotatedRuleIsWrappedAndKeepsItsLabel()
+    {
+        final Matcher matcher = (Matcher) parser.number();
+
+        assertThat(matcher).isInstanceOf(MemoizingMatcher.class);
+        assertThat(matcher.getLabel()).isEqualTo("number");
+        assertThat(parser.plainNumber())
+            .isNotInstanceOf(MemoizingMatcher.class);
+    }
+
+    @Test
+    public void annotatedRuleIsNotReparsedOnBacktrack()
+    {
+        final ParseRunner<Object> runner
+            = new ParseRunner<>(parser.memoizedRule());
+
+        final ParsingResult<Object> result = runner.run("123y");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly("123");
+        assertThat(parser.attempts).isEqualTo(1);
+    }
+
+    @Test
+    public void rulesWithoutAnnotationAreReparsedOnBacktrack()
+    {
+        final ParseRunner<Object> runner
+            = new ParseRunner<>(parser.plainRule());
+
+        assertThat(runner.run("123y").isSuccess()).isTrue();
+        assertThat(parser.attempts).isEqualTo(2);
+    }
+
+    @Test
+    public void memoizedOutcomesDoNotOutliveARun()
+    {
+        final ParseRunner<Object> runner
+            = new ParseRunner<>(parser.memoizedRule());
+
+        assertThat(runner.run("123y").getValueStack()).containsExactly("123");
+        assertThat(runner.run("123y").getValueStack()).containsExactly("123");
+        assertThat(parser.attempts).isEqualTo(2);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class DirectParseRunnerTest
+{
+    private Matcher matcher;
+    private ParseRunner<Object> parseRunner;
+
+    @BeforeMethod
+    public void init()
+    {
+        matcher = mock(Matcher.class);
+        when(matcher.match(any())).thenReturn(true);
+        parseRunner = spy(new ParseRunner<>(matcher));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void runWithoutListenersDoesNotPostEvents()
+    {
+        final InputBuffer buffer = new CharSequenceInputBuffer("");
+        final ArgumentCaptor<ParseSession<Object>> session
+            = ArgumentCaptor.forClass(ParseSession.class);
+
+        assertThat(parseRunner.run(buffer).isSuccess()).isTrue();
+
+        verify(parseRunner).createRootContext(session.capture());
+        assertThat(session.getValue().getInputBuffer()).isSameAs(buffer);
+        verify(matcher).match(any());
+    }
+
+    @Test
+    public void runWithListenersPostsEvents()
+    {
+        final ParseEventListener<Object> listener
+            = spy(new ParseEventListener<>());
+        final InputBuffer buffer = new CharSequenceInputBuffer("");
+
+        parseRunner.registerListener(listener);
+
+        assertThat(parseRunner.run(buffer).isSuccess()).isTrue();
+
+        verify(parseRunner).createRootContext(any());
+        verify(listener).beforeParse(any());
+        verify(listener).afterParse(any());
+    }
+
+    @Test
+    public void listenersAreOnlyRegisteredOnce()
+    {
+        final ParseEventListener<Object> listener
+            = spy(new ParseEventListener<>());
+
+        parseRunner.registerListener(listener);
+        parseRunner.registerListener(listener);
+        parseRunner.run("");
+
+        verify(listener).beforeParse(any());
+    }
+}
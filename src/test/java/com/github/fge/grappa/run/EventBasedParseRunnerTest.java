@@ -23,6 +23,7 @@ import com.github.fge.grappa.run.events.MatchSuccessEvent;
 import com.github.fge.grappa.run.events.PostParseEvent;
 import com.github.fge.grappa.run.events.PreMatchEvent;
 import com.github.fge.grappa.run.events.PreParseEvent;
+import com.github.fge.grappa.stack.ArrayValueStack;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import com.github.fge.grappa.run.context.MatcherContext;
@@ -55,6 +56,12 @@ public final class EventBasedParseRunnerTest
         parseRunner.registerListener(listener);
     }
 
+    private ParseSession<Object> createSession()
+    {
+        return parseRunner.createSession(mock(InputBuffer.class),
+            new ArrayValueStack<>());
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Test
     public void parsingRunTriggersPreAndPostParse()
@@ -63,7 +70,7 @@ public final class EventBasedParseRunnerTest
         final ParsingResult<Object> result = mock(ParsingResult.class);
 
         doReturn(context)
-            .when(parseRunner).createRootContext(buffer, parseRunner);
+            .when(parseRunner).createRootContext(any());
         doReturn(result)
             .when(parseRunner).createParsingResult(anyBoolean(), same(context));
 
@@ -92,7 +99,7 @@ public final class EventBasedParseRunnerTest
         // This is the default, but let's make it explicit
         when(matcher.match(context)).thenReturn(false);
 
-        assertThat(parseRunner.match(context)).isFalse();
+        assertThat(createSession().match(context)).isFalse();
 
         final InOrder inOrder = inOrder(listener);
 
@@ -116,7 +123,7 @@ public final class EventBasedParseRunnerTest
         when(context.getMatcher()).thenReturn(matcher);
         when(matcher.match(context)).thenReturn(true);
 
-        assertThat(parseRunner.match(context)).isTrue();
+        assertThat(createSession().match(context)).isTrue();
 
         final InOrder inOrder = inOrder(listener);
 
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public final class MemoizingParseRunnerTest
+{
+    static class BacktrackingParser
+        extends BaseParser<Object>
+    {
+        int attempts = 0;
+
+        boolean countAttempt()
+        {
+            attempts++;
+            return true;
+        }
+
+        Rule rule()
+        {
+            return sequence(
+                firstOf(sequence(number(), 'x'), sequence(number(), 'y')),
+                EOI
+            );
+        }
+
+        Rule number()
+        {
+            return sequence(countAttempt(), oneOrMore(digit()),
+                push(match()));
+        }
+
+        Rule inherited()
+        {
+            return sequence(
+                push("a"),
+                firstOf(sequence(append(), 'x'), sequence(append(), 'y')),
+                EOI
+            );
+        }
+
+        Rule append()
+        {
+            return sequence(countAttempt(), oneOrMore(digit()),
+                push((String) pop() + match()));
+        }
+    }
+
+    private BacktrackingParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(BacktrackingParser.class);
+    }
+
+    @Test
+    public void plainRunnerReparsesOnBacktrack()
+    {
+        final ParseRunner<Object> runner = new ParseRunner<>(parser.rule());
+
+        final ParsingResult<Object> result = runner.run("123y");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly("123");
+        assertThat(parser.attempts).isEqualTo(2);
+    }
+
+    @Test
+    public void memoizedOutcomeIsReplayedOnBacktrack()
+    {
+        final ParseRunner<Object> runner
+            = new MemoizingParseRunner<>(parser.rule());
+
+        final ParsingResult<Object> result = runner.run("123y");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly("123");
+        assertThat(parser.attempts).isEqualTo(1);
+    }
+
+    @Test
+    public void memoizationIsActiveWithListeners()
+    {
+        final ParseRunner<Object> runner
+            = new MemoizingParseRunner<>(parser.rule());
+
+        runner.registerListener(new ParseEventListener<>());
+
+        assertThat(runner.run("123y").getValueStack()).containsExactly("123");
+        assertThat(parser.attempts).isEqualTo(1);
+    }
+
+    @Test
+    public void memoTableIsResetBetweenRuns()
+    {
+        final ParseRunner<Object> runner
+            = new MemoizingParseRunner<>(parser.rule());
+
+        assertThat(runner.run("123y").getValueStack()).containsExactly("123");
+        assertThat(runner.run("45y").getValueStack()).containsExactly("45");
+        assertThat(parser.attempts).isEqualTo(2);
+    }
+
+    @Test
+    public void matchesUsingPreviousStackValuesAreNotMemoized()
+    {
+        final ParseRunner<Object> runner
+            = new MemoizingParseRunner<>(parser.inherited());
+
+        final ParsingResult<Object> result = runner.run("123y");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly("a123");
+        assertThat(parser.attempts).isEqualTo(2);
+    }
+
+    @Test
+    public void noMatcherIsMemoizedIfTypeIsNotEligible()
+    {
+        final ParseRunner<Object> runner = new MemoizingParseRunner<>(
+            parser.rule(), EnumSet.of(MatcherType.TERMINAL));
+
+        assertThat(runner.run("123y").isSuccess()).isTrue();
+        assertThat(parser.attempts).isEqualTo(2);
+    }
+
+    @Test
+    public void actionsCannotBeMemoized()
+    {
+        assertThatThrownBy(() -> new MemoizingParseRunner<>(parser.rule(),
+            EnumSet.of(MatcherType.ACTION)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.run.events.PreMatchEvent;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class ParseEventDispatcherTest
+{
+    private MatcherContext<Object> context;
+    private Matcher matcher;
+
+    @BeforeMethod
+    public void init()
+    {
+        //noinspection unchecked
+        context = mock(MatcherContext.class);
+        matcher = mock(Matcher.class);
+        when(context.getMatcher()).thenReturn(matcher);
+        when(context.getLevel()).thenReturn(3);
+        when(context.getStartIndex()).thenReturn(2);
+        when(context.getCurrentIndex()).thenReturn(5);
+    }
+
+    @Test
+    public void listenersReceivePrimitiveArguments()
+    {
+        final ParseEventListener<Object> listener
+            = spy(new ParseEventListener<>());
+        final ParseEventDispatcher<Object> dispatcher
+            = new ParseEventDispatcher<>(Collections.singletonList(listener));
+
+        dispatcher.beforeMatch(context);
+        dispatcher.matchSuccess(context);
+        dispatcher.matchFailure(context);
+
+        verify(listener).beforeMatch(matcher, 3, 5);
+        verify(listener).matchSuccess(matcher, 3, 2, 5);
+        verify(listener).matchFailure(matcher, 3, 2, 5);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test
+    public void eventObjectsAreReusedForTheSameContext()
+    {
+        final ParseEventListener<Object> listener
+            = spy(new ParseEventListener<>());
+        final ArgumentCaptor<PreMatchEvent> captor
+            = ArgumentCaptor.forClass(PreMatchEvent.class);
+        final ParseEventDispatcher<Object> dispatcher
+            = new ParseEventDispatcher<>(Collections.singletonList(listener));
+
+        dispatcher.beforeMatch(context);
+        dispatcher.beforeMatch(context);
+
+        verify(listener, times(2)).beforeMatch(captor.capture());
+
+        final List<PreMatchEvent> events = captor.getAllValues();
+        assertThat(events.get(0)).isSameAs(events.get(1));
+        assertThat(events.get(0).getContext()).isSameAs(context);
+    }
+
+    @Test
+    public void listenerErrorsAreCollected()
+    {
+        final ParseEventListener<Object> first
+            = spy(new ParseEventListener<>());
+        final ParseEventListener<Object> second
+            = spy(new ParseEventListener<>());
+        final RuntimeException e1 = new RuntimeException();
+        final RuntimeException e2 = new RuntimeException();
+
+        doThrow(e1).when(first).beforeMatch(matcher, 3, 5);
+        doThrow(e2).when(second).beforeMatch(matcher, 3, 5);
+
+        final ParseEventDispatcher<Object> dispatcher
+            = new ParseEventDispatcher<>(Arrays.asList(first, second));
+
+        assertThatThrownBy(() -> dispatcher.beforeMatch(context))
+            .isInstanceOf(GrappaException.class)
+            .hasMessage("parsing listener error (before match)")
+            .hasCause(e1);
+        assertThat(e1.getSuppressed()).containsExactly(e2);
+
+        // errors are only reported once
+        dispatcher.matchSuccess(context);
+    }
+}
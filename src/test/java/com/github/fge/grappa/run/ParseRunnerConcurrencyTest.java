@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Action;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.StringBuilderVar;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ParseRunnerConcurrencyTest
+{
+    private static final int NR_THREADS = 8;
+    private static final int NR_RUNS = 500;
+
+    /*
+     * Only uses stateless actions, since the state of a parser instance itself
+     * is not shared safely
+     */
+    static class SumParser
+        extends BaseParser<Object>
+    {
+        static final Action<Object> PUSH_MATCH = context -> {
+            context.getValueStack().push(context.getMatch());
+            return true;
+        };
+
+        Rule sum()
+        {
+            return sequence(
+                number(),
+                zeroOrMore(firstOf(sequence('+', number()),
+                    sequence('+', '-', number()))),
+                EOI
+            );
+        }
+
+        Rule number()
+        {
+            return sequence(oneOrMore(digit()), PUSH_MATCH);
+        }
+    }
+
+    static class StatefulSumParser
+        extends SumParser
+    {
+        @Override
+        Rule number()
+        {
+            final StringBuilderVar digits = new StringBuilderVar();
+            return sequence(
+                oneOrMore(digit(), digits.append(match())),
+                push(digits.getString())
+            );
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getRunners()
+    {
+        final SumParser parser = Grappa.createParser(SumParser.class);
+        final Rule rule = parser.sum();
+
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { new ParseRunner<>(rule) });
+        list.add(new Object[] { new MemoizingParseRunner<>(rule) });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getRunners")
+    public void sharedRunnerCanBeUsedConcurrently(
+        final ParseRunner<Object> runner)
+        throws Exception
+    {
+        runConcurrently(() -> runner);
+    }
+
+    @Test
+    public void parsersWithStateCanBeUsedOnePerThread()
+        throws Exception
+    {
+        final ThreadLocal<ParseRunner<Object>> runners
+            = ThreadLocal.withInitial(() -> new ParseRunner<>(
+                Grappa.createParser(StatefulSumParser.class).sum()));
+
+        runConcurrently(runners::get);
+    }
+
+    private static void runConcurrently(
+        final Supplier<ParseRunner<Object>> runners)
+        throws Exception
+    {
+        final ExecutorService executor
+            = Executors.newFixedThreadPool(NR_THREADS);
+        final List<Future<Void>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < NR_THREADS; i++)
+                futures.add(executor.submit(runTask(runners, i)));
+            for (final Future<Void> future: futures)
+                future.get(60L, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Callable<Void> runTask(
+        final Supplier<ParseRunner<Object>> runners, final long seed)
+    {
+        return () -> {
+            final ParseRunner<Object> runner = runners.get();
+            final Random random = new Random(seed);
+
+            for (int i = 0; i < NR_RUNS; i++) {
+                final List<String> numbers = randomNumbers(random);
+                final String input = numbers.stream()
+                    .collect(Collectors.joining(random.nextBoolean()
+                        ? "+" : "+-"));
+
+                final ParsingResult<Object> result = runner.run(input);
+
+                assertThat(result.isSuccess()).isTrue();
+                assertThat(result.getValueStack())
+                    .containsExactlyElementsOf(Lists.reverse(numbers));
+            }
+
+            return null;
+        };
+    }
+
+    private static List<String> randomNumbers(final Random random)
+    {
+        final int nrNumbers = 1 + random.nextInt(20);
+        final List<String> numbers = new ArrayList<>(nrNumbers);
+
+        for (int i = 0; i < nrNumbers; i++)
+            numbers.add(Integer.toString(random.nextInt(100000)));
+
+        return numbers;
+    }
+}
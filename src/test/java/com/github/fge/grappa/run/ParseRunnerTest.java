@@ -17,10 +17,17 @@
 package com.github.fge.grappa.run;
 
 import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
 import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.DefaultMatcherContext;
+import com.github.fge.grappa.stack.PersistentValueStack;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public final class ParseRunnerTest
@@ -32,6 +39,35 @@ public final class ParseRunnerTest
         {
             return oneOrMore('a');
         }
+
+        final List<Boolean> inPredicateFlags = new ArrayList<>();
+
+        boolean recordInPredicate(final boolean inPredicate)
+        {
+            inPredicateFlags.add(inPredicate);
+            return true;
+        }
+
+        Rule predicates()
+        {
+            return sequence(
+                test(sequence('a', ACTION(recordInPredicate(inPredicate())))),
+                'a', ACTION(recordInPredicate(inPredicate())),
+                testNot(testNot(sequence(ANY,
+                    ACTION(recordInPredicate(inPredicate())))))
+            );
+        }
+
+        Rule matchAfterTerminals()
+        {
+            return sequence('a', oneOrMore(digit()), 'b', push(match()));
+        }
+
+        Rule partialTerminalMatch()
+        {
+            return sequence(firstOf(repeat('a').times(3), "aa"),
+                push(match()));
+        }
     }
 
     private final SimpleParser parser
@@ -44,4 +80,73 @@ public final class ParseRunnerTest
         assertThat(runner.run("bbb").isSuccess()).as("errors are reported")
             .isFalse();
     }
+
+    @Test
+    public void plainRunnersRunTheRuleAsIs()
+    {
+        final ParseSession<Object> session = runner.createSession(
+            new CharSequenceInputBuffer("a"), new PersistentValueStack<>());
+
+        assertThat(runner.createRootContext(session).getMatcher())
+            .isSameAs(runner.rootMatcher);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void runnersCanStillBeUsedAsMatchHandlers()
+    {
+        final Rule rule = parser.matchAfterTerminals();
+        final ParseRunner<Object> runner = new ParseRunner<>(rule);
+        final List<Matcher> matchers = new ArrayList<>();
+
+        runner.registerListener(new ParseEventListener<Object>()
+        {
+            @Override
+            public void matchSuccess(final Matcher matcher, final int level,
+                final int startIndex, final int endIndex)
+            {
+                matchers.add(matcher);
+            }
+        });
+
+        assertThat(runner.run("a12b").isSuccess()).isTrue();
+
+        final List<Matcher> expected = new ArrayList<>(matchers);
+        matchers.clear();
+
+        final boolean matched = new DefaultMatcherContext<>(
+            new CharSequenceInputBuffer("a12b"), new PersistentValueStack<>(),
+            runner, (Matcher) rule).runMatcher();
+
+        assertThat(matched).isTrue();
+        assertThat(matchers).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void actionsKnowWhetherTheyRunInAPredicate()
+    {
+        final ParseRunner<Object> runner
+            = new ParseRunner<>(parser.predicates());
+
+        assertThat(runner.run("ab").isSuccess()).isTrue();
+        assertThat(parser.inPredicateFlags).containsExactly(true, false, true);
+    }
+
+    @Test
+    public void actionsSeeTheMatchOfThePreviousTerminal()
+    {
+        final ParseRunner<Object> runner
+            = new ParseRunner<>(parser.matchAfterTerminals());
+
+        assertThat(runner.run("a12b").getValueStack()).containsExactly("b");
+    }
+
+    @Test
+    public void failedTerminalsDoNotMoveTheIndex()
+    {
+        final ParseRunner<Object> runner
+            = new ParseRunner<>(parser.partialTerminalMatch());
+
+        assertThat(runner.run("aa").getValueStack()).containsExactly("aa");
+    }
 }
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run.vm;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ParseEventListener;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.VmParseRunner;
+import com.github.fge.grappa.support.Var;
+import com.google.common.base.Strings;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public final class ProgramCompilerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        Rule choice()
+        {
+            return sequence(firstOf(sequence('a', push(match())), "ab"), 'c',
+                push(match()), EOI);
+        }
+
+        Rule list()
+        {
+            return sequence('[', optional(element(),
+                zeroOrMore(',', element())), ']');
+        }
+
+        Rule element()
+        {
+            return firstOf(list(), sequence(oneOrMore(digit()),
+                push(match())));
+        }
+
+        Rule predicates()
+        {
+            return sequence(test(list()), testNot("[0"), list(),
+                ACTION(inPredicate() || push("checked")), EOI);
+        }
+
+        Rule bounded()
+        {
+            return sequence(repeat(sequence(charRange('a', 'c'),
+                optional('x'), push(match()))).times(2, 3),
+                push(currentIndex()), zeroOrMore(ANY), push(match()));
+        }
+
+        Rule nested()
+        {
+            return firstOf(sequence('(', nested(), ')'), 'x');
+        }
+
+        Rule emptyRepeat()
+        {
+            return sequence('a', oneOrMore(optional('b')));
+        }
+
+        Rule joined()
+        {
+            return sequence('[', join(firstOf(joined(),
+                sequence(oneOrMore(digit()), push(match()))))
+                .using(',').min(0), ']');
+        }
+
+        Rule counted()
+        {
+            return sequence(repeat(charRange('a', 'c')).times(20, 24),
+                push(match()), repeat(sequence('x', push(match()))).min(17));
+        }
+
+        Rule emptyJoin()
+        {
+            return join('a').using(optional(',')).min(2);
+        }
+
+        Rule failedNegation()
+        {
+            return firstOf(testNot(sequence(ignoreCase('c'), push(match()))),
+                noneOf("a"), 'a');
+        }
+
+        Rule failedRepeat()
+        {
+            return firstOf(repeat(sequence(ignoreCase('a'), push(match())))
+                .min(2), EMPTY);
+        }
+
+        Rule failedNestedRepeat()
+        {
+            return firstOf(sequence(EMPTY, repeat(sequence("ab",
+                push(match()))).min(2)), "ab");
+        }
+
+        Rule framed()
+        {
+            final Var<String> open = new Var<>();
+            return firstOf(
+                sequence(anyOf("(["), open.set(match()), framed(),
+                    anyOf(")]"), ACTION(closes(open.get(), match()))),
+                'x'
+            );
+        }
+
+        boolean closes(final String open, final String close)
+        {
+            return "(".equals(open) ? ")".equals(close) : "]".equals(close);
+        }
+
+        Rule matched(final Rule rule)
+        {
+            return sequence(rule, push(match()));
+        }
+    }
+
+    private TestParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(TestParser.class);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> inputs()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { parser.choice(), "ac" });
+        list.add(new Object[] { parser.choice(), "abc" });
+        list.add(new Object[] { parser.choice(), "abcd" });
+        list.add(new Object[] { parser.list(), "[1,[2,34],[],5]" });
+        list.add(new Object[] { parser.list(), "[1,[2,34]" });
+        list.add(new Object[] { parser.predicates(), "[[1],2]" });
+        list.add(new Object[] { parser.predicates(), "[0,1]" });
+        list.add(new Object[] { parser.predicates(), "[1," });
+        list.add(new Object[] { parser.bounded(), "axbcabd" });
+        list.add(new Object[] { parser.bounded(), "abxcz" });
+        list.add(new Object[] { parser.bounded(), "axd" });
+        list.add(new Object[] { parser.joined(), "[1,[2,34],[],5]" });
+        list.add(new Object[] { parser.joined(), "[1,[2,]]" });
+        list.add(new Object[] { parser.counted(),
+            Strings.repeat("abc", 8) + Strings.repeat("x", 17) });
+        list.add(new Object[] { parser.counted(),
+            Strings.repeat("abc", 7) + Strings.repeat("x", 16) });
+        list.add(new Object[] { parser.failedNegation(), "c" });
+        list.add(new Object[] { parser.failedRepeat(), "A" });
+        list.add(new Object[] { parser.failedNestedRepeat(), "ab" });
+        list.add(new Object[] { parser.framed(), "([(x)])" });
+        list.add(new Object[] { parser.framed(), "([(x]])" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "inputs")
+    public void programsHaveTheSameOutcome(final Rule rule,
+        final String input)
+    {
+        final Rule matched = parser.matched(rule);
+        final ParseRunner<Object> original = new ParseRunner<>(matched);
+
+        // the original rule graph is used when listeners are registered
+        original.registerListener(new ParseEventListener<>());
+
+        final ParsingResult<Object> expected = original.run(input);
+        final ParsingResult<Object> actual
+            = new VmParseRunner<>(matched).run(input);
+
+        assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @Test
+    public void compiledMatcherKeepsTheLabel()
+    {
+        final Matcher matcher = (Matcher) parser.list();
+        final Matcher compiled = ProgramCompiler.compile(matcher);
+
+        assertThat(compiled).isInstanceOf(VmMatcher.class);
+        assertThat(compiled.getLabel()).isEqualTo(matcher.getLabel());
+    }
+
+    @Test
+    public void terminalsAreNotCompiled()
+    {
+        final Matcher matcher = (Matcher) parser.ch('a');
+
+        assertThat(ProgramCompiler.compile(matcher)).isSameAs(matcher);
+    }
+
+    @Test
+    public void deeplyNestedInputDoesNotUseTheJavaStack()
+    {
+        final int depth = 100_000;
+        final String input = Strings.repeat("(", depth) + 'x'
+            + Strings.repeat(")", depth);
+
+        final ParseRunner<Object> runner
+            = new VmParseRunner<>(parser.nested());
+
+        assertThat(runner.run(input).isSuccess()).isTrue();
+    }
+
+    @Test
+    public void deeplyNestedInputRunsWithASmallStack()
+        throws InterruptedException
+    {
+        final int depth = 100_000;
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < depth; i++)
+            sb.append(i % 3 == 0 ? '(' : '[');
+        sb.append('x');
+        for (int i = depth - 1; i >= 0; i--)
+            sb.append(i % 3 == 0 ? ')' : ']');
+
+        final ParseRunner<Object> runner
+            = new VmParseRunner<>(parser.framed());
+        final AtomicReference<Boolean> success = new AtomicReference<>();
+        final Thread thread = new Thread(null,
+            () -> success.set(runner.run(sb).isSuccess()), "small-stack",
+            256L * 1024L);
+
+        thread.start();
+        thread.join();
+
+        assertThat(success.get()).isTrue();
+    }
+
+    @Test
+    public void joiningRulesMatchingEmptyStillFail()
+    {
+        final ParseRunner<Object> runner
+            = new VmParseRunner<>(parser.emptyJoin());
+
+        assertThatThrownBy(() -> runner.run("aa"))
+            .isInstanceOf(GrappaException.class);
+    }
+
+    @Test
+    public void repetitionsMatchingEmptyStillFail()
+    {
+        final ParseRunner<Object> runner
+            = new VmParseRunner<>(parser.emptyRepeat());
+
+        assertThatThrownBy(() -> runner.run("ab"))
+            .isInstanceOf(GrappaException.class);
+    }
+}
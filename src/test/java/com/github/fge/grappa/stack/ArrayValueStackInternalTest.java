@@ -7,7 +7,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 public final class ArrayValueStackInternalTest
 {
     @Test
-    public void expandShrinkTest()
+    public void expandNoShrinkTest()
     {
         final ArrayValueStack<Object> valueStack = new ArrayValueStack<>();
 
@@ -25,16 +25,72 @@ public final class ArrayValueStackInternalTest
         valueStack.push(new Object());
 
         array = valueStack.getArray();
-        expectedLength = ArrayValueStack.INITIAL_SIZE
-            + ArrayValueStack.SIZE_INCREASE;
+        expectedLength = 2 * ArrayValueStack.INITIAL_SIZE;
 
         assertThat(array.length).isEqualTo(expectedLength);
 
+        valueStack.pop();
         valueStack.pop();
 
         array = valueStack.getArray();
-        expectedLength = ArrayValueStack.INITIAL_SIZE;
 
         assertThat(array.length).isEqualTo(expectedLength);
     }
+
+    @Test
+    public void valuesAreStoredBottomFirst()
+    {
+        final ArrayValueStack<Object> valueStack = new ArrayValueStack<>();
+
+        final Object o1 = new Object();
+        final Object o2 = new Object();
+
+        valueStack.push(o1);
+        valueStack.push(o2);
+
+        final Object[] array = valueStack.getArray();
+
+        assertThat(array[0]).isSameAs(o1);
+        assertThat(array[1]).isSameAs(o2);
+        assertThat(valueStack).containsExactly(o2, o1);
+    }
+
+    @Test
+    public void snapshotCanBeRestoredMoreThanOnce()
+    {
+        final ArrayValueStack<Object> valueStack = new ArrayValueStack<>();
+
+        final Object o1 = new Object();
+        final Object o2 = new Object();
+
+        valueStack.push(o1);
+
+        final Object snapshot = valueStack.takeSnapshot();
+
+        valueStack.push(o2);
+        valueStack.restoreSnapshot(snapshot);
+        valueStack.poke(o2);
+        valueStack.restoreSnapshot(snapshot);
+
+        assertThat(valueStack).containsExactly(o1);
+        assertThat(valueStack.getArray()[1]).isNull();
+    }
+
+    @Test
+    public void largeSnapshotIsRestoredIntoLargerArray()
+    {
+        final ArrayValueStack<Object> valueStack = new ArrayValueStack<>();
+        final int size = 3 * ArrayValueStack.INITIAL_SIZE;
+
+        for (int i = 0; i < size; i++)
+            valueStack.push(i);
+
+        final Object snapshot = valueStack.takeSnapshot();
+
+        valueStack.clear();
+        valueStack.restoreSnapshot(snapshot);
+
+        assertThat(valueStack.size()).isEqualTo(size);
+        assertThat(valueStack.peek()).isEqualTo(size - 1);
+    }
 }
@@ -47,8 +47,9 @@ public final class ArrayValueStackTest
             final AutoCloseableSoftAssertions soft
                 = new AutoCloseableSoftAssertions();
         ) {
+            // values are stored bottom first
             for (int index = 0; index < size; index++)
-                soft.assertThat(array[index])
+                soft.assertThat(array[size - index - 1])
                     .as("element at index %d", index)
                     .isEqualTo(expected.get(index));
             for (int index = size; index < length; index++)
@@ -0,0 +1,87 @@
+package com.github.fge.grappa.stack;
+
+import com.google.common.collect.Streams;
+import org.assertj.core.api.AutoCloseableSoftAssertions;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class PersistentValueStackTest
+    extends ValueStackTest
+{
+    @Override
+    protected ValueStack<Object> newStack()
+    {
+        final Collection<Object> values = Arrays.asList(o1, o2, o3, o4, o5, o6);
+        return new PersistentValueStack<>(values);
+    }
+
+    @Override
+    protected void checkNoContents()
+    {
+        assertThat(stack.isEmpty()).isTrue();
+        assertThat(stack.iterator().hasNext()).isFalse();
+    }
+
+    @Override
+    protected void checkContents(final Object first, final Object... others)
+    {
+        final List<Object> values = new ArrayList<>();
+        values.add(first);
+        Collections.addAll(values, others);
+
+        final int expectedSize = 1 + others.length;
+
+        assertThat(stack.size()).isEqualTo(expectedSize);
+        assertThat(Streams.stream(stack.iterator()))
+            .containsExactlyElementsOf(values);
+
+        try (
+            final AutoCloseableSoftAssertions soft
+                = new AutoCloseableSoftAssertions();
+        ) {
+            for (int index = 0; index < expectedSize; index++)
+                soft.assertThat(stack.peek(index))
+                    .as("element at index %d", index)
+                    .isEqualTo(values.get(index));
+        }
+    }
+
+    @Test
+    public void snapshotIsNotAffectedByLaterChanges()
+    {
+        final Object o7 = new Object();
+
+        final Object snapshot = stack.takeSnapshot();
+
+        stack.push(o7);
+        stack.swap(4);
+        stack.poke(5, o7);
+        stack.pop(2);
+        final Object modified = stack.takeSnapshot();
+
+        stack.restoreSnapshot(snapshot);
+        checkContents(o1, o2, o3, o4, o5, o6);
+
+        stack.restoreSnapshot(modified);
+        checkContents(o3, o2, o7, o4, o7, o6);
+    }
+
+    @Test
+    public void snapshotOfEmptyStackCanBeRestored()
+    {
+        stack.clear();
+        final Object snapshot = stack.takeSnapshot();
+
+        stack.push(o1);
+        stack.restoreSnapshot(snapshot);
+
+        checkNoContents();
+    }
+}
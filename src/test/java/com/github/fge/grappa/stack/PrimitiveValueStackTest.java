@@ -0,0 +1,141 @@
+package com.github.fge.grappa.stack;
+
+import com.google.common.collect.Streams;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public final class PrimitiveValueStackTest
+{
+    @Test
+    public void primitiveAndBoxedOperationsAgree()
+    {
+        final IntValueStack stack = new IntValueStack();
+
+        stack.pushInt(1);
+        stack.push(2);
+        stack.pushInt(3);
+
+        assertThat(stack.peekInt()).isEqualTo(3);
+        assertThat(stack.peek(1)).isEqualTo(2);
+        assertThat(stack.peekInt(2)).isEqualTo(1);
+        assertThat(Streams.stream(stack.iterator())).containsExactly(3, 2, 1);
+
+        stack.swap(3);
+        assertThat(stack.popInt()).isEqualTo(1);
+        assertThat(stack.popInt(1)).isEqualTo(3);
+        assertThat(stack.pop()).isEqualTo(2);
+        assertThat(stack.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void stackGrowsAndValuesAreKept()
+    {
+        final LongValueStack stack = new LongValueStack();
+        final int size = 3 * PrimitiveValueStack.INITIAL_SIZE;
+
+        for (int i = 0; i < size; i++)
+            stack.pushLong(Long.MAX_VALUE - i);
+
+        assertThat(stack.size()).isEqualTo(size);
+
+        for (int i = size - 1; i >= 0; i--)
+            assertThat(stack.popLong()).isEqualTo(Long.MAX_VALUE - i);
+    }
+
+    @Test
+    public void doubleValuesAreKeptExactly()
+    {
+        final DoubleValueStack stack = new DoubleValueStack();
+
+        stack.pushDouble(-0.0);
+        stack.pushDouble(Double.NaN);
+        stack.pushDouble(Math.PI);
+        stack.dup();
+        stack.pokeDouble(Math.E);
+
+        assertThat(stack.popDouble()).isEqualTo(Math.E);
+        assertThat(stack.popDouble()).isEqualTo(Math.PI);
+        assertThat(stack.popDouble()).isNaN();
+        assertThat(Double.doubleToRawLongBits(stack.popDouble()))
+            .isEqualTo(Double.doubleToRawLongBits(-0.0));
+    }
+
+    @Test
+    public void snapshotCanBeRestoredMoreThanOnce()
+    {
+        final IntValueStack stack = new IntValueStack();
+
+        stack.pushInt(1);
+
+        final Object snapshot = stack.takeSnapshot();
+
+        stack.pokeInt(2);
+        stack.pushInt(3);
+        stack.restoreSnapshot(snapshot);
+        stack.pokeInt(4);
+        stack.restoreSnapshot(snapshot);
+
+        assertThat(stack).containsExactly(1);
+    }
+
+    @Test
+    public void snapshotsAreNotAlteredByLaterOperations()
+    {
+        final IntValueStack stack = new IntValueStack();
+
+        stack.pushInt(1);
+        final Object first = stack.takeSnapshot();
+        stack.pushInt(2);
+        final Object second = stack.takeSnapshot();
+
+        stack.popInt();
+        stack.pokeInt(3);
+        stack.pushInt(4);
+        stack.restoreSnapshot(first);
+        assertThat(stack).containsExactly(1);
+
+        stack.pushInt(5);
+        stack.swap();
+        stack.restoreSnapshot(second);
+        assertThat(stack).containsExactly(2, 1);
+
+        stack.restoreSnapshot(first);
+        stack.dup();
+        stack.restoreSnapshot(second);
+        assertThat(stack).containsExactly(2, 1);
+    }
+
+    @Test
+    public void primitiveOperationsLowerTheWatermark()
+    {
+        final IntValueStack stack = new IntValueStack();
+
+        stack.pushInt(1);
+        stack.pushInt(2);
+        stack.setWatermark(2);
+
+        stack.pushInt(3);
+        assertThat(stack.getWatermark()).isEqualTo(2);
+
+        stack.peekInt(1);
+        assertThat(stack.getWatermark()).isEqualTo(1);
+
+        stack.popInt(2);
+        assertThat(stack.getWatermark()).isEqualTo(0);
+    }
+
+    @Test
+    public void primitiveOperationsCheckTheirArguments()
+    {
+        final IntValueStack stack = new IntValueStack();
+
+        assertThatThrownBy(stack::popInt)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage(ValueStackBase.NOT_ENOUGH_ELEMENTS);
+        assertThatThrownBy(() -> stack.peekInt(-1))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage(ValueStackBase.NEGATIVE_INDEX);
+    }
+}
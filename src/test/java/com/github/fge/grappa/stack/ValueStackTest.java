@@ -191,4 +191,28 @@ public abstract class ValueStackTest
 
         checkContents(o1, o2, o3, o4, o5, o6);
     }
+
+    @Test
+    public final void watermarkTest()
+    {
+        final ValueStackBase<Object> base = (ValueStackBase<Object>) stack;
+
+        base.setWatermark(6);
+
+        stack.push(new Object());
+        stack.dup();
+        stack.swap();
+        stack.pop();
+        stack.pop();
+        assertThat(base.getWatermark()).isEqualTo(6);
+
+        stack.peek(3);
+        assertThat(base.getWatermark()).isEqualTo(2);
+
+        stack.pop(5);
+        assertThat(base.getWatermark()).isEqualTo(0);
+
+        assertThat(base.setWatermark(4)).isEqualTo(0);
+        assertThat(base.getWatermark()).isEqualTo(4);
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.support;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public final class CharactersTest
+{
+    @Test
+    public void additiveSetsContainOnlyTheirChars()
+    {
+        final Characters characters = Characters.of("az\u00e9\u4e00");
+
+        assertThat(characters.isSubtractive()).isFalse();
+        assertThat(characters.getChars()).containsExactly('a', 'z', '\u00e9',
+            '\u4e00');
+
+        for (int c = 0; c <= Character.MAX_VALUE; c++)
+            assertThat(characters.contains((char) c))
+                .isEqualTo("az\u00e9\u4e00".indexOf(c) != -1);
+    }
+
+    @Test
+    public void subtractiveSetsContainAllButTheirChars()
+    {
+        final Characters characters = Characters.allBut('a', '\uffff');
+
+        assertThat(characters.isSubtractive()).isTrue();
+        assertThat(characters.getChars()).containsExactly('a', '\uffff');
+        assertThat(characters.contains('a')).isFalse();
+        assertThat(characters.contains('b')).isTrue();
+        assertThat(characters.contains('\ufffe')).isTrue();
+        assertThat(characters.contains('\uffff')).isFalse();
+    }
+
+    @Test
+    public void rangesContainBothBounds()
+    {
+        final Characters characters = Characters.range('\u00f0', '\u0a00');
+
+        assertThat(characters.contains('\u00ef')).isFalse();
+        assertThat(characters.contains('\u00f0')).isTrue();
+        assertThat(characters.contains('\u0500')).isTrue();
+        assertThat(characters.contains('\u0a00')).isTrue();
+        assertThat(characters.contains('\u0a01')).isFalse();
+        assertThat(Characters.range('x', 'x')).isEqualTo(Characters.of('x'));
+    }
+
+    @Test
+    public void rangesMustNotBeReversed()
+    {
+        assertThatThrownBy(() -> Characters.range('z', 'a'))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void setOperationsWork()
+    {
+        final Characters lower = Characters.range('a', 'z');
+        final Characters vowels = Characters.of("aeiouy");
+
+        assertThat(lower.intersection(vowels)).isEqualTo(vowels);
+        assertThat(lower.union(vowels)).isEqualTo(lower);
+        assertThat(vowels.complement()).isEqualTo(Characters.allBut(
+            'a', 'e', 'i', 'o', 'u', 'y'));
+        assertThat(vowels.complement().complement()).isEqualTo(vowels);
+        assertThat(lower.intersection(vowels.complement()).contains('b'))
+            .isTrue();
+        assertThat(lower.union(lower.complement())).isEqualTo(Characters.ALL);
+        assertThat(lower.intersection(lower.complement()))
+            .isEqualTo(Characters.NONE);
+    }
+
+    @Test
+    public void largeSetsAreSubtractive()
+    {
+        final Characters characters
+            = Characters.range('\u0000', '\u8fff');
+
+        assertThat(characters.isSubtractive()).isTrue();
+        assertThat(characters.complement().isSubtractive()).isFalse();
+        assertThat(characters.union(characters.complement()))
+            .isEqualTo(Characters.ALL);
+    }
+}
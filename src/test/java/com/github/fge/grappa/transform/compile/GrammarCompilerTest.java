@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.transform.compile;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.CompiledParseRunner;
+import com.github.fge.grappa.run.ParseEventListener;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public final class GrammarCompilerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        Rule choice()
+        {
+            return sequence(firstOf(sequence('a', push(match())), "ab"), 'c',
+                push(match()), EOI);
+        }
+
+        Rule expression()
+        {
+            return sequence(term(), zeroOrMore(anyOf("+-"), push(match()),
+                term(), swap(), push(pop() + " " + pop() + " " + pop())));
+        }
+
+        Rule term()
+        {
+            return firstOf(sequence(oneOrMore(digit()), push(match())),
+                sequence('(', expression(), ')'));
+        }
+
+        Rule predicates()
+        {
+            return sequence(test(expression()), testNot("0"),
+                expression(), ACTION(inPredicate() || push("checked")), EOI);
+        }
+
+        Rule bounded()
+        {
+            return sequence(repeat(sequence(charRange('a', 'c'),
+                optional('x'))).times(2, 3), push(currentIndex()),
+                zeroOrMore(ANY), push(match()));
+        }
+
+        Rule emptyRepeat()
+        {
+            return sequence('a', zeroOrMore(optional('b')));
+        }
+
+        Rule matched(final Rule rule)
+        {
+            return sequence(rule, push(match()));
+        }
+    }
+
+    private TestParser parser;
+
+    @BeforeMethod
+    public void initParser()
+    {
+        parser = Grappa.createParser(TestParser.class);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> inputs()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { parser.choice(), "ac" });
+        list.add(new Object[] { parser.choice(), "abc" });
+        list.add(new Object[] { parser.choice(), "abcd" });
+        list.add(new Object[] { parser.expression(), "1+(2-34)+5" });
+        list.add(new Object[] { parser.expression(), "1+(2-" });
+        list.add(new Object[] { parser.predicates(), "(1)-2" });
+        list.add(new Object[] { parser.predicates(), "0+1" });
+        list.add(new Object[] { parser.predicates(), "+1" });
+        list.add(new Object[] { parser.bounded(), "axbcabd" });
+        list.add(new Object[] { parser.bounded(), "abxcz" });
+        list.add(new Object[] { parser.bounded(), "axd" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "inputs")
+    public void compiledRulesHaveTheSameOutcome(final Rule rule,
+        final String input)
+    {
+        final Rule matched = parser.matched(rule);
+        final ParseRunner<Object> original = new ParseRunner<>(matched);
+
+        // the original rule graph is used when listeners are registered
+        original.registerListener(new ParseEventListener<>());
+
+        final ParsingResult<Object> expected = original.run(input);
+        final ParsingResult<Object> actual
+            = new CompiledParseRunner<>(matched).run(input);
+
+        assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @Test
+    public void compiledMatcherKeepsTheLabel()
+    {
+        final Matcher matcher = (Matcher) parser.expression();
+        final Matcher compiled = GrammarCompiler.compile(matcher);
+
+        assertThat(compiled).isInstanceOf(CompiledMatcher.class);
+        assertThat(compiled.getLabel()).isEqualTo(matcher.getLabel());
+    }
+
+    @Test
+    public void terminalsAreNotCompiled()
+    {
+        final Matcher matcher = (Matcher) parser.ch('a');
+
+        assertThat(GrammarCompiler.compile(matcher)).isSameAs(matcher);
+    }
+
+    @Test
+    public void repetitionsMatchingEmptyStillFail()
+    {
+        final ParseRunner<Object> runner
+            = new CompiledParseRunner<>(parser.emptyRepeat());
+
+        assertThatThrownBy(() -> runner.run("ab"))
+            .isInstanceOf(GrappaException.class);
+    }
+}